@@ -4,11 +4,14 @@
 mkdir -p docker/postgres/init
 mkdir -p docker/postgres/data
 
-# Копируем SQL скрипт
-cp src/main/resources/v1_initial_schema.sql docker/postgres/init/schema.sql
+# Собираем SQL скрипты миграций по порядку версий
+for f in $(ls src/main/resources/v*_*.sql | sort -V); do
+    cat "$f"
+    echo
+done > docker/postgres/init/schema.sql
 
 # Даем права на выполнение скрипту инициализации
-chmod +x docker/postgres/init/01-init.sh
+chmod +x docker/postgres/init/01-init.sh docker/postgres/init/02-replication.sh
 
 # Запускаем Docker Compose
 docker-compose up -d
\ No newline at end of file
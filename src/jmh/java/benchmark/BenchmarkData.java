@@ -0,0 +1,58 @@
+package benchmark;
+
+import entity.Author;
+import entity.Book;
+import entity.Genre;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Данные, похожие на реальные: у книги автор с биографией и три жанра
+final class BenchmarkData {
+    static final int GENRES_PER_BOOK = 3;
+
+    static Author author(long id) {
+        Author author = new Author("Лев" + id, "Толстой" + id);
+        author.setId(id);
+        author.setBiography("Русский писатель, один из наиболее известных авторов мира. Автор романов "
+                + "«Война и мир», «Анна Каренина», «Воскресение».");
+        author.setUpdatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        return author;
+    }
+
+    static Genre genre(long id) {
+        Genre genre = new Genre("Жанр " + id);
+        genre.setId(id);
+        genre.setDescription("Описание жанра " + id);
+        genre.setUpdatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        return genre;
+    }
+
+    static Book book(long id) {
+        Book book = new Book("Война и мир, том " + id, String.format("978-5-%07d", id));
+        book.setId(id);
+        book.setPublicationYear(1869);
+        book.setAuthor(author(id % 100 + 1));
+        Set<Genre> genres = new HashSet<>();
+        for (long g = 0; g < GENRES_PER_BOOK; g++) {
+            genres.add(genre((id + g) % 20 + 1));
+        }
+        book.setGenres(genres);
+        book.setUpdatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        return book;
+    }
+
+    static List<Book> books(int count) {
+        List<Book> books = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            books.add(book(id));
+        }
+        return books;
+    }
+
+    private BenchmarkData() {
+    }
+}
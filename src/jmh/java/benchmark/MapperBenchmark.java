@@ -0,0 +1,71 @@
+package benchmark;
+
+import dto.AuthorDto;
+import dto.BookDto;
+import dto.GenreDto;
+import entity.Author;
+import entity.Book;
+import entity.Genre;
+import mapper.AuthorMapper;
+import mapper.BookMapper;
+import mapper.GenreMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Преобразование сущность <-> DTO, которое выполняется на каждый элемент ответа
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+    private Book book;
+    private BookDto bookDto;
+    private Author author;
+    private AuthorDto authorDto;
+    private Genre genre;
+    private GenreDto genreDto;
+
+    @Setup
+    public void setUp() {
+        book = BenchmarkData.book(1);
+        bookDto = BookMapper.INSTANCE.toDto(book);
+        author = BenchmarkData.author(1);
+        author.addBook(BenchmarkData.book(2));
+        authorDto = AuthorMapper.INSTANCE.toDto(author);
+        genre = BenchmarkData.genre(1);
+        genreDto = GenreMapper.INSTANCE.toDto(genre);
+    }
+
+    @Benchmark
+    public BookDto bookToDto() {
+        return BookMapper.INSTANCE.toDto(book);
+    }
+
+    @Benchmark
+    public Book bookToEntity() {
+        return BookMapper.INSTANCE.toEntity(bookDto);
+    }
+
+    @Benchmark
+    public AuthorDto authorToDto() {
+        return AuthorMapper.INSTANCE.toDto(author);
+    }
+
+    @Benchmark
+    public Author authorToEntity() {
+        return AuthorMapper.INSTANCE.toEntity(authorDto);
+    }
+
+    @Benchmark
+    public GenreDto genreToDto() {
+        return GenreMapper.INSTANCE.toDto(genre);
+    }
+
+    @Benchmark
+    public Genre genreToEntity() {
+        return GenreMapper.INSTANCE.toEntity(genreDto);
+    }
+}
@@ -0,0 +1,174 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.BookDto;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import mapper.BookMapper;
+import org.openjdk.jmh.annotations.*;
+import servlet.BaseServlet;
+import servlet.JsonSupport;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Чтение тела запроса и запись ответа через BaseServlet. Запрос и ответ - легкие заглушки,
+// чтобы в замер не попадала стоимость моков. Методы baseline* повторяют прежний путь:
+// ObjectMapper без модулей, тело собирается в строку, ответ пишется через Writer
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+    // Размер страницы списка, который отдает API
+    private static final int PAGE_SIZE = 50;
+
+    private PayloadServlet servlet;
+    private ObjectMapper plainMapper;
+    private byte[] bookJson;
+    private BookDto book;
+    private List<BookDto> page;
+    private HttpServletResponse response;
+    private PrintWriter nullWriter;
+
+    @Setup
+    public void setUp() throws IOException {
+        servlet = new PayloadServlet();
+        plainMapper = new ObjectMapper();
+        book = BookMapper.INSTANCE.toDto(BenchmarkData.book(1));
+        bookJson = JsonSupport.writer().writeValueAsBytes(book);
+        page = BenchmarkData.books(PAGE_SIZE).stream().map(BookMapper.INSTANCE::toDto).toList();
+        response = stub(HttpServletResponse.class, "getOutputStream", new NullOutputStream());
+        nullWriter = new PrintWriter(Writer.nullWriter());
+    }
+
+    @Benchmark
+    public BookDto readBook() throws IOException {
+        HttpServletRequest request = stub(HttpServletRequest.class, "getInputStream",
+                new BytesInputStream(bookJson));
+        return servlet.read(request, BookDto.class);
+    }
+
+    @Benchmark
+    public void writeBook() throws IOException {
+        servlet.send(response, book);
+    }
+
+    @Benchmark
+    public void writePage() throws IOException {
+        servlet.send(response, page);
+    }
+
+    @Benchmark
+    public BookDto baselineReadBook() throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(new String(bookJson, StandardCharsets.UTF_8)));
+        String body = reader.lines().collect(Collectors.joining());
+        return plainMapper.readValue(body, BookDto.class);
+    }
+
+    @Benchmark
+    public void baselineWriteBook() throws IOException {
+        plainMapper.writeValue(nullWriter, book);
+    }
+
+    @Benchmark
+    public void baselineWritePage() throws IOException {
+        plainMapper.writeValue(nullWriter, page);
+    }
+
+    // Заглушка отвечает на один метод, остальные возвращают значения по умолчанию
+    private static <T> T stub(Class<T> type, String methodName, Object result) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().equals(methodName)) {
+                        return result;
+                    }
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType == boolean.class) {
+                        return false;
+                    } else if (returnType == int.class) {
+                        return 0;
+                    } else if (returnType == long.class) {
+                        return 0L;
+                    }
+                    return null;
+                }));
+    }
+
+    // Открывает защищенные методы BaseServlet для замера
+    private static final class PayloadServlet extends BaseServlet {
+        <T> T read(HttpServletRequest request, Class<T> type) throws IOException {
+            return readRequestBody(request, type);
+        }
+
+        void send(HttpServletResponse response, Object data) throws IOException {
+            sendResponse(response, data, HttpServletResponse.SC_OK);
+        }
+    }
+
+    private static final class NullOutputStream extends ServletOutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
+
+    private static final class BytesInputStream extends ServletInputStream {
+        private final ByteArrayInputStream source;
+
+        private BytesInputStream(byte[] bytes) {
+            this.source = new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public int read() {
+            return source.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return source.read(b, off, len);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return source.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import service.cache.SuggestIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Подсказки по префиксу из индекса в памяти и стоимость его построения
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SuggestIndexBenchmark {
+    private static final String[] WORDS = {
+            "война", "мир", "мастер", "маргарита", "преступление", "наказание", "идиот", "братья",
+            "мертвые", "души", "отцы", "дети", "тихий", "дон", "белая", "гвардия"
+    };
+
+    @Param({"100000"})
+    private int books;
+
+    private SuggestIndex index;
+    private long nextId;
+
+    @Setup
+    public void setUp() {
+        index = newIndex();
+        index.load();
+        nextId = books + 1L;
+    }
+
+    @Benchmark
+    public List<SuggestIndex.Suggestion> suggestShortPrefix() {
+        return index.suggest("ма", 10);
+    }
+
+    @Benchmark
+    public List<SuggestIndex.Suggestion> suggestLongPrefix() {
+        return index.suggest("преступление на", 10);
+    }
+
+    @Benchmark
+    public void putBook() {
+        index.putBook(nextId++, title(nextId));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SuggestIndex buildIndex() {
+        SuggestIndex fresh = newIndex();
+        fresh.load();
+        return fresh;
+    }
+
+    private SuggestIndex newIndex() {
+        return new SuggestIndex(action -> {
+            for (long id = 1; id <= books; id++) {
+                action.accept(id, title(id));
+            }
+        }, action -> {
+            for (long id = 1; id <= books / 10; id++) {
+                action.accept(id, "Автор " + WORDS[(int) (id % WORDS.length)] + id);
+            }
+        }, Long.MAX_VALUE);
+    }
+
+    private static String title(long id) {
+        return WORDS[(int) (id % WORDS.length)] + " " + WORDS[(int) (id / WORDS.length % WORDS.length)]
+                + " " + id;
+    }
+}
@@ -0,0 +1,130 @@
+package repository;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import entity.Book;
+import org.openjdk.jmh.annotations.*;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Чтение и разбор строк репозиторием на настоящем PostgreSQL в Testcontainers. Класс лежит
+// в пакете repository ради конструктора с DataSource, как и тесты репозиториев.
+// Размер набора данных задается параметром books (в профиле Maven: -Djmh.books=10000)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookRepositoryBenchmark {
+    private static final int AUTHORS = 100;
+    private static final int GENRES = 20;
+    private static final int GENRES_PER_BOOK = 3;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1000"})
+    public int books;
+
+    private PostgreSQLContainer<?> postgres;
+    private HikariDataSource dataSource;
+    private BookRepository bookRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = new PostgreSQLContainer<>("postgres:15.2")
+                .withDatabaseName("library_benchmark")
+                .withUsername("test")
+                .withPassword("test");
+        postgres.start();
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(postgres.getJdbcUrl());
+        config.setUsername(postgres.getUsername());
+        config.setPassword(postgres.getPassword());
+        config.setMaximumPoolSize(4);
+        dataSource = new HikariDataSource(config);
+
+        try (Connection conn = dataSource.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(readResource("/schema.sql"));
+            }
+            seed(conn);
+        }
+        bookRepository = new BookRepository(dataSource);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public Optional<Book> findById() {
+        return bookRepository.findById(ThreadLocalRandom.current().nextLong(1, books + 1));
+    }
+
+    @Benchmark
+    public List<Book> findPage() {
+        long afterId = ThreadLocalRandom.current().nextLong(0, Math.max(1, books - PAGE_SIZE));
+        return bookRepository.findPage(afterId, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Book> findAll() {
+        return bookRepository.findAll();
+    }
+
+    // Данные генерируются на стороне базы, чтобы подготовка не зависела от размера набора
+    private void seed(Connection conn) throws Exception {
+        try (PreparedStatement authors = conn.prepareStatement(
+                "INSERT INTO authors (first_name, last_name, biography) "
+                        + "SELECT 'Имя ' || i, 'Фамилия ' || i, repeat('Биография автора. ', 10) "
+                        + "FROM generate_series(1, ?) AS i")) {
+            authors.setInt(1, AUTHORS);
+            authors.executeUpdate();
+        }
+        try (PreparedStatement genres = conn.prepareStatement(
+                "INSERT INTO genres (name, description) "
+                        + "SELECT 'Жанр ' || i, 'Описание жанра ' || i FROM generate_series(1, ?) AS i")) {
+            genres.setInt(1, GENRES);
+            genres.executeUpdate();
+        }
+        try (PreparedStatement booksStmt = conn.prepareStatement(
+                "INSERT INTO books (title, isbn, publication_year, author_id) "
+                        + "SELECT 'Книга ' || i, 'ISBN-' || i, 1900 + i % 120, 1 + i % ? "
+                        + "FROM generate_series(1, ?) AS i")) {
+            booksStmt.setInt(1, AUTHORS);
+            booksStmt.setInt(2, books);
+            booksStmt.executeUpdate();
+        }
+        try (PreparedStatement links = conn.prepareStatement(
+                "INSERT INTO books_genres (book_id, genre_id) "
+                        + "SELECT b.id, 1 + (b.id + g) % ? FROM books b CROSS JOIN generate_series(0, ?) AS g")) {
+            links.setInt(1, GENRES);
+            links.setInt(2, GENRES_PER_BOOK - 1);
+            links.executeUpdate();
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ANALYZE");
+        }
+    }
+
+    private static String readResource(String path) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                BookRepositoryBenchmark.class.getResourceAsStream(path), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.joining("\n"));
+        }
+    }
+}
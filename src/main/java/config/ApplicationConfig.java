@@ -0,0 +1,50 @@
+package config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+public class ApplicationConfig {
+    private static final Properties properties = new Properties();
+
+    static {
+        try (InputStream is = ApplicationConfig.class.getClassLoader()
+                .getResourceAsStream("application.properties")) {
+            if (is != null) {
+                properties.load(is);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка при загрузке конфигурации приложения", e);
+        }
+    }
+
+    // Порядок поиска: системное свойство, переменная окружения (cache.size -> CACHE_SIZE), файл
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase().replace('.', '_'));
+        }
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    private ApplicationConfig() {
+    }
+}
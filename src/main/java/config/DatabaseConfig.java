@@ -2,16 +2,90 @@ package config;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import metrics.HikariPoolMetrics;
+import metrics.InstrumentedDataSource;
+import metrics.MetricsRegistry;
+import metrics.SqlMetrics;
 
 import javax.sql.DataSource;
 import java.io.IOException;
 import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
+// Пулы создаются при первом обращении или явно из ApplicationLifecycleListener при старте,
+// а не в статическом инициализаторе: так ошибку конфигурации видно при развертывании,
+// а пул можно закрыть при остановке
 public class DatabaseConfig {
-    private static final HikariDataSource dataSource;
+    private static volatile Pools pools;
+    private static volatile boolean closed;
 
-    static {
+    public static DataSource getDataSource() {
+        return pools().dataSource;
+    }
+
+    public static ReplicaRouter getRouter() {
+        return pools().router;
+    }
+
+    // Открывает все minimumIdle соединений каждого пула сразу, не дожидаясь фонового
+    // заполнения Hikari: первые запросы после развертывания не платят за установку соединений
+    public static void prefill() throws SQLException {
+        Pools current = pools();
+        prefill(current.primaryPool);
+        if (current.replicaPool != null) {
+            prefill(current.replicaPool);
+        }
+    }
+
+    // После закрытия пулы не создаются заново: поздний запрос при остановке получает ошибку,
+    // а не новый пул, который уже никто не закроет
+    public static synchronized void close() {
+        closed = true;
+        Pools current = pools;
+        pools = null;
+        if (current != null) {
+            if (current.replicaPool != null) {
+                current.replicaPool.close();
+            }
+            current.primaryPool.close();
+        }
+    }
+
+    private static void prefill(HikariDataSource pool) throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < pool.getMinimumIdle(); i++) {
+                connections.add(pool.getConnection());
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    private static Pools pools() {
+        Pools current = pools;
+        if (current == null) {
+            synchronized (DatabaseConfig.class) {
+                if (closed) {
+                    throw new IllegalStateException("Connection pools are closed");
+                }
+                current = pools;
+                if (current == null) {
+                    current = createPools();
+                    pools = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static Pools createPools() {
         try {
             Properties props = new Properties();
             try (InputStream is = DatabaseConfig.class.getClassLoader()
@@ -20,30 +94,84 @@ public class DatabaseConfig {
             }
 
             HikariConfig config = new HikariConfig();
+            config.setPoolName("primary");
 
-            // Сначала пробуем взять из переменных окружения
-            String dbUrl = System.getenv("DB_URL");
-            String dbUsername = System.getenv("DB_USERNAME");
-            String dbPassword = System.getenv("DB_PASSWORD");
-
-            // Если нет в окружении - берем из properties
-            config.setJdbcUrl(dbUrl != null ? dbUrl : props.getProperty("db.url"));
-            config.setUsername(dbUsername != null ? dbUsername : props.getProperty("db.username"));
-            config.setPassword(dbPassword != null ? dbPassword : props.getProperty("db.password"));
+            // Сначала системное свойство или переменная окружения (DB_URL), затем properties
+            config.setJdbcUrl(ApplicationConfig.getString("db.url", props.getProperty("db.url")));
+            config.setUsername(ApplicationConfig.getString("db.username", props.getProperty("db.username")));
+            config.setPassword(ApplicationConfig.getString("db.password", props.getProperty("db.password")));
 
             // Остальные настройки из properties
             config.setDriverClassName(props.getProperty("db.driver"));
             config.setMaximumPoolSize(Integer.parseInt(props.getProperty("db.pool.size")));
             config.setConnectionTimeout(Long.parseLong(props.getProperty("db.pool.connection.timeout")));
 
-            dataSource = new HikariDataSource(config);
+            SqlMetrics sqlMetrics = null;
+            // Замеры запросов можно отключить, тогда репозитории работают с пулом напрямую
+            if (ApplicationConfig.getBoolean("db.metrics.enabled", true)) {
+                sqlMetrics = new SqlMetrics();
+                MetricsRegistry.getInstance().register(sqlMetrics);
+            }
+            HikariDataSource pool = new HikariDataSource(config);
+            HikariDataSource replicaPool = createReplicaPool(config, props);
+            MetricsRegistry.getInstance().register(replicaPool != null
+                    ? new HikariPoolMetrics(pool, replicaPool)
+                    : new HikariPoolMetrics(pool));
+
+            DataSource dataSource = instrument(pool, sqlMetrics);
+            long maxLagMillis = ApplicationConfig.getLong("db.replica.max.lag.millis", 1000);
+            ReplicaRouter router = new ReplicaRouter(dataSource,
+                    replicaPool != null ? instrument(replicaPool, sqlMetrics) : null,
+                    maxLagMillis,
+                    ApplicationConfig.getLong("db.replica.write.window.millis", maxLagMillis),
+                    ApplicationConfig.getLong("db.replica.lag.check.millis", 1000),
+                    System::nanoTime);
+            return new Pools(pool, replicaPool, dataSource, router);
         } catch (IOException e) {
             throw new RuntimeException("Ошибка при загрузке конфигурации базы данных", e);
         }
     }
 
-    public static DataSource getDataSource() {
-        return dataSource;
+    // Реплика необязательна: без db.replica.url (DB_REPLICA_URL) чтение идет на основной сервер.
+    // Учетные данные по умолчанию те же, что у основного. Таймаут получения соединения короткий:
+    // недоступная реплика не должна задерживать запрос, он уйдет на основной сервер
+    private static HikariDataSource createReplicaPool(HikariConfig primary, Properties props) {
+        String url = ApplicationConfig.getString("db.replica.url", props.getProperty("db.replica.url"));
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("replica");
+        config.setJdbcUrl(url);
+        config.setUsername(ApplicationConfig.getString("db.replica.username", primary.getUsername()));
+        config.setPassword(ApplicationConfig.getString("db.replica.password", primary.getPassword()));
+        config.setDriverClassName(primary.getDriverClassName());
+        config.setMaximumPoolSize(ApplicationConfig.getInt("db.replica.pool.size", primary.getMaximumPoolSize()));
+        config.setConnectionTimeout(ApplicationConfig.getLong("db.replica.connection.timeout", 1000));
+        config.setReadOnly(true);
+        return new HikariDataSource(config);
+    }
+
+    private static DataSource instrument(HikariDataSource pool, SqlMetrics sqlMetrics) {
+        if (sqlMetrics == null) {
+            return pool;
+        }
+        return new InstrumentedDataSource(pool, sqlMetrics, ApplicationConfig.getLong("db.slow.query.millis", 200));
+    }
+
+    private static final class Pools {
+        private final HikariDataSource primaryPool;
+        private final HikariDataSource replicaPool;
+        private final DataSource dataSource;
+        private final ReplicaRouter router;
+
+        private Pools(HikariDataSource primaryPool, HikariDataSource replicaPool,
+                      DataSource dataSource, ReplicaRouter router) {
+            this.primaryPool = primaryPool;
+            this.replicaPool = replicaPool;
+            this.dataSource = dataSource;
+            this.router = router;
+        }
     }
 
     private DatabaseConfig() {
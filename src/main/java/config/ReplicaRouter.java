@@ -0,0 +1,176 @@
+package config;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Выбирает пул для соединения: запись всегда идет на основной сервер, чтение - на реплику,
+// если она настроена, доступна, успевает за основным и в текущем запросе еще не было записи.
+//
+// Окно после записи общее для всех запросов узла: любая запись на writeWindowMillis уводит
+// на основной сервер все чтение, а не только чтение измененной таблицы. Это сознательный
+// компромисс: DTO авторов и жанров содержат книги, так что почти любая запись затрагивает
+// почти любое чтение, и окно по таблицам почти ничего не сэкономило бы. При постоянном потоке
+// записей реплика не разгружает основной сервер - тогда окно можно сузить настройкой
+// db.replica.write.window.millis ценой того, что кэши после записи могут заполниться строками
+// с отстающей реплики до следующей записи или истечения срока жизни. Записи других узлов
+// окно не видит вовсе
+public class ReplicaRouter {
+    private static final Logger LOGGER = Logger.getLogger(ReplicaRouter.class.getName());
+
+    // Отставание в миллисекундах. Если все принятое WAL уже применено, реплика догнала основной
+    // сервер, даже если последняя транзакция была давно. Без процесса приема WAL реплика
+    // отрезана от основного сервера, и отставание неизвестно (NULL)
+    static final String LAG_QUERY = "SELECT CASE"
+            + " WHEN NOT pg_is_in_recovery() THEN 0"
+            + " WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver) THEN NULL"
+            + " WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000"
+            + " END";
+
+    // Запись в текущем запросе: дальнейшее чтение в нем же должно видеть ее результат
+    private static final ThreadLocal<Boolean> WROTE_IN_REQUEST = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long maxLagNanos;
+    private final long writeWindowNanos;
+    private final long checkIntervalNanos;
+    private final LongSupplier clock;
+
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private volatile long lastWriteNanos;
+    private volatile long checkedAt;
+    private volatile boolean replicaAvailable;
+    private volatile long lastLagMillis = -1;
+
+    public ReplicaRouter(DataSource primary) {
+        this(primary, null, 0, 0, System::nanoTime);
+    }
+
+    public ReplicaRouter(DataSource primary, DataSource replica, long maxLagMillis, long checkIntervalMillis,
+                         LongSupplier clock) {
+        this(primary, replica, maxLagMillis, maxLagMillis, checkIntervalMillis, clock);
+    }
+
+    // replica может быть null: тогда все соединения берутся из основного пула
+    public ReplicaRouter(DataSource primary, DataSource replica, long maxLagMillis, long writeWindowMillis,
+                         long checkIntervalMillis, LongSupplier clock) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+        this.writeWindowNanos = TimeUnit.MILLISECONDS.toNanos(writeWindowMillis);
+        this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis);
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.lastWriteNanos = now - writeWindowNanos - 1;
+        this.checkedAt = now - checkIntervalNanos - 1;
+    }
+
+    public DataSource forWrite() {
+        WROTE_IN_REQUEST.set(Boolean.TRUE);
+        lastWriteNanos = clock.getAsLong();
+        return primary;
+    }
+
+    // Окно отсчитывается и от возврата соединения записи в пул, то есть после фиксации: транзакция
+    // дольше окна (пакетная загрузка, единица работы, ожидание блокировки) иначе открыла бы
+    // реплику раньше, чем ее результат туда дошел
+    public Connection trackWrite(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(ReplicaRouter.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if ("close".equals(method.getName())) {
+                            lastWriteNanos = clock.getAsLong();
+                        }
+                    }
+                });
+    }
+
+    // Пока с последней записи не прошло окно, реплика может ее еще не содержать. Чтение в это
+    // окно идет на основной сервер и из других запросов, иначе кэши DTO и ответов, сброшенные
+    // записью, заполнились бы устаревшими строками с реплики
+    public DataSource forRead() {
+        if (replica == null || Boolean.TRUE.equals(WROTE_IN_REQUEST.get())) {
+            return primary;
+        }
+        if (clock.getAsLong() - lastWriteNanos <= writeWindowNanos) {
+            return primary;
+        }
+        return isReplicaAvailable() ? replica : primary;
+    }
+
+    // Пул, полученный из forRead, не выдал соединение. Для реплики это значит, что она упала
+    // или пул исчерпан: до следующей проверки отставания чтение идет на основной сервер, а текущий
+    // запрос повторяет попытку там. Ошибку основного сервера повторять негде
+    public DataSource fallbackFrom(DataSource failed, SQLException cause) throws SQLException {
+        if (replica == null || failed != replica) {
+            throw cause;
+        }
+        replicaAvailable = false;
+        lastLagMillis = -1;
+        checkedAt = clock.getAsLong();
+        LOGGER.log(Level.WARNING, "Replica connection failed, reading from primary", cause);
+        return primary;
+    }
+
+    // Вызывается по завершении запроса: потоки контейнера переиспользуются
+    public static void clearRequestState() {
+        WROTE_IN_REQUEST.remove();
+    }
+
+    public boolean isReplicaConfigured() {
+        return replica != null;
+    }
+
+    // -1, если отставание еще не измерялось или реплика недоступна
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+
+    // Отставание перепроверяет один поток не чаще checkIntervalMillis, остальные читают прошлый результат
+    private boolean isReplicaAvailable() {
+        if (clock.getAsLong() - checkedAt > checkIntervalNanos && checking.compareAndSet(false, true)) {
+            try {
+                replicaAvailable = checkLag();
+                checkedAt = clock.getAsLong();
+            } finally {
+                checking.set(false);
+            }
+        }
+        return replicaAvailable;
+    }
+
+    private boolean checkLag() {
+        try (Connection conn = replica.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(LAG_QUERY);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            double lag = rs.getDouble(1);
+            if (rs.wasNull()) {
+                lastLagMillis = -1;
+                LOGGER.warning("Replica is not receiving WAL, reading from primary");
+                return false;
+            }
+            lastLagMillis = (long) lag;
+            return TimeUnit.MILLISECONDS.toNanos(lastLagMillis) <= maxLagNanos;
+        } catch (SQLException e) {
+            lastLagMillis = -1;
+            LOGGER.log(Level.WARNING, "Replica lag check failed, reading from primary", e);
+            return false;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -10,6 +13,10 @@ public class AuthorDto {
     private String biography;
     private Set<BookShortDto> books = new HashSet<>();
 
+    // Версия для ETag/Last-Modified, в тело ответа не попадает
+    @JsonIgnore
+    private Instant updatedAt;
+
     public Long getId() {
         return id;
     }
@@ -49,4 +56,12 @@ public class AuthorDto {
     public void setBooks(Set<BookShortDto> books) {
         this.books = books;
     }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
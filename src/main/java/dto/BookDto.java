@@ -1,5 +1,8 @@
 package dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -11,6 +14,10 @@ public class BookDto {
     private AuthorShortDto author;
     private Set<GenreShortDto> genres = new HashSet<>();
 
+    // Версия для ETag/Last-Modified, в тело ответа не попадает
+    @JsonIgnore
+    private Instant updatedAt;
+
     public Long getId() {
         return id;
     }
@@ -58,4 +65,12 @@ public class BookDto {
     public void setGenres(Set<GenreShortDto> genres) {
         this.genres = genres;
     }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
@@ -0,0 +1,41 @@
+package dto;
+
+public class BulkImportErrorDto {
+    private long row;
+    private String field;
+    private String message;
+
+    // Конструктор по умолчанию для Jackson
+    public BulkImportErrorDto() {
+    }
+
+    public BulkImportErrorDto(long row, String field, String message) {
+        this.row = row;
+        this.field = field;
+        this.message = message;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public void setRow(long row) {
+        this.row = row;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public void setField(String field) {
+        this.field = field;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
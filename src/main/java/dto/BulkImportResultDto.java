@@ -0,0 +1,55 @@
+package dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkImportResultDto {
+    private long received;
+    private long imported;
+    private long failed;
+    // Одна строка может дать несколько ошибок, поэтому failed считается по строкам отдельно
+    private List<BulkImportErrorDto> errors = new ArrayList<>();
+
+    // Конструктор по умолчанию для Jackson
+    public BulkImportResultDto() {
+    }
+
+    public BulkImportResultDto(long received, long imported, long failed, List<BulkImportErrorDto> errors) {
+        this.received = received;
+        this.imported = imported;
+        this.failed = failed;
+        this.errors = errors;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public List<BulkImportErrorDto> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<BulkImportErrorDto> errors) {
+        this.errors = errors;
+    }
+}
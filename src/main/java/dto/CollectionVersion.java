@@ -0,0 +1,22 @@
+package dto;
+
+import java.time.Instant;
+
+// Валидатор списка для условного GET: меняется при любой вставке, изменении или удалении
+public class CollectionVersion {
+    private final long version;
+    private final Instant lastModified;
+
+    public CollectionVersion(long version, Instant lastModified) {
+        this.version = version;
+        this.lastModified = lastModified;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+}
@@ -1,5 +1,8 @@
 package dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -9,6 +12,10 @@ public class GenreDto {
     private String description;
     private Set<BookShortDto> books = new HashSet<>();
 
+    // Версия для ETag/Last-Modified, в тело ответа не попадает
+    @JsonIgnore
+    private Instant updatedAt;
+
     // Геттеры и сеттеры
     public Long getId() {
         return id;
@@ -41,4 +48,12 @@ public class GenreDto {
     public void setBooks(Set<BookShortDto> books) {
         this.books = books;
     }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
@@ -0,0 +1,34 @@
+package dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PageDto<T> {
+    private List<T> items = new ArrayList<>();
+    private String nextCursor;
+
+    // Конструктор по умолчанию для Jackson
+    public PageDto() {
+    }
+
+    public PageDto(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
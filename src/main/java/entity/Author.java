@@ -1,5 +1,6 @@
 package entity;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -10,6 +11,7 @@ public class Author {
     private String lastName;
     private String biography;
     private Set<Book> books = new HashSet<>();
+    private Instant updatedAt;
 
     public Author() {
     }
@@ -73,6 +75,14 @@ public class Author {
         this.books = new HashSet<>(books);
     }
 
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
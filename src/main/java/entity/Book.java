@@ -1,5 +1,6 @@
 package entity;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -11,6 +12,7 @@ public class Book {
     private Integer publicationYear;
     private Author author;
     private Set<Genre> genres = new HashSet<>();
+    private Instant updatedAt;
 
     public Book() {
     }
@@ -82,6 +84,14 @@ public class Book {
         this.genres = new HashSet<>(genres);
     }
 
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,5 +1,6 @@
 package entity;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -9,6 +10,7 @@ public class Genre {
     private String name;
     private String description;
     private Set<Book> books = new HashSet<>();
+    private Instant updatedAt;
 
     public Genre() {
     }
@@ -49,6 +51,14 @@ public class Genre {
         this.books = new HashSet<>(books);
     }
 
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,14 @@
+package exception;
+
+public class PayloadTooLargeException extends LibraryException {
+    private final long maxBytes;
+
+    public PayloadTooLargeException(long maxBytes) {
+        super("Request body exceeds " + maxBytes + " bytes");
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,18 @@
+package exception;
+
+public class ServiceUnavailableException extends LibraryException {
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message) {
+        this(message, 0);
+    }
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,6 +1,7 @@
 package mapper;
 
 import dto.BookDto;
+import dto.BookShortDto;
 
 import entity.Book;
 import org.mapstruct.*;
@@ -14,4 +15,5 @@ public interface BookMapper {
 
     BookDto toDto(Book book);
     Book toEntity(BookDto bookDto);
+    BookShortDto toShortDto(Book book);
 }
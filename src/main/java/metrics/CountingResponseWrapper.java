@@ -0,0 +1,140 @@
+package metrics;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+// Считает размер тела ответа. Для getWriter считаются байты UTF-8: все ответы JSON
+// отдаются в этой кодировке, а буферизация и сброс остаются у исходного writer
+public class CountingResponseWrapper extends HttpServletResponseWrapper {
+    private long bytesWritten;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    public CountingResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new CountingOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new CountingWriter(super.getWriter()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        bytesWritten = 0;
+        outputStream = null;
+        writer = null;
+    }
+
+    private final class CountingOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+
+        private CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            bytesWritten++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            bytesWritten += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+
+    private final class CountingWriter extends Writer {
+        private final Writer delegate;
+
+        private CountingWriter(Writer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(char[] buffer, int off, int len) throws IOException {
+            delegate.write(buffer, off, len);
+            for (int i = off; i < off + len; i++) {
+                bytesWritten += utf8Length(buffer[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            delegate.write(str, off, len);
+            for (int i = off; i < off + len; i++) {
+                bytesWritten += utf8Length(str.charAt(i));
+            }
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            delegate.write(c);
+            bytesWritten += utf8Length((char) c);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        // Суррогатная пара дает 4 байта, по 2 на каждую половину
+        private int utf8Length(char c) {
+            if (c < 0x80) {
+                return 1;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                return 2;
+            }
+            return 3;
+        }
+    }
+}
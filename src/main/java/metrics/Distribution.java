@@ -0,0 +1,67 @@
+package metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Распределение значений на HdrHistogram. Запись идет в Recorder без блокировок и без
+// выделения памяти; при чтении срез за прошедший интервал добавляется к общей гистограмме
+public class Distribution {
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final long highestTrackableValue;
+    private final Recorder recorder;
+    private final Histogram total;
+    private final LongAdder sum = new LongAdder();
+    // Переиспользуется между чтениями; доступ только под монитором
+    private Histogram interval;
+
+    public Distribution(long highestTrackableValue) {
+        this.highestTrackableValue = highestTrackableValue;
+        this.recorder = new Recorder(highestTrackableValue, SIGNIFICANT_DIGITS);
+        this.total = new Histogram(highestTrackableValue, SIGNIFICANT_DIGITS);
+    }
+
+    public void record(long value) {
+        long clamped = Math.max(0, Math.min(value, highestTrackableValue));
+        recorder.recordValue(clamped);
+        sum.add(clamped);
+    }
+
+    // Накопленные значения с начала работы: количество значений не больше каждой границы
+    public synchronized Snapshot snapshot(long[] bounds) {
+        interval = interval == null ? recorder.getIntervalHistogram() : recorder.getIntervalHistogram(interval);
+        total.add(interval);
+
+        long[] cumulativeCounts = new long[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            cumulativeCounts[i] = total.getCountBetweenValues(0, bounds[i]);
+        }
+        return new Snapshot(cumulativeCounts, total.getTotalCount(), sum.sum());
+    }
+
+    public static final class Snapshot {
+        private final long[] cumulativeCounts;
+        private final long count;
+        private final long sum;
+
+        private Snapshot(long[] cumulativeCounts, long count, long sum) {
+            this.cumulativeCounts = cumulativeCounts;
+            this.count = count;
+            this.sum = sum;
+        }
+
+        public long[] getCumulativeCounts() {
+            return cumulativeCounts;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+// Текущее состояние пулов соединений, читается из MXBean в момент выдачи метрик.
+// Все пулы пишутся одним источником: у каждой метрики в выдаче должен быть один блок TYPE
+public class HikariPoolMetrics implements MetricsSource {
+    private final List<HikariDataSource> dataSources;
+
+    public HikariPoolMetrics(HikariDataSource... dataSources) {
+        this.dataSources = List.of(dataSources);
+    }
+
+    @Override
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        writer.type("hikari_connections_active", "gauge", "Connections in use");
+        for (HikariDataSource dataSource : dataSources) {
+            sample(writer, "hikari_connections_active", dataSource, HikariPoolMXBean::getActiveConnections);
+        }
+        writer.type("hikari_connections_idle", "gauge", "Idle connections in the pool");
+        for (HikariDataSource dataSource : dataSources) {
+            sample(writer, "hikari_connections_idle", dataSource, HikariPoolMXBean::getIdleConnections);
+        }
+        writer.type("hikari_connections_pending", "gauge", "Threads waiting for a connection");
+        for (HikariDataSource dataSource : dataSources) {
+            sample(writer, "hikari_connections_pending", dataSource, HikariPoolMXBean::getThreadsAwaitingConnection);
+        }
+        writer.type("hikari_connections_max", "gauge", "Maximum pool size");
+        for (HikariDataSource dataSource : dataSources) {
+            sample(writer, "hikari_connections_max", dataSource, pool -> dataSource.getMaximumPoolSize());
+        }
+    }
+
+    // Пул, еще не открывший ни одного соединения, не имеет MXBean и пропускается
+    private static void sample(PrometheusWriter writer, String name, HikariDataSource dataSource,
+                               ToIntFunction<HikariPoolMXBean> value) throws IOException {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool != null) {
+            String labels = "pool=\"" + PrometheusWriter.escape(dataSource.getPoolName()) + "\"";
+            writer.sample(name, labels, value.applyAsInt(pool));
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package metrics;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Обертка над пулом соединений. Соединения, запросы и наборы строк подменяются динамическими
+// прокси, которые замеряют время и считают строки; остальные вызовы уходят в драйвер как есть,
+// поэтому unwrap(PGConnection.class) и COPY продолжают работать
+public class InstrumentedDataSource implements DataSource {
+    public static final String UNKNOWN_OPERATION = "unknown";
+
+    // CopyManager драйвера работает мимо прокси запросов, поэтому COPY замеряется целиком
+    // через conn.unwrap(TimedConnection.class)
+    public interface TimedConnection {
+        <E extends Exception> long timeCopy(String copySql, CopyCall<E> call) throws SQLException, E;
+    }
+
+    // Возвращает число строк, переданных через COPY
+    @FunctionalInterface
+    public interface CopyCall<E extends Exception> {
+        long run() throws SQLException, E;
+    }
+
+    private static final Logger SLOW_QUERY_LOG = Logger.getLogger("sql.slow");
+
+    private final DataSource delegate;
+    private final SqlMetrics metrics;
+    private final long slowQueryNanos;
+
+    public InstrumentedDataSource(DataSource delegate, SqlMetrics metrics, long slowQueryMillis) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(UNKNOWN_OPERATION);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        SqlMetrics.Operation operation = metrics.operation(UNKNOWN_OPERATION);
+        long start = System.nanoTime();
+        try {
+            return instrument(delegate.getConnection(username, password), UNKNOWN_OPERATION, operation);
+        } finally {
+            operation.recordWait(System.nanoTime() - start);
+        }
+    }
+
+    // operation - метод репозитория, к которому относятся ожидание, удержание и строки соединения
+    public Connection getConnection(String operationName) throws SQLException {
+        SqlMetrics.Operation operation = metrics.operation(operationName);
+        long start = System.nanoTime();
+        try {
+            return instrument(delegate.getConnection(), operationName, operation);
+        } finally {
+            operation.recordWait(System.nanoTime() - start);
+        }
+    }
+
+    private Connection instrument(Connection connection, String operationName, SqlMetrics.Operation operation) {
+        ConnectionHandler handler = new ConnectionHandler(connection, operationName, operation);
+        handler.proxy = (Connection) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class, TimedConnection.class}, handler);
+        return handler.proxy;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    private void record(SqlMetrics.Query query, long duration, boolean failed, String operationName, String sql) {
+        query.recordExecution(duration, failed);
+        if (duration >= slowQueryNanos && SLOW_QUERY_LOG.isLoggable(Level.WARNING)) {
+            SLOW_QUERY_LOG.warning(String.format("Медленный запрос: %d мс в %s: %s",
+                    TimeUnit.NANOSECONDS.toMillis(duration), operationName, SqlFingerprint.of(sql)));
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Соединение используется одним потоком, поэтому счетчик строк без синхронизации
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final String operationName;
+        private final SqlMetrics.Operation operation;
+        private final long acquiredAt = System.nanoTime();
+        private Connection proxy;
+        private long rows;
+        private boolean closed;
+
+        private ConnectionHandler(Connection target, String operationName, SqlMetrics.Operation operation) {
+            this.target = target;
+            this.operationName = operationName;
+            this.operation = operation;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        operation.recordHold(System.nanoTime() - acquiredAt, rows);
+                    }
+                    return InstrumentedDataSource.invoke(target, method, args);
+                }
+                case "createStatement" -> {
+                    Statement statement = (Statement) InstrumentedDataSource.invoke(target, method, args);
+                    return proxy(Statement.class, new StatementHandler(statement, null, this));
+                }
+                case "prepareStatement" -> {
+                    Statement statement = (Statement) InstrumentedDataSource.invoke(target, method, args);
+                    return proxy(PreparedStatement.class, new StatementHandler(statement, (String) args[0], this));
+                }
+                case "prepareCall" -> {
+                    Statement statement = (Statement) InstrumentedDataSource.invoke(target, method, args);
+                    return proxy(CallableStatement.class, new StatementHandler(statement, (String) args[0], this));
+                }
+                case "unwrap" -> {
+                    return args[0] == TimedConnection.class ? proxy : InstrumentedDataSource.invoke(target, method, args);
+                }
+                case "isWrapperFor" -> {
+                    return args[0] == TimedConnection.class || (boolean) InstrumentedDataSource.invoke(target, method, args);
+                }
+                case "timeCopy" -> {
+                    return timeCopy((String) args[0], (CopyCall<?>) args[1]);
+                }
+                default -> {
+                    return InstrumentedDataSource.invoke(target, method, args);
+                }
+            }
+        }
+
+        private long timeCopy(String copySql, CopyCall<?> call) throws Exception {
+            SqlMetrics.Query query = metrics.query(copySql);
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                long count = call.run();
+                failed = false;
+                query.recordRows(count);
+                rows += count;
+                return count;
+            } finally {
+                record(query, System.nanoTime() - start, failed, operationName, copySql);
+            }
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private final ConnectionHandler connection;
+        private SqlMetrics.Query lastQuery;
+
+        private StatementHandler(Statement target, String sql, ConnectionHandler connection) {
+            this.target = target;
+            this.sql = sql;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                // Statement.execute*(sql) получает текст аргументом, PreparedStatement - при подготовке
+                String executedSql = args != null && args.length > 0 && args[0] instanceof String s ? s : sql;
+                return execute(method, args, executedSql);
+            }
+            if (name.equals("getResultSet")) {
+                return wrap((ResultSet) InstrumentedDataSource.invoke(target, method, args), lastQuery);
+            }
+            if (name.equals("getConnection")) {
+                return connection.proxy;
+            }
+            return InstrumentedDataSource.invoke(target, method, args);
+        }
+
+        // Для выборки с курсором время покрывает выполнение и первую порцию строк
+        private Object execute(Method method, Object[] args, String executedSql) throws Throwable {
+            SqlMetrics.Query query = metrics.query(executedSql);
+            lastQuery = query;
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = InstrumentedDataSource.invoke(target, method, args);
+                failed = false;
+                return result instanceof ResultSet resultSet ? wrap(resultSet, query) : result;
+            } finally {
+                record(query, System.nanoTime() - start, failed, connection.operationName, executedSql);
+            }
+        }
+
+        private ResultSet wrap(ResultSet resultSet, SqlMetrics.Query query) {
+            if (resultSet == null || query == null) {
+                return resultSet;
+            }
+            return proxy(ResultSet.class, (proxy, method, args) -> {
+                Object result = InstrumentedDataSource.invoke(resultSet, method, args);
+                if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                    query.recordRow();
+                    connection.rows++;
+                }
+                return result;
+            });
+        }
+    }
+}
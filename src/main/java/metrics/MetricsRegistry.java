@@ -0,0 +1,100 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+// Все метрики приложения и их выдача в текстовом формате Prometheus
+public class MetricsRegistry {
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    // Границы корзин гистограмм: задержка в микросекундах, размер ответа в байтах
+    private static final long[] LATENCY_BOUNDS_MICROS = {
+            1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000,
+            500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000};
+    private static final long[] SIZE_BOUNDS_BYTES = {
+            128, 512, 1_024, 4_096, 16_384, 65_536, 262_144, 1_048_576, 16_777_216};
+
+    private final Map<String, ServletMetrics> servlets = new ConcurrentSkipListMap<>();
+    private final List<MetricsSource> sources = new CopyOnWriteArrayList<>();
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public ServletMetrics servlet(String name) {
+        return servlets.computeIfAbsent(name, ServletMetrics::new);
+    }
+
+    public void register(MetricsSource source) {
+        sources.add(source);
+    }
+
+    // Семейство метрик выводится целиком: TYPE один раз, затем строки всех сервлетов
+    public void writePrometheus(Writer out) throws IOException {
+        PrometheusWriter writer = new PrometheusWriter(out);
+
+        writer.type("http_server_requests_seconds", "histogram", "Request latency by servlet and method");
+        for (ServletMetrics metrics : servlets.values()) {
+            for (int m = 0; m < ServletMetrics.METHODS.length; m++) {
+                ServletMetrics.Endpoint endpoint = metrics.getEndpoint(m);
+                if (endpoint != null) {
+                    writer.histogram("http_server_requests_seconds", labels(metrics, m),
+                            endpoint.latencyMicros.snapshot(LATENCY_BOUNDS_MICROS), LATENCY_BOUNDS_MICROS, 1e-6);
+                }
+            }
+        }
+
+        writer.type("http_server_requests_total", "counter", "Requests by servlet, method and status");
+        for (ServletMetrics metrics : servlets.values()) {
+            for (int m = 0; m < ServletMetrics.METHODS.length; m++) {
+                ServletMetrics.Endpoint endpoint = metrics.getEndpoint(m);
+                if (endpoint == null) {
+                    continue;
+                }
+                for (int status = 0; status < endpoint.statuses.length(); status++) {
+                    LongAdder counter = endpoint.statuses.get(status);
+                    if (counter != null) {
+                        writer.sample("http_server_requests_total",
+                                labels(metrics, m) + ",status=\"" + status + "\"", counter.sum());
+                    }
+                }
+            }
+        }
+
+        writer.type("http_server_response_size_bytes", "histogram", "Response body size by servlet and method");
+        for (ServletMetrics metrics : servlets.values()) {
+            for (int m = 0; m < ServletMetrics.METHODS.length; m++) {
+                ServletMetrics.Endpoint endpoint = metrics.getEndpoint(m);
+                if (endpoint != null) {
+                    writer.histogram("http_server_response_size_bytes", labels(metrics, m),
+                            endpoint.responseBytes.snapshot(SIZE_BOUNDS_BYTES), SIZE_BOUNDS_BYTES, 1);
+                }
+            }
+        }
+
+        writer.type("library_errors_total", "counter", "Handled errors by servlet and exception type");
+        for (ServletMetrics metrics : servlets.values()) {
+            for (Map.Entry<Class<?>, LongAdder> error : metrics.getErrors().entrySet()) {
+                writer.sample("library_errors_total",
+                        "servlet=\"" + PrometheusWriter.escape(metrics.getServlet())
+                                + "\",type=\"" + error.getKey().getSimpleName() + "\"",
+                        error.getValue().sum());
+            }
+        }
+
+        for (MetricsSource source : sources) {
+            source.writeTo(writer);
+        }
+        out.flush();
+    }
+
+    private static String labels(ServletMetrics metrics, int methodIndex) {
+        return "servlet=\"" + PrometheusWriter.escape(metrics.getServlet())
+                + "\",method=\"" + ServletMetrics.METHODS[methodIndex] + "\"";
+    }
+}
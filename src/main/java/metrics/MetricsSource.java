@@ -0,0 +1,8 @@
+package metrics;
+
+import java.io.IOException;
+
+// Дополнительный источник метрик, который выводится вместе с метриками сервлетов
+public interface MetricsSource {
+    void writeTo(PrometheusWriter writer) throws IOException;
+}
@@ -0,0 +1,51 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Текстовый формат Prometheus 0.0.4
+public class PrometheusWriter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Writer out;
+
+    public PrometheusWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void type(String name, String type, String help) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    public void sample(String name, String labels, double value) throws IOException {
+        out.write(name);
+        if (labels != null && !labels.isEmpty()) {
+            out.write("{" + labels + "}");
+        }
+        out.write(" " + format(value) + "\n");
+    }
+
+    // scale переводит значения гистограммы в единицы метрики (например, микросекунды в секунды)
+    public void histogram(String name, String labels, Distribution.Snapshot snapshot,
+                          long[] bounds, double scale) throws IOException {
+        long[] counts = snapshot.getCumulativeCounts();
+        for (int i = 0; i < bounds.length; i++) {
+            sample(name + "_bucket", labels + ",le=\"" + format(bounds[i] * scale) + "\"", counts[i]);
+        }
+        sample(name + "_bucket", labels + ",le=\"+Inf\"", snapshot.getCount());
+        sample(name + "_sum", labels, snapshot.getSum() * scale);
+        sample(name + "_count", labels, snapshot.getCount());
+    }
+
+    public static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,88 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Метрики одного сервлета. Объекты для метода и кода ответа создаются один раз при первом
+// обращении, дальше запись обходится без выделения памяти и блокировок
+public class ServletMetrics {
+    static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "OTHER"};
+    private static final int MAX_STATUS = 600;
+    private static final long MAX_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final long MAX_RESPONSE_BYTES = 1L << 40;
+
+    private final String servlet;
+    private final AtomicReferenceArray<Endpoint> endpoints = new AtomicReferenceArray<>(METHODS.length);
+    private final Map<Class<?>, LongAdder> errors = new ConcurrentHashMap<>();
+
+    ServletMetrics(String servlet) {
+        this.servlet = servlet;
+    }
+
+    public void recordRequest(String method, int status, long durationNanos, long responseBytes) {
+        Endpoint endpoint = endpoint(methodIndex(method));
+        endpoint.latencyMicros.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+        endpoint.responseBytes.record(responseBytes);
+        endpoint.status(status).increment();
+    }
+
+    public void recordError(Class<?> type) {
+        errors.computeIfAbsent(type, key -> new LongAdder()).increment();
+    }
+
+    public String getServlet() {
+        return servlet;
+    }
+
+    Endpoint getEndpoint(int methodIndex) {
+        return endpoints.get(methodIndex);
+    }
+
+    Map<Class<?>, LongAdder> getErrors() {
+        return errors;
+    }
+
+    private Endpoint endpoint(int methodIndex) {
+        Endpoint endpoint = endpoints.get(methodIndex);
+        if (endpoint == null) {
+            endpoints.compareAndSet(methodIndex, null, new Endpoint());
+            endpoint = endpoints.get(methodIndex);
+        }
+        return endpoint;
+    }
+
+    private static int methodIndex(String method) {
+        if (method == null) {
+            return METHODS.length - 1;
+        }
+        return switch (method) {
+            case "GET" -> 0;
+            case "POST" -> 1;
+            case "PUT" -> 2;
+            case "DELETE" -> 3;
+            case "HEAD" -> 4;
+            case "OPTIONS" -> 5;
+            default -> METHODS.length - 1;
+        };
+    }
+
+    static final class Endpoint {
+        final Distribution latencyMicros = new Distribution(MAX_LATENCY_MICROS);
+        final Distribution responseBytes = new Distribution(MAX_RESPONSE_BYTES);
+        final AtomicReferenceArray<LongAdder> statuses = new AtomicReferenceArray<>(MAX_STATUS);
+
+        // Код вне диапазона HTTP (например, 0 у незавершенного ответа) учитывается как 0
+        private LongAdder status(int status) {
+            int index = status > 0 && status < MAX_STATUS ? status : 0;
+            LongAdder counter = statuses.get(index);
+            if (counter == null) {
+                statuses.compareAndSet(index, null, new LongAdder());
+                counter = statuses.get(index);
+            }
+            return counter;
+        }
+    }
+}
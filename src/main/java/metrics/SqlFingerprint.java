@@ -0,0 +1,48 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// Нормализованный текст запроса: литералы заменены на ?, списки IN свернуты, пробелы схлопнуты.
+// Запросы, отличающиеся только значениями, попадают в одну метрику
+public final class SqlFingerprint {
+    private static final int MAX_CACHED = 1000;
+
+    private static final Pattern COMMENTS = Pattern.compile("--[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern STRINGS = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBERS = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern POSITIONAL = Pattern.compile("\\$\\d+");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Текстов запросов в приложении конечное число, поэтому результат кэшируется
+    private static final Map<String, String> CACHE = new ConcurrentHashMap<>();
+
+    public static String of(String sql) {
+        if (sql == null) {
+            return "unknown";
+        }
+        String cached = CACHE.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String fingerprint = normalize(sql);
+        if (CACHE.size() < MAX_CACHED) {
+            CACHE.put(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    static String normalize(String sql) {
+        String result = COMMENTS.matcher(sql).replaceAll(" ");
+        result = STRINGS.matcher(result).replaceAll("?");
+        result = POSITIONAL.matcher(result).replaceAll("?");
+        result = NUMBERS.matcher(result).replaceAll("?");
+        result = IN_LIST.matcher(result).replaceAll("IN (?)");
+        return WHITESPACE.matcher(result).replaceAll(" ").trim();
+    }
+
+    private SqlFingerprint() {
+    }
+}
@@ -0,0 +1,116 @@
+package metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Метрики работы с базой: время и строки по отпечатку запроса, ожидание и удержание
+// соединения по методу репозитория
+public class SqlMetrics implements MetricsSource {
+    // Защита от неограниченного роста: лишние отпечатки учитываются вместе
+    private static final int MAX_QUERIES = 500;
+    private static final String OVERFLOW = "other";
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private static final long[] QUERY_BOUNDS_MICROS = {
+            500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000,
+            250_000, 500_000, 1_000_000, 2_500_000, 10_000_000};
+    // Ожидание свободного соединения обычно меньше миллисекунды
+    private static final long[] WAIT_BOUNDS_MICROS = {
+            50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 50_000,
+            250_000, 1_000_000, 5_000_000, 30_000_000};
+
+    private final Map<String, Query> queries = new ConcurrentSkipListMap<>();
+    private final Map<String, Operation> operations = new ConcurrentSkipListMap<>();
+
+    public Query query(String sql) {
+        String fingerprint = SqlFingerprint.of(sql);
+        Query query = queries.get(fingerprint);
+        if (query != null) {
+            return query;
+        }
+        return queries.computeIfAbsent(queries.size() < MAX_QUERIES ? fingerprint : OVERFLOW, key -> new Query());
+    }
+
+    public Operation operation(String name) {
+        return operations.computeIfAbsent(name, key -> new Operation());
+    }
+
+    @Override
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        writer.type("db_query_seconds", "histogram", "Statement execution time by SQL fingerprint");
+        for (Map.Entry<String, Query> entry : queries.entrySet()) {
+            writer.histogram("db_query_seconds", queryLabel(entry.getKey()),
+                    entry.getValue().latencyMicros.snapshot(QUERY_BOUNDS_MICROS), QUERY_BOUNDS_MICROS, 1e-6);
+        }
+        writer.type("db_query_rows_total", "counter", "Rows read from result sets by SQL fingerprint");
+        for (Map.Entry<String, Query> entry : queries.entrySet()) {
+            writer.sample("db_query_rows_total", queryLabel(entry.getKey()), entry.getValue().rows.sum());
+        }
+        writer.type("db_query_errors_total", "counter", "Failed statements by SQL fingerprint");
+        for (Map.Entry<String, Query> entry : queries.entrySet()) {
+            writer.sample("db_query_errors_total", queryLabel(entry.getKey()), entry.getValue().errors.sum());
+        }
+
+        writer.type("db_connection_wait_seconds", "histogram", "Time spent waiting for a pooled connection");
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            writer.histogram("db_connection_wait_seconds", operationLabel(entry.getKey()),
+                    entry.getValue().waitMicros.snapshot(WAIT_BOUNDS_MICROS), WAIT_BOUNDS_MICROS, 1e-6);
+        }
+        writer.type("db_connection_hold_seconds", "histogram", "Time a connection is held by a repository method");
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            writer.histogram("db_connection_hold_seconds", operationLabel(entry.getKey()),
+                    entry.getValue().holdMicros.snapshot(QUERY_BOUNDS_MICROS), QUERY_BOUNDS_MICROS, 1e-6);
+        }
+        writer.type("db_operation_rows_total", "counter", "Rows read from result sets by repository method");
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            writer.sample("db_operation_rows_total", operationLabel(entry.getKey()), entry.getValue().rows.sum());
+        }
+    }
+
+    private static String queryLabel(String fingerprint) {
+        return "query=\"" + PrometheusWriter.escape(fingerprint) + "\"";
+    }
+
+    private static String operationLabel(String operation) {
+        return "operation=\"" + PrometheusWriter.escape(operation) + "\"";
+    }
+
+    public static final class Query {
+        private final Distribution latencyMicros = new Distribution(MAX_MICROS);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        void recordExecution(long durationNanos, boolean failed) {
+            latencyMicros.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        void recordRow() {
+            rows.increment();
+        }
+
+        void recordRows(long count) {
+            rows.add(count);
+        }
+    }
+
+    public static final class Operation {
+        private final Distribution waitMicros = new Distribution(MAX_MICROS);
+        private final Distribution holdMicros = new Distribution(MAX_MICROS);
+        private final LongAdder rows = new LongAdder();
+
+        void recordWait(long durationNanos) {
+            waitMicros.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+        }
+
+        void recordHold(long durationNanos, long rowCount) {
+            holdMicros.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+            rows.add(rowCount);
+        }
+    }
+}
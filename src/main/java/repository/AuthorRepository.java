@@ -1,11 +1,17 @@
 package repository;
 
+import config.ReplicaRouter;
+import dto.CollectionVersion;
 import entity.Author;
 import entity.Book;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.*;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class AuthorRepository extends BaseRepository {
     public AuthorRepository() {
@@ -16,14 +22,20 @@ public class AuthorRepository extends BaseRepository {
         super(dataSource);
     }
 
+    AuthorRepository(ReplicaRouter router) {
+        super(router);
+    }
+
     public Optional<Author> findById(Long id) {
         String sql = """
-            SELECT a.id, a.first_name, a.last_name, a.biography
+            SELECT a.id, a.first_name, a.last_name, a.biography,
+                   GREATEST(a.updated_at,
+                            (SELECT max(b.updated_at) FROM books b WHERE b.author_id = a.id)) as updated_at
             FROM authors a
             WHERE a.id = ?
             """;
 
-        try (Connection conn = getConnection();
+        try (Connection conn = getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setLong(1, id);
@@ -35,6 +47,7 @@ public class AuthorRepository extends BaseRepository {
                 author.setFirstName(rs.getString("first_name"));
                 author.setLastName(rs.getString("last_name"));
                 author.setBiography(rs.getString("biography"));
+                author.setUpdatedAt(toInstant(rs.getTimestamp("updated_at")));
 
                 // Загружаем связанные книги
                 author.setBooks(findBooksByAuthorId(conn, id));
@@ -131,20 +144,22 @@ public class AuthorRepository extends BaseRepository {
     }
 
     public List<Author> findAll() {
-        String sql = "SELECT id, first_name, last_name, biography FROM authors";
+        return findAll(FieldSet.ALL);
+    }
 
-        try (Connection conn = getConnection();
+    public List<Author> findAll(FieldSet fields) {
+        String sql = "SELECT %s FROM authors a".formatted(authorColumns(fields));
+
+        try (Connection conn = getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             List<Author> authors = new ArrayList<>();
             while (rs.next()) {
-                Author author = new Author();
-                author.setId(rs.getLong("id"));
-                author.setFirstName(rs.getString("first_name"));
-                author.setLastName(rs.getString("last_name"));
-                author.setBiography(rs.getString("biography"));
-                authors.add(author);
+                authors.add(mapAuthor(rs, fields));
+            }
+            if (fields.requests("books")) {
+                attachBooks(conn, authors);
             }
 
             return authors;
@@ -153,6 +168,201 @@ public class AuthorRepository extends BaseRepository {
         }
     }
 
+    public void streamAll(Consumer<Author> action) {
+        streamAll(FieldSet.ALL, action);
+    }
+
+    // Книги автора присоединяются к его строкам, поэтому автор готов, как только сменился id
+    public void streamAll(FieldSet fields, Consumer<Author> action) {
+        boolean withBooks = fields.requests("books");
+        String sql = """
+            SELECT %s%s
+            FROM authors a%s
+            ORDER BY a.id
+            """.formatted(authorColumns(fields),
+                withBooks ? ", b.id as book_id, b.title, b.isbn, b.publication_year" : "",
+                withBooks ? "\nLEFT JOIN books b ON b.author_id = a.id" : "");
+
+        try (Connection conn = getReadConnection()) {
+            // Курсор на стороне сервера работает только внутри транзакции
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+                ResultSet rs = stmt.executeQuery();
+
+                Author current = null;
+                while (rs.next()) {
+                    long authorId = rs.getLong("id");
+                    if (current == null || current.getId() != authorId) {
+                        if (current != null) {
+                            action.accept(current);
+                        }
+                        current = mapAuthor(rs, fields);
+                    }
+                    if (withBooks) {
+                        long bookId = rs.getLong("book_id");
+                        if (!rs.wasNull()) {
+                            current.addBook(mapBook(rs, bookId));
+                        }
+                    }
+                }
+                if (current != null) {
+                    action.accept(current);
+                }
+            } finally {
+                conn.rollback();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error streaming authors", e);
+        }
+    }
+
+    public void forEachName(BiConsumer<Long, String> action) {
+        try {
+            forEachIdAndText("SELECT id, concat_ws(' ', first_name, last_name) FROM authors", action);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error streaming author names", e);
+        }
+    }
+
+    public List<Author> findPage(Long afterId, int limit) {
+        return findPage(FieldSet.ALL, afterId, limit);
+    }
+
+    public List<Author> findPage(FieldSet fields, Long afterId, int limit) {
+        String sql = """
+            SELECT %s
+            FROM authors a
+            WHERE a.id > ?
+            ORDER BY a.id
+            LIMIT ?
+            """.formatted(authorColumns(fields));
+
+        try (Connection conn = getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, afterId != null ? afterId : 0L);
+            stmt.setInt(2, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            List<Author> authors = new ArrayList<>();
+            while (rs.next()) {
+                authors.add(mapAuthor(rs, fields));
+            }
+            if (fields.requests("books")) {
+                attachBooks(conn, authors);
+            }
+
+            return authors;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error finding authors page after id: " + afterId, e);
+        }
+    }
+
+    // Биография - TEXT и самый тяжелый столбец: без явного запроса она не читается
+    private static String authorColumns(FieldSet fields) {
+        StringBuilder columns = new StringBuilder("a.id");
+        if (fields.includes("firstName")) {
+            columns.append(", a.first_name");
+        }
+        if (fields.includes("lastName")) {
+            columns.append(", a.last_name");
+        }
+        if (fields.includes("biography")) {
+            columns.append(", a.biography");
+        }
+        return columns.toString();
+    }
+
+    private static Author mapAuthor(ResultSet rs, FieldSet fields) throws SQLException {
+        Author author = new Author();
+        author.setId(rs.getLong("id"));
+        if (fields.includes("firstName")) {
+            author.setFirstName(rs.getString("first_name"));
+        }
+        if (fields.includes("lastName")) {
+            author.setLastName(rs.getString("last_name"));
+        }
+        if (fields.includes("biography")) {
+            author.setBiography(rs.getString("biography"));
+        }
+        return author;
+    }
+
+    private static Book mapBook(ResultSet rs, long bookId) throws SQLException {
+        Book book = new Book();
+        book.setId(bookId);
+        book.setTitle(rs.getString("title"));
+        book.setIsbn(rs.getString("isbn"));
+        book.setPublicationYear(rs.getInt("publication_year"));
+        return book;
+    }
+
+    // В списках книги авторов встраиваются только по явному запросу: одним запросом на всю страницу
+    private void attachBooks(Connection conn, List<Author> authors) throws SQLException {
+        if (authors.isEmpty()) {
+            return;
+        }
+        String sql = """
+            SELECT b.author_id, b.id as book_id, b.title, b.isbn, b.publication_year
+            FROM books b
+            WHERE b.author_id = ANY(?)
+            """;
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            Map<Long, Author> byId = new HashMap<>();
+            for (Author author : authors) {
+                byId.put(author.getId(), author);
+            }
+            stmt.setArray(1, conn.createArrayOf("bigint", byId.keySet().toArray(new Long[0])));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                byId.get(rs.getLong("author_id")).addBook(mapBook(rs, rs.getLong("book_id")));
+            }
+        }
+    }
+
+    public CollectionVersion findVersion() {
+        try {
+            return findCollectionVersion("authors");
+        } catch (SQLException e) {
+            throw new RuntimeException("Error finding authors version", e);
+        }
+    }
+
+    public long exportCsv(OutputStream out, Long afterId) throws IOException {
+        String sql = """
+            SELECT id, first_name, last_name, biography
+            FROM authors
+            WHERE %s
+            ORDER BY id
+            """.formatted(afterIdCondition("id", afterId));
+
+        try {
+            return copyCsvOut(sql, afterId == null, out);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error exporting authors", e);
+        }
+    }
+
+    // Книги автора не встраиваются: связи выгружаются вместе с книгами
+    public long exportNdjson(OutputStream out, Long afterId) throws IOException {
+        String sql = """
+            SELECT json_build_object('id', id, 'firstName', first_name,
+                                     'lastName', last_name, 'biography', biography)
+            FROM authors
+            WHERE %s
+            ORDER BY id
+            """.formatted(afterIdCondition("id", afterId));
+
+        try {
+            return copyJsonLinesOut(sql, out);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error exporting authors", e);
+        }
+    }
+
     public void deleteById(Long id) {
         String sql = "DELETE FROM authors WHERE id = ?";
 
@@ -1,22 +1,197 @@
 package repository;
 
 import config.DatabaseConfig;
+import dto.CollectionVersion;
+import config.ReplicaRouter;
+import metrics.InstrumentedDataSource;
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Array;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import javax.sql.DataSource;
 
 public abstract class BaseRepository {
-    protected final DataSource dataSource;
+    // Размер порции строк, которую курсор на стороне сервера отдает за один сетевой обмен
+    protected static final int STREAM_FETCH_SIZE = 500;
+
+    private static final StackWalker STACK_WALKER =
+            StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private final ReplicaRouter router;
 
     protected BaseRepository() {
-        this.dataSource = DatabaseConfig.getDataSource();
+        this.router = DatabaseConfig.getRouter();
     }
     protected BaseRepository(DataSource dataSource) {
-        this.dataSource = dataSource;
+        this(new ReplicaRouter(dataSource));
+    }
+
+    protected BaseRepository(ReplicaRouter router) {
+        this.router = router;
     }
 
+    // Соединение основного сервера: для записи и для чтения внутри транзакции записи.
+    // Внутри TransactionTemplate.execute - общее соединение единицы работы
     protected Connection getConnection() throws SQLException {
+        Connection joined = TransactionTemplate.joinCurrent(this::openPrimary);
+        return joined != null ? joined : openPrimary();
+    }
+
+    // Соединение для чтения: реплика, если она настроена и успевает за основным сервером.
+    // В единице работы чтение идет в ее транзакции и видит еще не зафиксированные изменения
+    protected Connection getReadConnection() throws SQLException {
+        Connection joined = TransactionTemplate.joinCurrent(this::openPrimary);
+        if (joined != null) {
+            return joined;
+        }
+        DataSource source = router.forRead();
+        try {
+            return connect(source);
+        } catch (SQLException e) {
+            return connect(router.fallbackFrom(source, e));
+        }
+    }
+
+    private Connection openPrimary() throws SQLException {
+        return router.trackWrite(connect(router.forWrite()));
+    }
+
+    private static Connection connect(DataSource dataSource) throws SQLException {
+        if (dataSource instanceof InstrumentedDataSource instrumented) {
+            return instrumented.getConnection(callerOperation());
+        }
         return dataSource.getConnection();
     }
 
+    // Имя вызвавшего метода репозитория, например BookRepository.findAll. Обход стека стоит
+    // единицы микросекунд и делается один раз на соединение, а не на запрос
+    private static String callerOperation() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getDeclaringClass() != BaseRepository.class
+                        && BaseRepository.class.isAssignableFrom(frame.getDeclaringClass()))
+                .findFirst()
+                .map(frame -> frame.getDeclaringClass().getSimpleName() + "." + methodName(frame.getMethodName()))
+                .orElse(InstrumentedDataSource.UNKNOWN_OPERATION));
+    }
+
+    // Для лямбды lambda$streamAll$0 берется имя объемлющего метода
+    private static String methodName(String name) {
+        if (name.startsWith("lambda$")) {
+            int end = name.indexOf('$', "lambda$".length());
+            return end > 0 ? name.substring("lambda$".length(), end) : name;
+        }
+        return name;
+    }
+
+    protected static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    // Версия коллекции из collection_versions (v5_collection_versions.sql): сумма шардов версий
+    // таблиц, от которых зависит список, читается по первичному ключу. Каждая команда, изменившая
+    // строки этих таблиц, увеличивает сумму, поэтому она меняется при любой вставке, изменении
+    // или удалении
+    protected CollectionVersion findCollectionVersion(String... tables) throws SQLException {
+        String sql = "SELECT sum(version) AS version, max(updated_at) AS updated_at"
+                + " FROM collection_versions WHERE table_name = ANY(?)";
+        try (Connection conn = getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("varchar", tables));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return new CollectionVersion(rs.getLong("version"), toInstant(rs.getTimestamp("updated_at")));
+            }
+        }
+    }
+
+    // Потоковое чтение пар (id, текст) курсором на стороне сервера, для построения индексов в памяти
+    protected void forEachIdAndText(String query, BiConsumer<Long, String> action) throws SQLException {
+        try (Connection conn = getReadConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    action.accept(rs.getLong(1), rs.getString(2));
+                }
+            } finally {
+                conn.rollback();
+            }
+        }
+    }
+
+    // COPY (SELECT ...) TO STDOUT пишет строки прямо в поток, без сущностей и DTO,
+    // поэтому память не зависит от размера выгрузки
+    protected long copyCsvOut(String query, boolean header, OutputStream out) throws SQLException, IOException {
+        return copyOut("COPY (" + query + ") TO STDOUT (FORMAT csv" + (header ? ", HEADER" : "") + ")", out);
+    }
+
+    // Запрос возвращает одну колонку json. Кавычка и разделитель CSV заменены управляющими
+    // символами, которых в сериализованном JSON не бывает, поэтому строки выходят без экранирования
+    protected long copyJsonLinesOut(String query, OutputStream out) throws SQLException, IOException {
+        return copyOut("COPY (" + query + ") TO STDOUT (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')", out);
+    }
+
+    private long copyOut(String copySql, OutputStream out) throws SQLException, IOException {
+        try (Connection conn = getReadConnection()) {
+            return timeCopy(conn, copySql, () -> conn.unwrap(PGConnection.class).getCopyAPI().copyOut(copySql, out));
+        }
+    }
+
+    // COPY идет через CopyManager мимо прокси запросов, поэтому в метрики он попадает отдельно
+    protected static <E extends Exception> long timeCopy(Connection conn, String copySql,
+                                                         InstrumentedDataSource.CopyCall<E> call) throws SQLException, E {
+        if (conn.isWrapperFor(InstrumentedDataSource.TimedConnection.class)) {
+            return conn.unwrap(InstrumentedDataSource.TimedConnection.class).timeCopy(copySql, call);
+        }
+        return call.run();
+    }
+
+    // COPY не принимает параметры, поэтому граница подставляется в текст запроса: это число, а не строка
+    protected static String afterIdCondition(String column, Long afterId) {
+        return afterId != null ? column + " > " + afterId : "TRUE";
+    }
+
+    // Приводит связи владельца в таблице many-to-many к заданному набору. Разница считается
+    // в базе без предварительного чтения текущих связей: удаляются связи вне набора, вставляются
+    // только недостающие пары. Оба запроса сводятся к анти-соединению набора со связями владельца,
+    // а пишутся только изменившиеся строки. ON CONFLICT страхует от параллельной вставки той же пары
+    // и проверяется лишь для новых строк
+    protected void syncLinks(Connection conn, String table, String ownerColumn, String linkedColumn,
+                             Long ownerId, Set<Long> targetIds) throws SQLException {
+        Array linkedIds = conn.createArrayOf("bigint", targetIds.toArray());
+        String deleteSql = "DELETE FROM " + table + " existing"
+                + " WHERE existing." + ownerColumn + " = ?"
+                + " AND NOT EXISTS (SELECT 1 FROM unnest(?::bigint[]) AS target(id)"
+                + " WHERE target.id = existing." + linkedColumn + ")";
+        try (PreparedStatement stmt = conn.prepareStatement(deleteSql)) {
+            stmt.setLong(1, ownerId);
+            stmt.setArray(2, linkedIds);
+            stmt.executeUpdate();
+        }
+
+        if (targetIds.isEmpty()) {
+            return;
+        }
+        String insertSql = "INSERT INTO " + table + " (" + ownerColumn + ", " + linkedColumn + ")"
+                + " SELECT ?, target.id FROM unnest(?::bigint[]) AS target(id)"
+                + " WHERE NOT EXISTS (SELECT 1 FROM " + table + " existing"
+                + " WHERE existing." + ownerColumn + " = ? AND existing." + linkedColumn + " = target.id)"
+                + " ON CONFLICT DO NOTHING";
+        try (PreparedStatement stmt = conn.prepareStatement(insertSql)) {
+            stmt.setLong(1, ownerId);
+            stmt.setArray(2, linkedIds);
+            stmt.setLong(3, ownerId);
+            stmt.executeUpdate();
+        }
+    }
 }
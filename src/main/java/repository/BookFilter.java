@@ -0,0 +1,72 @@
+package repository;
+
+import exception.ValidationException;
+
+import java.util.Locale;
+
+// Условия выборки книг для GET /api/books; null означает отсутствие условия
+public class BookFilter {
+    // Порядок выдачи: у каждого варианта свой ключ курсора и свой индекс
+    public enum Sort {
+        ID("id"),
+        TITLE("title"),
+        YEAR("year"),
+        YEAR_DESC("-year");
+
+        private final String parameter;
+
+        Sort(String parameter) {
+            this.parameter = parameter;
+        }
+
+        public String getParameter() {
+            return parameter;
+        }
+
+        public static Sort fromParameter(String value) {
+            if (value == null || value.isEmpty()) {
+                return ID;
+            }
+            for (Sort sort : values()) {
+                if (sort.parameter.equals(value.toLowerCase(Locale.ROOT))) {
+                    return sort;
+                }
+            }
+            throw new ValidationException("sort", "Sort must be one of id, title, year, -year but was: '" + value + "'");
+        }
+    }
+
+    private final Long genreId;
+    private final Long authorId;
+    private final Integer yearFrom;
+    private final Integer yearTo;
+    private final Sort sort;
+
+    public BookFilter(Long genreId, Long authorId, Integer yearFrom, Integer yearTo, Sort sort) {
+        this.genreId = genreId;
+        this.authorId = authorId;
+        this.yearFrom = yearFrom;
+        this.yearTo = yearTo;
+        this.sort = sort != null ? sort : Sort.ID;
+    }
+
+    public Long getGenreId() {
+        return genreId;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public Integer getYearFrom() {
+        return yearFrom;
+    }
+
+    public Integer getYearTo() {
+        return yearTo;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+}
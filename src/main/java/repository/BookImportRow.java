@@ -0,0 +1,22 @@
+package repository;
+
+import entity.Book;
+
+// Строка пакетного импорта: номер нужен, чтобы сопоставить ошибку с исходной строкой файла
+public class BookImportRow {
+    private final long rowNumber;
+    private final Book book;
+
+    public BookImportRow(long rowNumber, Book book) {
+        this.rowNumber = rowNumber;
+        this.book = book;
+    }
+
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+}
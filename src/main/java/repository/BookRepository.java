@@ -1,16 +1,35 @@
 package repository;
 
+import config.ReplicaRouter;
+import dto.BulkImportErrorDto;
+import dto.BulkImportResultDto;
+import dto.CollectionVersion;
 import entity.Author;
 import entity.Book;
 import entity.Genre;
 import exception.DatabaseException;
 import exception.EntityNotFoundException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.PGCopyOutputStream;
 
 import javax.sql.DataSource;
+import java.io.OutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class BookRepository extends BaseRepository {
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // Ключ сортировки по году: то же выражение, что в индексе idx_books_year_id
+    private static final String YEAR_KEY = "COALESCE(b.publication_year, 0)";
+
     public BookRepository() {
         super();
     }
@@ -19,16 +38,25 @@ public class BookRepository extends BaseRepository {
         super(dataSource);
     }
 
+    BookRepository(ReplicaRouter router) {
+        super(router);
+    }
+
     public Optional<Book> findById(Long id) {
         String sql = """
             SELECT b.id, b.title, b.isbn, b.publication_year, b.author_id,
-                   a.first_name, a.last_name, a.biography
+                   a.first_name, a.last_name, a.biography,
+                   GREATEST(b.updated_at, a.updated_at,
+                            (SELECT max(g.updated_at)
+                             FROM genres g
+                             JOIN books_genres bg ON g.id = bg.genre_id
+                             WHERE bg.book_id = b.id)) as updated_at
             FROM books b
             JOIN authors a ON b.author_id = a.id
             WHERE b.id = ?
             """;
 
-        try (Connection conn = getConnection();
+        try (Connection conn = getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setLong(1, id);
@@ -40,6 +68,7 @@ public class BookRepository extends BaseRepository {
                 book.setTitle(rs.getString("title"));
                 book.setIsbn(rs.getString("isbn"));
                 book.setPublicationYear(rs.getInt("publication_year"));
+                book.setUpdatedAt(toInstant(rs.getTimestamp("updated_at")));
 
                 Author author = new Author();
                 author.setId(rs.getLong("author_id"));
@@ -153,59 +182,35 @@ public class BookRepository extends BaseRepository {
     }
 
     private void updateBookGenres(Connection conn, Book book) throws SQLException {
-        // Удаляем старые связи
-        String deleteSql = "DELETE FROM books_genres WHERE book_id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(deleteSql)) {
-            stmt.setLong(1, book.getId());
-            stmt.executeUpdate();
-        }
-
-        // Добавляем новые связи
-        String insertSql = "INSERT INTO books_genres (book_id, genre_id) VALUES (?, ?)";
-        try (PreparedStatement stmt = conn.prepareStatement(insertSql)) {
-            for (Genre genre : book.getGenres()) {
-                stmt.setLong(1, book.getId());
-                stmt.setLong(2, genre.getId());
-                stmt.executeUpdate();
-            }
+        Set<Long> genreIds = new HashSet<>();
+        for (Genre genre : book.getGenres()) {
+            genreIds.add(genre.getId());
         }
+        syncLinks(conn, "books_genres", "book_id", "genre_id", book.getId(), genreIds);
     }
     public List<Book> findAll() throws DatabaseException {
-        String sql = """
-            SELECT DISTINCT b.id, b.title, b.isbn, b.publication_year,
-                   a.id as author_id, a.first_name, a.last_name
-            FROM books b
-            JOIN authors a ON b.author_id = a.id
-            """;
+        return findAll(FieldSet.ALL);
+    }
 
-        try (Connection conn = getConnection();
+    // Книги, авторы и жанры читаются одним запросом, без отдельного запроса на каждую книгу
+    public List<Book> findAll(FieldSet fields) throws DatabaseException {
+        try (Connection conn = getReadConnection();
              Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             ResultSet rs = stmt.executeQuery(listSql(fields))) {
 
-            Map<Long, Book> books = new HashMap<>();
+            Map<Long, Book> books = new LinkedHashMap<>();
 
             while (rs.next()) {
                 Long bookId = rs.getLong("id");
                 Book book = books.get(bookId);
 
                 if (book == null) {
-                    book = new Book();
-                    book.setId(bookId);
-                    book.setTitle(rs.getString("title"));
-                    book.setIsbn(rs.getString("isbn"));
-                    book.setPublicationYear(rs.getInt("publication_year"));
-
-                    Author author = new Author();
-                    author.setId(rs.getLong("author_id"));
-                    author.setFirstName(rs.getString("first_name"));
-                    author.setLastName(rs.getString("last_name"));
-                    book.setAuthor(author);
-
+                    book = mapBook(rs, fields);
                     books.put(bookId, book);
                 }
-
-                // Загружаем жанры для каждой книги
-                book.setGenres(findGenresByBookId(conn, bookId));
+                if (fields.includes("genres")) {
+                    addJoinedGenre(rs, book);
+                }
             }
 
             return new ArrayList<>(books.values());
@@ -214,6 +219,520 @@ public class BookRepository extends BaseRepository {
         }
     }
 
+    public void streamAll(Consumer<Book> action) throws DatabaseException {
+        streamAll(FieldSet.ALL, action);
+    }
+
+    public void streamAll(FieldSet fields, Consumer<Book> action) throws DatabaseException {
+        try (Connection conn = getReadConnection()) {
+            // Курсор на стороне сервера работает только внутри транзакции
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(listSql(fields))) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+                ResultSet rs = stmt.executeQuery();
+
+                // Строки отсортированы по книге, поэтому книга готова, как только сменился id
+                Book current = null;
+                while (rs.next()) {
+                    long bookId = rs.getLong("id");
+                    if (current == null || current.getId() != bookId) {
+                        if (current != null) {
+                            action.accept(current);
+                        }
+                        current = mapBook(rs, fields);
+                    }
+                    if (fields.includes("genres")) {
+                        addJoinedGenre(rs, current);
+                    }
+                }
+                if (current != null) {
+                    action.accept(current);
+                }
+            } finally {
+                conn.rollback();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Error streaming books", e);
+        }
+    }
+
+    // Жанры присоединяются к строкам книги, только если они запрошены
+    private static String listSql(FieldSet fields) {
+        boolean withGenres = fields.includes("genres");
+        return """
+            SELECT %s%s
+            FROM books b%s%s
+            ORDER BY b.id
+            """.formatted(
+                bookColumns(fields),
+                withGenres ? ", g.id as genre_id, g.name as genre_name, g.description as genre_description" : "",
+                authorJoin(fields),
+                withGenres ? "\nLEFT JOIN books_genres bg ON bg.book_id = b.id"
+                        + "\nLEFT JOIN genres g ON g.id = bg.genre_id" : "");
+    }
+
+    private static void addJoinedGenre(ResultSet rs, Book book) throws SQLException {
+        long genreId = rs.getLong("genre_id");
+        if (!rs.wasNull()) {
+            Genre genre = new Genre();
+            genre.setId(genreId);
+            genre.setName(rs.getString("genre_name"));
+            genre.setDescription(rs.getString("genre_description"));
+            book.addGenre(genre);
+        }
+    }
+
+    public void forEachTitle(BiConsumer<Long, String> action) throws DatabaseException {
+        try {
+            forEachIdAndText("SELECT id, title FROM books", action);
+        } catch (SQLException e) {
+            throw new DatabaseException("Error streaming book titles", e);
+        }
+    }
+
+    public List<Book> findPage(Long afterId, int limit) throws DatabaseException {
+        return findPage(new BookFilter(null, null, null, null, BookFilter.Sort.ID), FieldSet.ALL,
+                null, afterId, limit);
+    }
+
+    public List<Book> findPage(BookFilter filter, Object afterKey, Long afterId, int limit) throws DatabaseException {
+        return findPage(filter, FieldSet.ALL, afterKey, afterId, limit);
+    }
+
+    // Фильтры и сортировка собираются в параметризованный запрос, страницы идут по ключу
+    // (ключ сортировки, id). Год без значения сортируется как 0 - так же его читает mapBook
+    public List<Book> findPage(BookFilter filter, FieldSet fields, Object afterKey, Long afterId, int limit)
+            throws DatabaseException {
+        StringBuilder sql = new StringBuilder("""
+            SELECT %s
+            FROM books b%s
+            WHERE TRUE
+            """.formatted(bookColumns(fields), authorJoin(fields)));
+        List<Object> params = new ArrayList<>();
+
+        if (filter.getGenreId() != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM books_genres bg WHERE bg.book_id = b.id AND bg.genre_id = ?)");
+            params.add(filter.getGenreId());
+        }
+        if (filter.getAuthorId() != null) {
+            sql.append(" AND b.author_id = ?");
+            params.add(filter.getAuthorId());
+        }
+        if (filter.getYearFrom() != null || filter.getYearTo() != null) {
+            sql.append(" AND " + YEAR_KEY + " BETWEEN ? AND ?");
+            params.add(filter.getYearFrom() != null ? filter.getYearFrom() : 1);
+            params.add(filter.getYearTo() != null ? filter.getYearTo() : Integer.MAX_VALUE);
+        }
+
+        String keyColumn = switch (filter.getSort()) {
+            case ID -> null;
+            case TITLE -> "b.title";
+            case YEAR, YEAR_DESC -> YEAR_KEY;
+        };
+        String direction = filter.getSort() == BookFilter.Sort.YEAR_DESC ? "DESC" : "ASC";
+        if (afterId != null) {
+            if (keyColumn == null) {
+                sql.append(" AND b.id > ?");
+            } else {
+                // Сравнение строк (ключ, id) читается из составного индекса как диапазон
+                sql.append(" AND (").append(keyColumn).append(", b.id) ")
+                        .append(direction.equals("ASC") ? ">" : "<").append(" (?, ?)");
+                params.add(afterKey);
+            }
+            params.add(afterId);
+        }
+        sql.append(keyColumn == null
+                ? " ORDER BY b.id"
+                : " ORDER BY " + keyColumn + " " + direction + ", b.id " + direction);
+        sql.append(" LIMIT ?");
+        params.add(limit);
+
+        try (Connection conn = getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+
+            List<Book> books = new ArrayList<>();
+            while (rs.next()) {
+                books.add(mapBook(rs, fields));
+            }
+
+            // Жанры всей страницы загружаются одним запросом и только если они запрошены
+            if (fields.includes("genres")) {
+                Map<Long, Set<Genre>> genres = findGenresByBookIds(conn, books);
+                for (Book book : books) {
+                    book.setGenres(genres.getOrDefault(book.getId(), Collections.emptySet()));
+                }
+            }
+
+            return books;
+        } catch (SQLException e) {
+            throw new DatabaseException("Error finding books page after id: " + afterId, e);
+        }
+    }
+
+    // Кандидаты собираются из двух GIN-индексов (название книги и автор), ранг - сумма рангов.
+    // Страницы идут по ключу (rank DESC, id): afterRank и afterId - последняя строка предыдущей страницы
+    public List<BookSearchHit> search(String query, Float afterRank, Long afterId, int limit)
+            throws DatabaseException {
+        String sql = """
+            WITH query AS (SELECT websearch_to_tsquery('russian', ?) AS q),
+            ranked AS (
+                SELECT b.id, b.title, b.isbn, b.publication_year,
+                       ts_rank(b.search_vector, query.q) + ts_rank(a.search_vector, query.q) AS rank
+                FROM books b
+                JOIN authors a ON b.author_id = a.id
+                CROSS JOIN query
+                WHERE b.id IN (
+                    SELECT mb.id FROM books mb, query WHERE mb.search_vector @@ query.q
+                    UNION
+                    SELECT ab.id FROM authors ma JOIN books ab ON ab.author_id = ma.id, query
+                    WHERE ma.search_vector @@ query.q
+                )
+            )
+            SELECT id, title, isbn, publication_year, rank
+            FROM ranked
+            WHERE ?::real IS NULL OR rank < ?::real OR (rank = ?::real AND id > ?)
+            ORDER BY rank DESC, id
+            LIMIT ?
+            """;
+
+        try (Connection conn = getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, query);
+            stmt.setObject(2, afterRank, Types.REAL);
+            stmt.setObject(3, afterRank, Types.REAL);
+            stmt.setObject(4, afterRank, Types.REAL);
+            stmt.setLong(5, afterId != null ? afterId : 0L);
+            stmt.setInt(6, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            List<BookSearchHit> hits = new ArrayList<>();
+            while (rs.next()) {
+                Book book = new Book();
+                book.setId(rs.getLong("id"));
+                book.setTitle(rs.getString("title"));
+                book.setIsbn(rs.getString("isbn"));
+                book.setPublicationYear(rs.getInt("publication_year"));
+                hits.add(new BookSearchHit(book, rs.getFloat("rank")));
+            }
+            return hits;
+        } catch (SQLException e) {
+            throw new DatabaseException("Error searching books: " + query, e);
+        }
+    }
+
+    private Map<Long, Set<Genre>> findGenresByBookIds(Connection conn, List<Book> books) throws SQLException {
+        Map<Long, Set<Genre>> genresByBookId = new HashMap<>();
+        if (books.isEmpty()) {
+            return genresByBookId;
+        }
+
+        String sql = """
+            SELECT bg.book_id, g.id, g.name, g.description
+            FROM genres g
+            JOIN books_genres bg ON g.id = bg.genre_id
+            WHERE bg.book_id = ANY(?)
+            """;
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            Long[] bookIds = books.stream().map(Book::getId).toArray(Long[]::new);
+            stmt.setArray(1, conn.createArrayOf("bigint", bookIds));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Genre genre = new Genre();
+                genre.setId(rs.getLong("id"));
+                genre.setName(rs.getString("name"));
+                genre.setDescription(rs.getString("description"));
+                genresByBookId.computeIfAbsent(rs.getLong("book_id"), id -> new HashSet<>()).add(genre);
+            }
+            return genresByBookId;
+        }
+    }
+
+    // id выбирается всегда, остальные столбцы и соединение с авторами - по запрошенным полям
+    private static String bookColumns(FieldSet fields) {
+        StringBuilder columns = new StringBuilder("b.id");
+        if (fields.includes("title")) {
+            columns.append(", b.title");
+        }
+        if (fields.includes("isbn")) {
+            columns.append(", b.isbn");
+        }
+        if (fields.includes("publicationYear")) {
+            columns.append(", b.publication_year");
+        }
+        if (fields.includes("author")) {
+            columns.append(", a.id as author_id, a.first_name, a.last_name");
+        }
+        return columns.toString();
+    }
+
+    private static String authorJoin(FieldSet fields) {
+        return fields.includes("author") ? "\nJOIN authors a ON b.author_id = a.id" : "";
+    }
+
+    private static Book mapBook(ResultSet rs, FieldSet fields) throws SQLException {
+        Book book = new Book();
+        book.setId(rs.getLong("id"));
+        if (fields.includes("title")) {
+            book.setTitle(rs.getString("title"));
+        }
+        if (fields.includes("isbn")) {
+            book.setIsbn(rs.getString("isbn"));
+        }
+        if (fields.includes("publicationYear")) {
+            book.setPublicationYear(rs.getInt("publication_year"));
+        }
+        if (fields.includes("author")) {
+            Author author = new Author();
+            author.setId(rs.getLong("author_id"));
+            author.setFirstName(rs.getString("first_name"));
+            author.setLastName(rs.getString("last_name"));
+            book.setAuthor(author);
+        }
+        return book;
+    }
+
+    public CollectionVersion findVersion() throws DatabaseException {
+        // Книги встраивают авторов и жанры, поэтому учитываются изменения всех четырех таблиц
+        try {
+            return findCollectionVersion("books", "books_genres", "authors", "genres");
+        } catch (SQLException e) {
+            throw new DatabaseException("Error finding books version", e);
+        }
+    }
+
+    // Пакетная загрузка в одной транзакции: строки потоком уходят через COPY во временную
+    // таблицу, ошибочные находятся и отбрасываются одним запросом, остальные переносятся
+    // в books и books_genres двумя INSERT ... SELECT
+    public BulkImportResultDto importBooks(Iterator<BookImportRow> rows) throws DatabaseException {
+        String createSql = """
+            CREATE TEMP TABLE books_import (
+                row_num BIGINT NOT NULL,
+                title TEXT,
+                isbn TEXT,
+                publication_year INTEGER,
+                author_id BIGINT,
+                genre_ids BIGINT[],
+                book_id BIGINT DEFAULT nextval('books_id_seq')
+            ) ON COMMIT DROP
+            """;
+        String insertBooksSql = """
+            INSERT INTO books (id, title, isbn, publication_year, author_id)
+            SELECT book_id, title, isbn, publication_year, author_id
+            FROM books_import
+            ORDER BY row_num
+            """;
+        String insertLinksSql = """
+            INSERT INTO books_genres (book_id, genre_id)
+            SELECT DISTINCT s.book_id, g.genre_id
+            FROM books_import s
+            CROSS JOIN LATERAL unnest(s.genre_ids) AS g(genre_id)
+            """;
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(createSql);
+                long received = copyImportRows(conn, rows);
+                // У временных таблиц нет автоматической статистики
+                stmt.execute("ANALYZE books_import");
+                List<BulkImportErrorDto> errors = rejectInvalidImportRows(stmt);
+                long imported = stmt.executeUpdate(insertBooksSql);
+                if (imported > 0) {
+                    stmt.executeUpdate(insertLinksSql);
+                }
+
+                conn.commit();
+                return new BulkImportResultDto(received, imported, received - imported, errors);
+            } catch (SQLException | RuntimeException e) {
+                // Итератор читает тело запроса, поэтому может упасть посреди транзакции
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Error importing books", e);
+        }
+    }
+
+    private long copyImportRows(Connection conn, Iterator<BookImportRow> rows) throws SQLException {
+        String copySql = """
+            COPY books_import (row_num, title, isbn, publication_year, author_id, genre_ids)
+            FROM STDIN (FORMAT csv)
+            """;
+        return timeCopy(conn, copySql, () -> streamImportRows(conn, copySql, rows));
+    }
+
+    private long streamImportRows(Connection conn, String copySql, Iterator<BookImportRow> rows) throws SQLException {
+        CopyIn copyIn = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql);
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new PGCopyOutputStream(copyIn), StandardCharsets.UTF_8), COPY_BUFFER_SIZE);
+            StringBuilder line = new StringBuilder();
+            long count = 0;
+            while (rows.hasNext()) {
+                line.setLength(0);
+                appendImportRow(line, rows.next());
+                writer.write(line.toString());
+                count++;
+            }
+            // close() отправляет остаток буфера и завершает COPY
+            writer.close();
+            return count;
+        } catch (IOException e) {
+            throw new SQLException("Error streaming rows to COPY", e);
+        } finally {
+            // При ошибке недописанные строки не должны попасть в таблицу
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void appendImportRow(StringBuilder line, BookImportRow row) {
+        Book book = row.getBook();
+        line.append(row.getRowNumber()).append(',');
+        appendCsvText(line, book.getTitle());
+        line.append(',');
+        appendCsvText(line, book.getIsbn());
+        line.append(',');
+        if (book.getPublicationYear() != null) {
+            line.append(book.getPublicationYear());
+        }
+        line.append(',');
+        if (book.getAuthor() != null && book.getAuthor().getId() != null) {
+            line.append(book.getAuthor().getId());
+        }
+        line.append(",\"{");
+        boolean first = true;
+        for (Genre genre : book.getGenres()) {
+            if (!first) {
+                line.append(',');
+            }
+            line.append(genre.getId());
+            first = false;
+        }
+        line.append("}\"\n");
+    }
+
+    // В CSV-формате COPY пустое поле без кавычек - NULL, поэтому строки всегда берутся в кавычки
+    private static void appendCsvText(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    // Все проверки выполняются над временной таблицей целиком; найденные строки
+    // удаляются в том же запросе, а их ошибки возвращаются клиенту
+    private List<BulkImportErrorDto> rejectInvalidImportRows(Statement stmt) throws SQLException {
+        String sql = """
+            WITH errors AS (
+                SELECT s.row_num, 'author' AS field,
+                       'Author not found with identifier: ' || s.author_id AS message
+                FROM books_import s
+                WHERE NOT EXISTS (SELECT 1 FROM authors a WHERE a.id = s.author_id)
+                UNION ALL
+                SELECT s.row_num, 'genres',
+                       'Genre not found with identifier: ' || g.genre_id
+                FROM books_import s
+                CROSS JOIN LATERAL unnest(s.genre_ids) AS g(genre_id)
+                WHERE NOT EXISTS (SELECT 1 FROM genres gr WHERE gr.id = g.genre_id)
+                UNION ALL
+                SELECT s.row_num, 'isbn',
+                       'Book with isbn ''' || s.isbn || ''' already exists'
+                FROM books_import s
+                WHERE EXISTS (SELECT 1 FROM books b WHERE b.isbn = s.isbn)
+                UNION ALL
+                SELECT d.row_num, 'isbn',
+                       'Duplicate isbn ''' || d.isbn || ''', first seen in row ' || d.first_row
+                FROM (SELECT row_num, isbn,
+                             min(row_num) OVER (PARTITION BY isbn) AS first_row
+                      FROM books_import
+                      WHERE isbn IS NOT NULL) d
+                WHERE d.row_num > d.first_row
+            ), rejected AS (
+                DELETE FROM books_import s
+                WHERE s.row_num IN (SELECT row_num FROM errors)
+            )
+            SELECT row_num, field, message
+            FROM errors
+            ORDER BY row_num, field
+            """;
+
+        List<BulkImportErrorDto> errors = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                errors.add(new BulkImportErrorDto(
+                        rs.getLong("row_num"), rs.getString("field"), rs.getString("message")));
+            }
+        }
+        return errors;
+    }
+
+    // Колонки совпадают с форматом CSV пакетного импорта, выгрузку можно загрузить обратно
+    public long exportCsv(OutputStream out, Long afterId) throws IOException {
+        String sql = """
+            SELECT b.id, b.title, b.isbn, b.publication_year, b.author_id,
+                   (SELECT string_agg(bg.genre_id::text, ';' ORDER BY bg.genre_id)
+                    FROM books_genres bg
+                    WHERE bg.book_id = b.id) AS genre_ids
+            FROM books b
+            WHERE %s
+            ORDER BY b.id
+            """.formatted(afterIdCondition("b.id", afterId));
+
+        try {
+            return copyCsvOut(sql, afterId == null, out);
+        } catch (SQLException e) {
+            throw new DatabaseException("Error exporting books", e);
+        }
+    }
+
+    // Строка повторяет JSON BookDto; автор и жанры читаются подзапросами, чтобы план
+    // оставался проходом по первичному ключу без сортировки всей таблицы
+    public long exportNdjson(OutputStream out, Long afterId) throws IOException {
+        String sql = """
+            SELECT json_build_object(
+                       'id', b.id,
+                       'title', b.title,
+                       'isbn', b.isbn,
+                       'publicationYear', b.publication_year,
+                       'author', (SELECT json_build_object('id', a.id, 'firstName', a.first_name,
+                                                           'lastName', a.last_name)
+                                  FROM authors a
+                                  WHERE a.id = b.author_id),
+                       'genres', COALESCE((SELECT json_agg(json_build_object('id', g.id, 'name', g.name)
+                                                           ORDER BY g.id)
+                                           FROM books_genres bg
+                                           JOIN genres g ON g.id = bg.genre_id
+                                           WHERE bg.book_id = b.id), '[]'))
+            FROM books b
+            WHERE %s
+            ORDER BY b.id
+            """.formatted(afterIdCondition("b.id", afterId));
+
+        try {
+            return copyJsonLinesOut(sql, out);
+        } catch (SQLException e) {
+            throw new DatabaseException("Error exporting books", e);
+        }
+    }
+
     public void deleteById(Long id) throws DatabaseException {
         String sql = "DELETE FROM books WHERE id = ?";
 
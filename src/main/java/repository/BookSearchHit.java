@@ -0,0 +1,22 @@
+package repository;
+
+import entity.Book;
+
+// Результат полнотекстового поиска: ранг нужен для курсора следующей страницы
+public class BookSearchHit {
+    private final Book book;
+    private final float rank;
+
+    public BookSearchHit(Book book, float rank) {
+        this.book = book;
+        this.rank = rank;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public float getRank() {
+        return rank;
+    }
+}
@@ -0,0 +1,94 @@
+package repository;
+
+import exception.ValidationException;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Поля ответа из параметра ?fields=. Репозиторий выбирает только нужные столбцы и соединения,
+// сервлет сериализует только эти свойства. id входит всегда: по нему строятся курсоры и ссылки
+public final class FieldSet {
+    public static final List<String> BOOK_FIELDS = List.of("id", "title", "isbn", "publicationYear", "author", "genres");
+    public static final List<String> AUTHOR_FIELDS = List.of("id", "firstName", "lastName", "biography", "books");
+    public static final List<String> GENRE_FIELDS = List.of("id", "name", "description", "books");
+
+    public static final FieldSet ALL = new FieldSet(null);
+
+    // null - параметр не задан, отдаются все поля
+    private final Set<String> names;
+
+    private FieldSet(Set<String> names) {
+        this.names = names;
+    }
+
+    public static FieldSet parse(String value, List<String> allowed) {
+        if (value == null || value.isBlank()) {
+            return ALL;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        names.add("id");
+        for (String name : value.split(",")) {
+            String field = name.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(field)) {
+                throw new ValidationException("fields",
+                        "Unknown field '" + field + "', allowed fields: " + String.join(",", allowed));
+            }
+            names.add(field);
+        }
+        return new FieldSet(Collections.unmodifiableSet(names));
+    }
+
+    public boolean isAll() {
+        return names == null;
+    }
+
+    public boolean includes(String name) {
+        return names == null || names.contains(name);
+    }
+
+    // Поле перечислено в запросе явно, а не попало в полный набор по умолчанию
+    public boolean requests(String name) {
+        return names != null && names.contains(name);
+    }
+
+    // Поле нужно для запроса (например, ключ сортировки для курсора), даже если клиент его не просил
+    public FieldSet with(String name) {
+        if (includes(name)) {
+            return this;
+        }
+        Set<String> extended = new LinkedHashSet<>(names);
+        extended.add(name);
+        return new FieldSet(Collections.unmodifiableSet(extended));
+    }
+
+    public Set<String> getNames() {
+        return names;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FieldSet)) {
+            return false;
+        }
+        FieldSet other = (FieldSet) o;
+        return names == null ? other.names == null : names.equals(other.names);
+    }
+
+    @Override
+    public int hashCode() {
+        return names != null ? names.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return names == null ? "*" : String.join(",", names);
+    }
+}
@@ -1,11 +1,16 @@
 package repository;
 
+import config.ReplicaRouter;
+import dto.CollectionVersion;
 import entity.Book;
 import entity.Genre;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class GenreRepository extends BaseRepository {
     public GenreRepository() {
@@ -16,14 +21,23 @@ public class GenreRepository extends BaseRepository {
         super(dataSource);
     }
 
+    GenreRepository(ReplicaRouter router) {
+        super(router);
+    }
+
     public Optional<Genre> findById(Long id) {
         String sql = """
-            SELECT g.id, g.name, g.description
+            SELECT g.id, g.name, g.description,
+                   GREATEST(g.updated_at,
+                            (SELECT max(b.updated_at)
+                             FROM books b
+                             JOIN books_genres bg ON b.id = bg.book_id
+                             WHERE bg.genre_id = g.id)) as updated_at
             FROM genres g
             WHERE g.id = ?
             """;
 
-        try (Connection conn = getConnection();
+        try (Connection conn = getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setLong(1, id);
@@ -34,6 +48,7 @@ public class GenreRepository extends BaseRepository {
                 genre.setId(rs.getLong("id"));
                 genre.setName(rs.getString("name"));
                 genre.setDescription(rs.getString("description"));
+                genre.setUpdatedAt(toInstant(rs.getTimestamp("updated_at")));
 
                 // Загружаем связанные книги
                 genre.setBooks(findBooksByGenreId(conn, id));
@@ -72,6 +87,38 @@ public class GenreRepository extends BaseRepository {
         }
     }
 
+    public List<Genre> findAllByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = """
+            SELECT g.id, g.name, g.description
+            FROM genres g
+            WHERE g.id = ANY(?)
+            """;
+
+        try (Connection conn = getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setArray(1, conn.createArrayOf("bigint", ids.toArray()));
+            ResultSet rs = stmt.executeQuery();
+
+            List<Genre> genres = new ArrayList<>();
+            while (rs.next()) {
+                Genre genre = new Genre();
+                genre.setId(rs.getLong("id"));
+                genre.setName(rs.getString("name"));
+                genre.setDescription(rs.getString("description"));
+                genres.add(genre);
+            }
+
+            return genres;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error finding genres by ids: " + ids, e);
+        }
+    }
+
     public List<Genre> findAll() {
         String sql = """
             SELECT g.id, g.name, g.description
@@ -79,7 +126,7 @@ public class GenreRepository extends BaseRepository {
             ORDER BY g.name
             """;
 
-        try (Connection conn = getConnection();
+        try (Connection conn = getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -98,6 +145,66 @@ public class GenreRepository extends BaseRepository {
         }
     }
 
+    public void streamAll(Consumer<Genre> action) {
+        String sql = """
+            SELECT g.id, g.name, g.description
+            FROM genres g
+            ORDER BY g.name
+            """;
+
+        try (Connection conn = getReadConnection()) {
+            // Курсор на стороне сервера работает только внутри транзакции
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+                ResultSet rs = stmt.executeQuery();
+
+                while (rs.next()) {
+                    Genre genre = new Genre();
+                    genre.setId(rs.getLong("id"));
+                    genre.setName(rs.getString("name"));
+                    genre.setDescription(rs.getString("description"));
+                    action.accept(genre);
+                }
+            } finally {
+                conn.rollback();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error streaming genres", e);
+        }
+    }
+
+    public List<Genre> findPage(Long afterId, int limit) {
+        String sql = """
+            SELECT g.id, g.name, g.description
+            FROM genres g
+            WHERE g.id > ?
+            ORDER BY g.id
+            LIMIT ?
+            """;
+
+        try (Connection conn = getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, afterId != null ? afterId : 0L);
+            stmt.setInt(2, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            List<Genre> genres = new ArrayList<>();
+            while (rs.next()) {
+                Genre genre = new Genre();
+                genre.setId(rs.getLong("id"));
+                genre.setName(rs.getString("name"));
+                genre.setDescription(rs.getString("description"));
+                genres.add(genre);
+            }
+
+            return genres;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error finding genres page after id: " + afterId, e);
+        }
+    }
+
     public Genre save(Genre genre) {
         try (Connection conn = getConnection()) {
             conn.setAutoCommit(false);
@@ -164,21 +271,49 @@ public class GenreRepository extends BaseRepository {
     }
 
     private void updateGenreBooks(Connection conn, Genre genre) throws SQLException {
-        // Удаляем старые связи
-        String deleteSql = "DELETE FROM books_genres WHERE genre_id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(deleteSql)) {
-            stmt.setLong(1, genre.getId());
-            stmt.executeUpdate();
-        }
-
-        // Добавляем новые связи
-        String insertSql = "INSERT INTO books_genres (genre_id, book_id) VALUES (?, ?)";
-        try (PreparedStatement stmt = conn.prepareStatement(insertSql)) {
-            for (Book book : genre.getBooks()) {
-                stmt.setLong(1, genre.getId());
-                stmt.setLong(2, book.getId());
-                stmt.executeUpdate();
-            }
+        Set<Long> bookIds = new HashSet<>();
+        for (Book book : genre.getBooks()) {
+            bookIds.add(book.getId());
+        }
+        syncLinks(conn, "books_genres", "genre_id", "book_id", genre.getId(), bookIds);
+    }
+
+    public CollectionVersion findVersion() {
+        try {
+            return findCollectionVersion("genres");
+        } catch (SQLException e) {
+            throw new RuntimeException("Error finding genres version", e);
+        }
+    }
+
+    public long exportCsv(OutputStream out, Long afterId) throws IOException {
+        String sql = """
+            SELECT id, name, description
+            FROM genres
+            WHERE %s
+            ORDER BY id
+            """.formatted(afterIdCondition("id", afterId));
+
+        try {
+            return copyCsvOut(sql, afterId == null, out);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error exporting genres", e);
+        }
+    }
+
+    // Книги жанра не встраиваются: связи выгружаются вместе с книгами
+    public long exportNdjson(OutputStream out, Long afterId) throws IOException {
+        String sql = """
+            SELECT json_build_object('id', id, 'name', name, 'description', description)
+            FROM genres
+            WHERE %s
+            ORDER BY id
+            """.formatted(afterIdCondition("id", afterId));
+
+        try {
+            return copyJsonLinesOut(sql, out);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error exporting genres", e);
         }
     }
 
@@ -206,7 +341,7 @@ public class GenreRepository extends BaseRepository {
             WHERE g.name = ?
             """;
 
-        try (Connection conn = getConnection();
+        try (Connection conn = getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, name);
@@ -0,0 +1,139 @@
+package repository;
+
+import exception.DatabaseException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Единица работы: обращения репозиториев внутри execute в этом потоке идут через одно соединение
+// основного сервера в одной транзакции. Соединение берется из пула при первом обращении,
+// фиксируется или откатывается и возвращается в пул по выходе из execute. Вложенный execute
+// присоединяется к внешней транзакции
+public class TransactionTemplate {
+    private static final Logger LOGGER = Logger.getLogger(TransactionTemplate.class.getName());
+    private static final ThreadLocal<Transaction> CURRENT = new ThreadLocal<>();
+
+    public <T> T execute(Supplier<T> work) {
+        if (CURRENT.get() != null) {
+            return work.get();
+        }
+        Transaction transaction = new Transaction();
+        CURRENT.set(transaction);
+        try {
+            T result = work.get();
+            transaction.commit();
+            return result;
+        } catch (RuntimeException | Error e) {
+            transaction.rollback(e);
+            throw e;
+        } finally {
+            CURRENT.remove();
+            transaction.close();
+        }
+    }
+
+    public void executeWithoutResult(Runnable work) {
+        execute(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    // Соединение текущей транзакции или null вне ее. opener открывает соединение при первом обращении
+    static Connection joinCurrent(ConnectionOpener opener) throws SQLException {
+        Transaction transaction = CURRENT.get();
+        return transaction != null ? transaction.connection(opener) : null;
+    }
+
+    interface ConnectionOpener {
+        Connection open() throws SQLException;
+    }
+
+    private static final class Transaction {
+        private Connection connection;
+        private Connection shared;
+
+        private Connection connection(ConnectionOpener opener) throws SQLException {
+            if (shared == null) {
+                connection = opener.open();
+                try {
+                    connection.setAutoCommit(false);
+                } catch (SQLException e) {
+                    connection.close();
+                    connection = null;
+                    throw e;
+                }
+                shared = (Connection) Proxy.newProxyInstance(TransactionTemplate.class.getClassLoader(),
+                        new Class<?>[]{Connection.class}, this::invokeShared);
+            }
+            return shared;
+        }
+
+        // Репозитории закрывают соединение и сами управляют транзакцией, как вне единицы работы.
+        // Эти вызовы здесь пропускаются: границы транзакции задает execute. Ошибка репозитория
+        // доходит до execute исключением и откатывает всю транзакцию. Точки сохранения работают как есть
+        private Object invokeShared(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close", "commit", "setAutoCommit" -> {
+                    return null;
+                }
+                case "rollback" -> {
+                    if (args == null) {
+                        return null;
+                    }
+                }
+                default -> {
+                }
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void commit() {
+            if (connection == null) {
+                return;
+            }
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                throw new DatabaseException("Error committing transaction", e);
+            }
+        }
+
+        private void rollback(Throwable cause) {
+            if (connection == null) {
+                return;
+            }
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                cause.addSuppressed(e);
+            }
+        }
+
+        // Пул ожидает соединения в режиме автофиксации, поэтому он восстанавливается перед возвратом
+        private void close() {
+            if (connection == null) {
+                return;
+            }
+            try (Connection toClose = connection) {
+                toClose.setAutoCommit(true);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error releasing transaction connection", e);
+            }
+        }
+    }
+}
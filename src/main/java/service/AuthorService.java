@@ -1,48 +1,109 @@
 package service;
 
 import dto.AuthorDto;
+import dto.CollectionVersion;
+import dto.PageDto;
 import entity.Author;
+import entity.Book;
 import exception.EntityNotFoundException;
 import exception.ValidationException;
 import mapper.AuthorMapper;
 import repository.AuthorRepository;
+import repository.FieldSet;
+import repository.TransactionTemplate;
+import service.cache.EntityCaches;
+import service.cache.SuggestIndex;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 
 public class AuthorService {
     private final AuthorRepository authorRepository;
     private final AuthorMapper authorMapper;
+    private final EntityCaches entityCaches;
+    private final SuggestIndex suggestIndex;
+    private final TransactionTemplate transactions = new TransactionTemplate();
 
     public AuthorService(AuthorRepository authorRepository, AuthorMapper authorMapper) {
+        this(authorRepository, authorMapper, new EntityCaches());
+    }
+
+    // Без общего индекса подсказок сервис ведет собственный индекс только по авторам
+    public AuthorService(AuthorRepository authorRepository, AuthorMapper authorMapper, EntityCaches entityCaches) {
+        this(authorRepository, authorMapper, entityCaches,
+                new SuggestIndex(action -> { }, authorRepository::forEachName, Long.MAX_VALUE));
+    }
+
+    public AuthorService(AuthorRepository authorRepository, AuthorMapper authorMapper, EntityCaches entityCaches,
+                         SuggestIndex suggestIndex) {
         this.authorRepository = authorRepository;
         this.authorMapper = authorMapper;
+        this.entityCaches = entityCaches;
+        this.suggestIndex = suggestIndex;
     }
 
     public AuthorDto findById(Long id) {
-        return authorRepository.findById(id)
+        return entityCaches.authors().get(id, authorId -> authorRepository.findById(authorId)
                 .map(authorMapper::toDto)
-                .orElseThrow(() -> new EntityNotFoundException("Author not found with id: " + id, id.toString()));
+                .orElseThrow(() -> new EntityNotFoundException("Author not found with id: " + authorId, authorId.toString())));
     }
 
     public AuthorDto save(AuthorDto authorDto) {
         validateAuthorDto(authorDto);
         Author author = authorMapper.toEntity(authorDto);
         author = authorRepository.save(author);
+        entityCaches.onAuthorChanged(author.getId());
+        suggestIndex.putAuthor(author.getId(), author.getFirstName(), author.getLastName());
         return authorMapper.toDto(author);
     }
     public List<AuthorDto> findAll() {
-        return authorRepository.findAll()
+        return findAll(FieldSet.ALL);
+    }
+
+    public List<AuthorDto> findAll(FieldSet fields) {
+        return authorRepository.findAll(fields)
                 .stream().map(authorMapper::toDto)
                 .collect(Collectors.toList());
     }
+    public CollectionVersion getCollectionVersion() {
+        return authorRepository.findVersion();
+    }
+
+    public void streamAll(Consumer<AuthorDto> action) {
+        streamAll(FieldSet.ALL, action);
+    }
+
+    public void streamAll(FieldSet fields, Consumer<AuthorDto> action) {
+        authorRepository.streamAll(fields, author -> action.accept(authorMapper.toDto(author)));
+    }
+
+    public PageDto<AuthorDto> findPage(String after, int limit) {
+        return findPage(FieldSet.ALL, after, limit);
+    }
+
+    public PageDto<AuthorDto> findPage(FieldSet fields, String after, int limit) {
+        List<AuthorDto> rows = authorRepository.findPage(fields, PageCursor.decode(after), limit + 1).stream()
+                .map(authorMapper::toDto)
+                .collect(Collectors.toList());
+        return PageCursor.toPage(rows, limit, AuthorDto::getId);
+    }
     public void deleteById(Long id) {
-        Author author = authorRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Author", id.toString()));
-        authorRepository.deleteById(id);
+        Author author = transactions.execute(() -> {
+            Author existing = authorRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Author", id.toString()));
+            authorRepository.deleteById(id);
+            return existing;
+        });
+        entityCaches.onAuthorDeleted(id);
+        // Книги автора удаляются каскадно вместе с ним
+        suggestIndex.removeAuthor(id);
+        for (Book book : author.getBooks()) {
+            suggestIndex.removeBook(book.getId());
+        }
     }
 
     private void validateAuthorDto(AuthorDto authorDto) {
@@ -0,0 +1,274 @@
+package service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import dto.AuthorShortDto;
+import dto.BookDto;
+import dto.BulkImportErrorDto;
+import dto.GenreShortDto;
+import entity.Author;
+import entity.Book;
+import entity.Genre;
+import exception.ValidationException;
+import repository.BookImportRow;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+// Разбирает тело пакетного импорта по одной строке, не держа файл в памяти. Строки с ошибкой
+// формата или валидации пропускаются, ошибки копятся для отчета. Номер строки в NDJSON
+// совпадает с номером строки файла, в CSV - с номером записи после заголовка
+class BookImportReader implements Iterator<BookImportRow> {
+    private static final ObjectReader JSON_READER = new ObjectMapper().readerFor(BookDto.class);
+    private static final int MAX_TITLE_LENGTH = 255;
+    private static final int MAX_ISBN_LENGTH = 20;
+    private static final List<String> REQUIRED_CSV_COLUMNS = List.of("title", "authorid", "genreids");
+
+    private final BufferedReader reader;
+    private final DataFormat format;
+    private final List<BulkImportErrorDto> errors = new ArrayList<>();
+    private Map<String, Integer> csvColumns;
+    private long rowNumber;
+    private long received;
+    private boolean finished;
+    private BookImportRow next;
+
+    BookImportReader(Reader reader, DataFormat format) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.format = format;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (next == null && !finished) {
+                BookDto bookDto = format == DataFormat.CSV ? readCsvRow() : readJsonRow();
+                if (bookDto != null) {
+                    next = toImportRow(bookDto);
+                }
+            }
+            return next != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public BookImportRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        BookImportRow row = next;
+        next = null;
+        return row;
+    }
+
+    long getReceived() {
+        return received;
+    }
+
+    List<BulkImportErrorDto> getErrors() {
+        return errors;
+    }
+
+    private BookDto readJsonRow() throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            finished = true;
+            return null;
+        }
+        rowNumber++;
+        if (line.isBlank()) {
+            return null;
+        }
+
+        received++;
+        try {
+            return JSON_READER.readValue(line);
+        } catch (JsonProcessingException e) {
+            errors.add(new BulkImportErrorDto(rowNumber, null, "Malformed JSON: " + e.getOriginalMessage()));
+            return null;
+        }
+    }
+
+    private BookDto readCsvRow() throws IOException {
+        if (csvColumns == null) {
+            csvColumns = readCsvHeader();
+        }
+
+        List<String> record = readCsvRecord();
+        if (record == null) {
+            finished = true;
+            return null;
+        }
+        rowNumber++;
+        if (record.size() == 1 && record.get(0).isBlank()) {
+            return null;
+        }
+
+        received++;
+        if (record.size() != csvColumns.size()) {
+            errors.add(new BulkImportErrorDto(rowNumber, null,
+                    "Expected " + csvColumns.size() + " columns but was " + record.size()));
+            return null;
+        }
+
+        BookDto bookDto = new BookDto();
+        bookDto.setTitle(csvValue(record, "title"));
+        bookDto.setIsbn(csvValue(record, "isbn"));
+        try {
+            String year = csvValue(record, "publicationyear");
+            bookDto.setPublicationYear(year != null ? Integer.valueOf(year) : null);
+        } catch (NumberFormatException e) {
+            errors.add(new BulkImportErrorDto(rowNumber, "publicationYear", "Publication year must be a number"));
+            return null;
+        }
+        try {
+            String authorId = csvValue(record, "authorid");
+            if (authorId != null) {
+                AuthorShortDto author = new AuthorShortDto();
+                author.setId(Long.valueOf(authorId));
+                bookDto.setAuthor(author);
+            }
+        } catch (NumberFormatException e) {
+            errors.add(new BulkImportErrorDto(rowNumber, "author", "Author ID must be a number"));
+            return null;
+        }
+        try {
+            // Идентификаторы жанров в одной ячейке: "1;2;3"
+            String genreIds = csvValue(record, "genreids");
+            Set<GenreShortDto> genres = new HashSet<>();
+            if (genreIds != null) {
+                for (String genreId : genreIds.split("[;\\s]+")) {
+                    if (!genreId.isEmpty()) {
+                        GenreShortDto genre = new GenreShortDto();
+                        genre.setId(Long.valueOf(genreId));
+                        genres.add(genre);
+                    }
+                }
+            }
+            bookDto.setGenres(genres);
+        } catch (NumberFormatException e) {
+            errors.add(new BulkImportErrorDto(rowNumber, "genres", "Genre IDs must be numbers separated by ';'"));
+            return null;
+        }
+        return bookDto;
+    }
+
+    // Колонки ищутся по имени без учета регистра и подчеркиваний: authorId и author_id равнозначны
+    private Map<String, Integer> readCsvHeader() throws IOException {
+        List<String> header = readCsvRecord();
+        Map<String, Integer> columns = new HashMap<>();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String column : REQUIRED_CSV_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                missing.add(column);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new ValidationException("CSV header is invalid",
+                    Map.of("header", "Missing columns: " + String.join(", ", missing)));
+        }
+        return columns;
+    }
+
+    private String csvValue(List<String> record, String column) {
+        Integer index = csvColumns.get(column);
+        if (index == null) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180: поле в кавычках может содержать запятые, переводы строк и удвоенные кавычки
+    private List<String> readCsvRecord() throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                String continuation = reader.readLine();
+                if (continuation == null) {
+                    break;
+                }
+                field.append('\n');
+                line = continuation;
+                i = 0;
+                continue;
+            }
+
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private BookImportRow toImportRow(BookDto bookDto) {
+        Map<String, String> rowErrors = new TreeMap<>(BookService.validationErrors(bookDto));
+        if (bookDto.getTitle() != null && bookDto.getTitle().length() > MAX_TITLE_LENGTH) {
+            rowErrors.put("title", "Book title must be at most " + MAX_TITLE_LENGTH + " characters");
+        }
+        if (bookDto.getIsbn() != null && bookDto.getIsbn().length() > MAX_ISBN_LENGTH) {
+            rowErrors.put("isbn", "ISBN must be at most " + MAX_ISBN_LENGTH + " characters");
+        }
+        if (bookDto.getGenres() != null && bookDto.getGenres().stream().anyMatch(genre -> genre.getId() == null)) {
+            rowErrors.put("genres", "Genre ID must be specified");
+        }
+        if (!rowErrors.isEmpty()) {
+            rowErrors.forEach((field, message) -> errors.add(new BulkImportErrorDto(rowNumber, field, message)));
+            return null;
+        }
+
+        // Автор и жанры нужны только своими идентификаторами: их проверит база
+        Book book = new Book(bookDto.getTitle(), bookDto.getIsbn());
+        book.setPublicationYear(bookDto.getPublicationYear());
+        Author author = new Author();
+        author.setId(bookDto.getAuthor().getId());
+        book.setAuthor(author);
+        Set<Genre> genres = new HashSet<>();
+        for (GenreShortDto genreDto : bookDto.getGenres()) {
+            Genre genre = new Genre();
+            genre.setId(genreDto.getId());
+            genres.add(genre);
+        }
+        book.setGenres(genres);
+        return new BookImportRow(rowNumber, book);
+    }
+}
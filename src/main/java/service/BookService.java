@@ -1,6 +1,11 @@
 package service;
 
 import dto.BookDto;
+import dto.BookShortDto;
+import dto.BulkImportErrorDto;
+import dto.BulkImportResultDto;
+import dto.CollectionVersion;
+import dto.PageDto;
 import dto.GenreShortDto;
 import entity.Author;
 import entity.Book;
@@ -10,65 +15,134 @@ import exception.EntityNotFoundException;
 import exception.ValidationException;
 import mapper.BookMapper;
 import repository.AuthorRepository;
+import repository.BookFilter;
 import repository.BookRepository;
+import repository.BookSearchHit;
+import repository.FieldSet;
 import repository.GenreRepository;
+import repository.TransactionTemplate;
+import service.cache.EntityCaches;
+import service.cache.SuggestIndex;
 
+import java.io.Reader;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class BookService {
+    private static final int MAX_SEARCH_QUERY_LENGTH = 200;
+    private static final int MIN_YEAR = 1;
+    private static final int MAX_YEAR = 9999;
+
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
     private final GenreRepository genreRepository;
     private final BookMapper bookMapper;
+    private final EntityCaches entityCaches;
+    private final SuggestIndex suggestIndex;
+    private final TransactionTemplate transactions = new TransactionTemplate();
 
     public BookService(
             BookRepository bookRepository,
             AuthorRepository authorRepository,
             GenreRepository genreRepository,
             BookMapper bookMapper) {
+        this(bookRepository, authorRepository, genreRepository, bookMapper, new EntityCaches());
+    }
+
+    public BookService(
+            BookRepository bookRepository,
+            AuthorRepository authorRepository,
+            GenreRepository genreRepository,
+            BookMapper bookMapper,
+            EntityCaches entityCaches) {
+        this(bookRepository, authorRepository, genreRepository, bookMapper, entityCaches,
+                new SuggestIndex(bookRepository, authorRepository));
+    }
+
+    public BookService(
+            BookRepository bookRepository,
+            AuthorRepository authorRepository,
+            GenreRepository genreRepository,
+            BookMapper bookMapper,
+            EntityCaches entityCaches,
+            SuggestIndex suggestIndex) {
         this.bookRepository = bookRepository;
         this.authorRepository = authorRepository;
         this.genreRepository = genreRepository;
         this.bookMapper = bookMapper;
+        this.entityCaches = entityCaches;
+        this.suggestIndex = suggestIndex;
     }
 
     public BookDto findById(Long id) throws EntityNotFoundException {
-        return bookRepository.findById(id)
+        return entityCaches.books().get(id, bookId -> bookRepository.findById(bookId)
                 .map(bookMapper::toDto)
-                .orElseThrow(() -> new EntityNotFoundException("Book", id.toString()));
+                .orElseThrow(() -> new EntityNotFoundException("Book", bookId.toString())));
     }
 
+    // Проверки и запись идут в одной транзакции через одно соединение. Кэши сбрасываются
+    // после фиксации: раньше параллельный запрос мог бы заполнить их незафиксированным состоянием
     public BookDto save(BookDto bookDto) throws EntityNotFoundException, ValidationException {
         validateBookDto(bookDto);
 
-        // Проверяем существование автора
-        Author author = authorRepository.findById(bookDto.getAuthor().getId())
-                .orElseThrow(() -> new EntityNotFoundException(
-                        "Author",
-                        bookDto.getAuthor().getId() != null ? bookDto.getAuthor().getId().toString() : "null"
-                ));
-
-        // Проверяем существование жанров
-        Set<Genre> genres = new HashSet<>();
-        for (GenreShortDto genreDto : bookDto.getGenres()) {
-            Genre genre = genreRepository.findById(genreDto.getId())
+        Book book = transactions.execute(() -> {
+            // Проверяем существование автора
+            Author author = authorRepository.findById(bookDto.getAuthor().getId())
                     .orElseThrow(() -> new EntityNotFoundException(
-                            "Genre",
-                            genreDto.getId() != null ? genreDto.getId().toString() : "null"
+                            "Author",
+                            bookDto.getAuthor().getId() != null ? bookDto.getAuthor().getId().toString() : "null"
                     ));
-            genres.add(genre);
-        }
 
-        Book book = bookMapper.toEntity(bookDto);
-        book.setAuthor(author);
-        book.setGenres(genres);
+            // Проверяем существование жанров одним запросом
+            Set<Genre> genres = resolveGenres(bookDto.getGenres());
 
-        book = bookRepository.save(book);
+            Book entity = bookMapper.toEntity(bookDto);
+            entity.setAuthor(author);
+            entity.setGenres(genres);
+            return bookRepository.save(entity);
+        });
+        entityCaches.onBookChanged(book.getId(), book.getAuthor().getId(), genreIds(book.getGenres()));
+        suggestIndex.putBook(book.getId(), book.getTitle());
         return bookMapper.toDto(book);
     }
 
+    private Set<Genre> resolveGenres(Set<GenreShortDto> genreDtos) {
+        Set<Long> requestedIds = new HashSet<>();
+        Set<String> missingIds = new TreeSet<>();
+        for (GenreShortDto genreDto : genreDtos) {
+            if (genreDto.getId() != null) {
+                requestedIds.add(genreDto.getId());
+            } else {
+                missingIds.add("null");
+            }
+        }
+
+        // Из базы, а не из снимка справочника: снимок может не знать только что удаленный
+        // или созданный жанр, и ошибку вместо 404 выдал бы внешний ключ
+        Set<Genre> genres = new HashSet<>(genreRepository.findAllByIds(requestedIds));
+        Set<Long> foundIds = genres.stream().map(Genre::getId).collect(Collectors.toSet());
+        for (Long id : requestedIds) {
+            if (!foundIds.contains(id)) {
+                missingIds.add(id.toString());
+            }
+        }
+
+        if (!missingIds.isEmpty()) {
+            throw new EntityNotFoundException("Genre", String.join(", ", missingIds));
+        }
+        return genres;
+    }
+
     private void validateBookDto(BookDto bookDto) {
+        Map<String, String> errors = validationErrors(bookDto);
+        if (!errors.isEmpty()) {
+            throw new ValidationException("Book validation failed", errors);
+        }
+    }
+
+    // Общие правила для одиночного сохранения и пакетного импорта
+    static Map<String, String> validationErrors(BookDto bookDto) {
         Map<String, String> errors = new HashMap<>();
 
         if (bookDto.getTitle() == null || bookDto.getTitle().trim().isEmpty()) {
@@ -82,23 +156,169 @@ public class BookService {
         if (bookDto.getGenres() == null || bookDto.getGenres().isEmpty()) {
             errors.put("genres", "At least one genre must be specified");
         }
+        return errors;
+    }
 
-        if (!errors.isEmpty()) {
-            throw new ValidationException("Book validation failed", errors);
+    // Ошибки разбора и ошибки, найденные базой, сливаются в один отчет по номерам строк
+    public BulkImportResultDto importBooks(Reader body, DataFormat format) throws DatabaseException {
+        BookImportReader rows = new BookImportReader(body, format);
+        BulkImportResultDto stored = bookRepository.importBooks(rows);
+
+        List<BulkImportErrorDto> errors = new ArrayList<>(rows.getErrors());
+        errors.addAll(stored.getErrors());
+        errors.sort(Comparator.comparingLong(BulkImportErrorDto::getRow));
+
+        if (stored.getImported() > 0) {
+            entityCaches.onBooksImported();
+            suggestIndex.invalidate();
         }
+        return new BulkImportResultDto(rows.getReceived(), stored.getImported(),
+                rows.getReceived() - stored.getImported(), errors);
     }
 
     public List<BookDto> findAll() throws DatabaseException {
-        return bookRepository.findAll().stream()
+        return findAll(FieldSet.ALL);
+    }
+
+    public List<BookDto> findAll(FieldSet fields) throws DatabaseException {
+        return bookRepository.findAll(fields).stream()
                 .map(bookMapper::toDto)
                 .collect(Collectors.toList());
     }
 
+    public CollectionVersion getCollectionVersion() throws DatabaseException {
+        return bookRepository.findVersion();
+    }
+
+    public void streamAll(Consumer<BookDto> action) throws DatabaseException {
+        streamAll(FieldSet.ALL, action);
+    }
+
+    public void streamAll(FieldSet fields, Consumer<BookDto> action) throws DatabaseException {
+        bookRepository.streamAll(fields, book -> action.accept(bookMapper.toDto(book)));
+    }
+
+    public PageDto<BookDto> findPage(String after, int limit) throws DatabaseException {
+        List<BookDto> rows = bookRepository.findPage(PageCursor.decode(after), limit + 1).stream()
+                .map(bookMapper::toDto)
+                .collect(Collectors.toList());
+        return PageCursor.toPage(rows, limit, BookDto::getId);
+    }
+
+    public PageDto<BookDto> findPage(FieldSet fields, String after, int limit) throws DatabaseException {
+        return findPage(new BookFilter(null, null, null, null, BookFilter.Sort.ID), fields, after, limit);
+    }
+
+    public PageDto<BookDto> findPage(BookFilter filter, String after, int limit) throws DatabaseException {
+        return findPage(filter, FieldSet.ALL, after, limit);
+    }
+
+    public PageDto<BookDto> findPage(BookFilter filter, FieldSet fields, String after, int limit)
+            throws DatabaseException {
+        validateFilter(filter);
+        BookFilter.Sort sort = filter.getSort();
+        Object afterKey = null;
+        Long afterId;
+        if (sort == BookFilter.Sort.ID) {
+            afterId = PageCursor.decode(after);
+        } else {
+            PageCursor.KeyedPosition position = PageCursor.decodeKeyed(after, sort.getParameter());
+            afterId = position != null ? position.getId() : null;
+            if (position != null) {
+                afterKey = sort == BookFilter.Sort.TITLE ? position.getKey() : parseYearKey(position.getKey(), after);
+            }
+        }
+
+        // Ключ сортировки читается всегда: из него строится курсор следующей страницы
+        FieldSet queryFields = switch (sort) {
+            case ID -> fields;
+            case TITLE -> fields.with("title");
+            case YEAR, YEAR_DESC -> fields.with("publicationYear");
+        };
+        List<Book> books = bookRepository.findPage(filter, queryFields, afterKey, afterId, limit + 1);
+        List<BookDto> items = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, books.size()); i++) {
+            items.add(bookMapper.toDto(books.get(i)));
+        }
+        String nextCursor = null;
+        if (books.size() > limit) {
+            Book last = books.get(limit - 1);
+            nextCursor = switch (sort) {
+                case ID -> PageCursor.encode(last.getId());
+                case TITLE -> PageCursor.encodeKeyed(sort.getParameter(), last.getTitle(), last.getId());
+                case YEAR, YEAR_DESC -> PageCursor.encodeKeyed(sort.getParameter(),
+                        String.valueOf(last.getPublicationYear() != null ? last.getPublicationYear() : 0),
+                        last.getId());
+            };
+        }
+        return new PageDto<>(items, nextCursor);
+    }
+
+    public PageDto<BookShortDto> search(String query, String after, int limit) throws DatabaseException {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("q", "Search query cannot be empty");
+        }
+        if (query.length() > MAX_SEARCH_QUERY_LENGTH) {
+            throw new ValidationException("q",
+                    "Search query must be at most " + MAX_SEARCH_QUERY_LENGTH + " characters");
+        }
+        PageCursor.RankedPosition position = PageCursor.decodeRanked(after);
+
+        List<BookSearchHit> hits = bookRepository.search(query.trim(),
+                position != null ? position.getRank() : null,
+                position != null ? position.getId() : null,
+                limit + 1);
+
+        List<BookShortDto> items = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, hits.size()); i++) {
+            items.add(bookMapper.toShortDto(hits.get(i).getBook()));
+        }
+        String nextCursor = null;
+        if (hits.size() > limit) {
+            BookSearchHit last = hits.get(limit - 1);
+            nextCursor = PageCursor.encodeRanked(last.getRank(), last.getBook().getId());
+        }
+        return new PageDto<>(items, nextCursor);
+    }
+
+    private void validateFilter(BookFilter filter) {
+        Map<String, String> errors = new HashMap<>();
+        if (filter.getYearFrom() != null && (filter.getYearFrom() < MIN_YEAR || filter.getYearFrom() > MAX_YEAR)) {
+            errors.put("yearFrom", "Year must be between " + MIN_YEAR + " and " + MAX_YEAR);
+        }
+        if (filter.getYearTo() != null && (filter.getYearTo() < MIN_YEAR || filter.getYearTo() > MAX_YEAR)) {
+            errors.put("yearTo", "Year must be between " + MIN_YEAR + " and " + MAX_YEAR);
+        }
+        if (errors.isEmpty() && filter.getYearFrom() != null && filter.getYearTo() != null
+                && filter.getYearFrom() > filter.getYearTo()) {
+            errors.put("yearTo", "yearTo must not be less than yearFrom");
+        }
+        if (!errors.isEmpty()) {
+            throw new ValidationException("Invalid book filter", errors);
+        }
+    }
+
+    private static Integer parseYearKey(String key, String cursor) {
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("after", "Invalid page cursor: '" + cursor + "'");
+        }
+    }
+
     public void deleteById(Long id) throws EntityNotFoundException {
-        Book book = bookRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Book", id.toString()));
+        Book book = transactions.execute(() -> {
+            Book existing = bookRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Book", id.toString()));
+            bookRepository.deleteById(id);
+            return existing;
+        });
+        entityCaches.onBookChanged(id, book.getAuthor().getId(), genreIds(book.getGenres()));
+        suggestIndex.removeBook(id);
+    }
 
-        bookRepository.deleteById(id);
+    private static Set<Long> genreIds(Set<Genre> genres) {
+        return genres.stream().map(Genre::getId).collect(Collectors.toSet());
     }
 }
 
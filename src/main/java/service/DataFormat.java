@@ -0,0 +1,68 @@
+package service;
+
+import exception.ValidationException;
+
+import java.util.Locale;
+import java.util.Map;
+
+// Построчные форматы обмена каталогом: используются пакетным импортом и выгрузкой
+public enum DataFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    DataFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static DataFormat fromContentType(String contentType) {
+        DataFormat format = fromMediaType(contentType);
+        if (format == null) {
+            throw new ValidationException("Unsupported content type",
+                    Map.of("Content-Type", "Expected application/x-ndjson or text/csv but was: '" + contentType + "'"));
+        }
+        return format;
+    }
+
+    // Явный параметр format важнее заголовка Accept; по умолчанию NDJSON
+    public static DataFormat forExport(String format, String accept) {
+        if (format != null) {
+            for (DataFormat value : values()) {
+                if (value.extension.equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new ValidationException("Unsupported export format",
+                    Map.of("format", "Expected ndjson or csv but was: '" + format + "'"));
+        }
+        if (accept != null) {
+            for (String mediaType : accept.split(",")) {
+                DataFormat value = fromMediaType(mediaType);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return NDJSON;
+    }
+
+    private static DataFormat fromMediaType(String contentType) {
+        String mediaType = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        return switch (mediaType) {
+            case "application/x-ndjson", "application/ndjson", "application/jsonl" -> NDJSON;
+            case "text/csv" -> CSV;
+            default -> null;
+        };
+    }
+}
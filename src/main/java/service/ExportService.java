@@ -0,0 +1,43 @@
+package service;
+
+import exception.EntityNotFoundException;
+import repository.AuthorRepository;
+import repository.BookRepository;
+import repository.GenreRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Выгрузка каталога идет из базы прямо в поток ответа, минуя кэши и маппинг
+public class ExportService {
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final GenreRepository genreRepository;
+
+    public ExportService(
+            BookRepository bookRepository,
+            AuthorRepository authorRepository,
+            GenreRepository genreRepository) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.genreRepository = genreRepository;
+    }
+
+    // Возвращает число выгруженных строк; afterId - последний id, уже полученный клиентом
+    public long export(String collection, DataFormat format, Long afterId, OutputStream out)
+            throws EntityNotFoundException, IOException {
+        boolean csv = format == DataFormat.CSV;
+        return switch (collection) {
+            case "books" -> csv
+                    ? bookRepository.exportCsv(out, afterId)
+                    : bookRepository.exportNdjson(out, afterId);
+            case "authors" -> csv
+                    ? authorRepository.exportCsv(out, afterId)
+                    : authorRepository.exportNdjson(out, afterId);
+            case "genres" -> csv
+                    ? genreRepository.exportCsv(out, afterId)
+                    : genreRepository.exportNdjson(out, afterId);
+            default -> throw new EntityNotFoundException("Export", collection);
+        };
+    }
+}
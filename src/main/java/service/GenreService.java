@@ -1,43 +1,67 @@
 package service;
 
 import dto.GenreDto;
+import dto.CollectionVersion;
+import dto.PageDto;
+import entity.Book;
 import entity.Genre;
 import exception.DuplicateEntityException;
 import exception.EntityNotFoundException;
 import exception.ValidationException;
 import mapper.GenreMapper;
 import repository.GenreRepository;
+import repository.TransactionTemplate;
+import service.cache.EntityCaches;
+import service.cache.GenreCache;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class GenreService {
     private final GenreRepository genreRepository;
     private final GenreMapper genreMapper;
+    private final GenreCache genreCache;
+    private final EntityCaches entityCaches;
+    private final TransactionTemplate transactions = new TransactionTemplate();
 
     public GenreService(GenreRepository genreRepository, GenreMapper genreMapper) {
+        this(genreRepository, genreMapper, new GenreCache(genreRepository), new EntityCaches());
+    }
+
+    public GenreService(GenreRepository genreRepository, GenreMapper genreMapper,
+                        GenreCache genreCache, EntityCaches entityCaches) {
         this.genreRepository = genreRepository;
         this.genreMapper = genreMapper;
+        this.genreCache = genreCache;
+        this.entityCaches = entityCaches;
     }
 
     public GenreDto findById(Long id) {
-        return genreRepository.findById(id)
+        return entityCaches.genres().get(id, genreId -> genreRepository.findById(genreId)
                 .map(genreMapper::toDto)
-                .orElseThrow(() -> new EntityNotFoundException("Genre not found with id: " + id, id.toString()));
+                .orElseThrow(() -> new EntityNotFoundException("Genre not found with id: " + genreId, genreId.toString())));
     }
 
+    // Проверка имени и запись идут в одной транзакции через одно соединение, кэши сбрасываются
+    // после фиксации
     public GenreDto save(GenreDto genreDto) throws DuplicateEntityException {
         validateGenreDto(genreDto);
 
-        if (genreDto.getId() == null &&
-            genreRepository.findByName(genreDto.getName()).isPresent()) {
-            throw new DuplicateEntityException("Genre", "name", genreDto.getName());
-        }
-
-        Genre genre = genreMapper.toEntity(genreDto);
-        genre = genreRepository.save(genre);
+        Genre genre = transactions.execute(() -> {
+            // Из базы, а не из снимка: снимок после сброса и записи других узлов может отставать,
+            // и дубликат дошел бы до ограничения UNIQUE ошибкой сервера
+            if (genreDto.getId() == null &&
+                genreRepository.findByName(genreDto.getName()).isPresent()) {
+                throw new DuplicateEntityException("Genre", "name", genreDto.getName());
+            }
+            return genreRepository.save(genreMapper.toEntity(genreDto));
+        });
+        genreCache.invalidate();
+        entityCaches.onGenreChanged(genre.getId(), bookIds(genre));
         return genreMapper.toDto(genre);
     }
 
@@ -53,13 +77,36 @@ public class GenreService {
         }
     }
     public List<GenreDto> findAll() {
-        return genreRepository.findAll().stream()
+        return genreCache.findAll().stream()
                 .map(genreMapper::toDto)
                 .collect(Collectors.toList());
     }
+    public CollectionVersion getCollectionVersion() {
+        return genreRepository.findVersion();
+    }
+
+    public void streamAll(Consumer<GenreDto> action) {
+        genreRepository.streamAll(genre -> action.accept(genreMapper.toDto(genre)));
+    }
+
+    public PageDto<GenreDto> findPage(String after, int limit) {
+        List<GenreDto> rows = genreRepository.findPage(PageCursor.decode(after), limit + 1).stream()
+                .map(genreMapper::toDto)
+                .collect(Collectors.toList());
+        return PageCursor.toPage(rows, limit, GenreDto::getId);
+    }
     public void deleteById(Long id) throws EntityNotFoundException {
-        Genre genre = genreRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Genre", id.toString()));
-        genreRepository.deleteById(id);
+        Genre genre = transactions.execute(() -> {
+            Genre existing = genreRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Genre", id.toString()));
+            genreRepository.deleteById(id);
+            return existing;
+        });
+        genreCache.invalidate();
+        entityCaches.onGenreChanged(id, bookIds(genre));
+    }
+
+    private static Set<Long> bookIds(Genre genre) {
+        return genre.getBooks().stream().map(Book::getId).collect(Collectors.toSet());
     }
 }
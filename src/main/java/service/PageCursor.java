@@ -0,0 +1,132 @@
+package service;
+
+import dto.PageDto;
+import exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+public final class PageCursor {
+    private static final String PREFIX = "id:";
+    private static final String RANKED_PREFIX = "rank:";
+    private static final String KEYED_PREFIX = "key:";
+
+    private PageCursor() {
+    }
+
+    public static String encode(long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(value);
+            }
+            return Long.parseLong(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("after", "Invalid page cursor: '" + cursor + "'");
+        }
+    }
+
+    // Курсор выдачи, упорядоченной по рангу: Float.toString восстанавливается без потери точности
+    public static String encodeRanked(float rank, long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((RANKED_PREFIX + rank + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static RankedPosition decodeRanked(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(':');
+            if (!value.startsWith(RANKED_PREFIX) || separator <= RANKED_PREFIX.length()) {
+                throw new IllegalArgumentException(value);
+            }
+            return new RankedPosition(Float.parseFloat(value.substring(RANKED_PREFIX.length(), separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("after", "Invalid page cursor: '" + cursor + "'");
+        }
+    }
+
+    // Курсор выдачи, отсортированной по другому столбцу: порядок сортировки входит в курсор,
+    // чтобы курсор одной сортировки не применили к другой. Значение ключа идет последним и может содержать ':'
+    public static String encodeKeyed(String sort, String key, long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((KEYED_PREFIX + sort + ":" + id + ":" + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeyedPosition decodeKeyed(String cursor, String sort) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String prefix = KEYED_PREFIX + sort + ":";
+            int separator = value.indexOf(':', prefix.length());
+            if (!value.startsWith(prefix) || separator < 0) {
+                throw new IllegalArgumentException(value);
+            }
+            return new KeyedPosition(value.substring(separator + 1),
+                    Long.parseLong(value.substring(prefix.length(), separator)));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("after", "Invalid page cursor: '" + cursor + "'");
+        }
+    }
+
+    // Репозиторий возвращает limit + 1 строк: лишняя строка означает, что есть следующая страница
+    static <T> PageDto<T> toPage(List<T> rows, int limit, Function<T, Long> idExtractor) {
+        if (rows.size() <= limit) {
+            return new PageDto<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new PageDto<>(items, encode(idExtractor.apply(items.get(limit - 1))));
+    }
+
+    public static final class RankedPosition {
+        private final float rank;
+        private final long id;
+
+        private RankedPosition(float rank, long id) {
+            this.rank = rank;
+            this.id = id;
+        }
+
+        public float getRank() {
+            return rank;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+
+    public static final class KeyedPosition {
+        private final String key;
+        private final long id;
+
+        private KeyedPosition(String key, long id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package service;
+
+import dto.SuggestionDto;
+import exception.ValidationException;
+import service.cache.SuggestIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class SuggestService {
+    private static final int MAX_PREFIX_LENGTH = 100;
+
+    private final SuggestIndex suggestIndex;
+
+    public SuggestService(SuggestIndex suggestIndex) {
+        this.suggestIndex = suggestIndex;
+    }
+
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("prefix", "Prefix cannot be empty");
+        }
+        if (prefix.length() > MAX_PREFIX_LENGTH) {
+            throw new ValidationException("prefix", "Prefix must be at most " + MAX_PREFIX_LENGTH + " characters");
+        }
+        List<SuggestionDto> suggestions = new ArrayList<>();
+        for (SuggestIndex.Suggestion suggestion : suggestIndex.suggest(prefix, limit)) {
+            suggestions.add(new SuggestionDto(suggestion.getType().name().toLowerCase(Locale.ROOT),
+                    suggestion.getId(), suggestion.getText()));
+        }
+        return suggestions;
+    }
+
+    // Загрузка индекса при старте, чтобы первый запрос подсказок не ждал чтения базы
+    public void warmUp() {
+        suggestIndex.load();
+    }
+}
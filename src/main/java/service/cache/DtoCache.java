@@ -0,0 +1,67 @@
+package service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Ограниченный по размеру кэш DTO по id. Caffeine вытесняет записи по W-TinyLFU,
+// поэтому редкие запросы не выталкивают горячие записи
+public class DtoCache<V> {
+    private final String name;
+    private final Cache<Long, V> cache;
+    // Растет при сбросе по условию и полном сбросе, как поколение у GenreCache
+    private final AtomicLong generation = new AtomicLong();
+
+    public DtoCache(String name, long maximumSize, Duration ttl) {
+        this.name = name;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    // Сброс по ключу Caffeine сам дожидается идущей загрузки этого ключа. Проход invalidateIf
+    // и invalidateAll видит только готовые записи: DTO, загруженный до записи и положенный после
+    // прохода, остался бы в кэше до истечения срока. Такой загрузчик убирает свое значение сам
+    public V get(Long id, Function<Long, V> loader) {
+        long observedGeneration = generation.get();
+        V value = cache.get(id, loader);
+        if (value != null && generation.get() != observedGeneration) {
+            cache.asMap().remove(id, value);
+        }
+        return value;
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    // Полный проход по кэшу: используется только на записи, размер кэша ограничен
+    public void invalidateIf(Predicate<V> predicate) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(predicate);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,107 @@
+package service.cache;
+
+import config.ApplicationConfig;
+import dto.AuthorDto;
+import dto.BookDto;
+import dto.BookShortDto;
+import dto.GenreDto;
+import dto.GenreShortDto;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Кэши findById для всех сущностей и кэш готовых ответов списков. DTO встраивают друг друга
+// (книга - автора и жанры, автор и жанр - книги), поэтому запись одной сущности сбрасывает
+// и зависимые записи
+public class EntityCaches {
+    private final DtoCache<BookDto> books;
+    private final DtoCache<AuthorDto> authors;
+    private final DtoCache<GenreDto> genres;
+    private final ResponseCache responses;
+
+    public EntityCaches() {
+        this(ApplicationConfig.getLong("cache.entities.max.size", 10_000),
+                Duration.ofSeconds(ApplicationConfig.getLong("cache.entities.ttl.seconds", 600)),
+                new ResponseCache());
+    }
+
+    public EntityCaches(long maximumSize, Duration ttl) {
+        this(maximumSize, ttl, new ResponseCache(0, false));
+    }
+
+    public EntityCaches(long maximumSize, Duration ttl, ResponseCache responses) {
+        this.books = new DtoCache<>("books", maximumSize, ttl);
+        this.authors = new DtoCache<>("authors", maximumSize, ttl);
+        this.genres = new DtoCache<>("genres", maximumSize, ttl);
+        this.responses = responses;
+    }
+
+    public DtoCache<BookDto> books() {
+        return books;
+    }
+
+    public DtoCache<AuthorDto> authors() {
+        return authors;
+    }
+
+    public DtoCache<GenreDto> genres() {
+        return genres;
+    }
+
+    public ResponseCache responses() {
+        return responses;
+    }
+
+    public List<DtoCache<?>> all() {
+        return List.of(books, authors, genres);
+    }
+
+    // authorId и genreIds - новые связи книги; старые находятся по вхождению книги в кэшированные DTO
+    public void onBookChanged(Long bookId, Long authorId, Collection<Long> genreIds) {
+        books.invalidate(bookId);
+        authors.invalidateIf(author -> author.getId().equals(authorId) || containsBook(author.getBooks(), bookId));
+        genres.invalidateIf(genre -> genreIds.contains(genre.getId()) || containsBook(genre.getBooks(), bookId));
+        // Книга встроена в списки авторов и жанров
+        responses.invalidateAll();
+    }
+
+    public void onAuthorChanged(Long authorId) {
+        authors.invalidate(authorId);
+        books.invalidateIf(book -> book.getAuthor() != null && authorId.equals(book.getAuthor().getId()));
+        responses.invalidate(ResponseCache.AUTHORS);
+        responses.invalidate(ResponseCache.BOOKS);
+    }
+
+    // Удаление автора каскадно удаляет его книги, а они встроены в жанры
+    public void onAuthorDeleted(Long authorId) {
+        onAuthorChanged(authorId);
+        genres.invalidateAll();
+        responses.invalidate(ResponseCache.GENRES);
+    }
+
+    // Новые книги попадают в списки книг своих авторов и жанров; при пакетной загрузке
+    // затронутых слишком много, чтобы искать их поштучно
+    public void onBooksImported() {
+        authors.invalidateAll();
+        genres.invalidateAll();
+        responses.invalidateAll();
+    }
+
+    // bookIds - книги, связанные с жанром после записи; прежние находятся по жанру в кэшированных книгах
+    public void onGenreChanged(Long genreId, Collection<Long> bookIds) {
+        genres.invalidate(genreId);
+        books.invalidateIf(book -> bookIds.contains(book.getId()) || containsGenre(book.getGenres(), genreId));
+        responses.invalidate(ResponseCache.GENRES);
+        responses.invalidate(ResponseCache.BOOKS);
+    }
+
+    private static boolean containsBook(Set<BookShortDto> books, Long bookId) {
+        return books != null && books.stream().anyMatch(book -> bookId.equals(book.getId()));
+    }
+
+    private static boolean containsGenre(Set<GenreShortDto> genres, Long genreId) {
+        return genres != null && genres.stream().anyMatch(genre -> genreId.equals(genre.getId()));
+    }
+}
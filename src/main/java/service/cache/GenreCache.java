@@ -0,0 +1,147 @@
+package service.cache;
+
+import config.ApplicationConfig;
+import entity.Genre;
+import repository.GenreRepository;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Справочник жанров целиком в памяти. Чтение идет из неизменяемого снимка без блокировок,
+// снимок заменяется атомарно при перезагрузке. Сброс только помечает снимок устаревшим:
+// перезагружает его один поток, остальные до замены читают прежний
+public class GenreCache {
+    private final GenreRepository genreRepository;
+    private final long refreshIntervalNanos;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final ReentrantLock firstLoad = new ReentrantLock();
+
+    public GenreCache(GenreRepository genreRepository) {
+        this(genreRepository, TimeUnit.SECONDS.toNanos(
+                ApplicationConfig.getLong("cache.genres.refresh.seconds", 300)));
+    }
+
+    public GenreCache(GenreRepository genreRepository, long refreshIntervalNanos) {
+        this.genreRepository = genreRepository;
+        this.refreshIntervalNanos = refreshIntervalNanos;
+    }
+
+    public List<Genre> findAll() {
+        List<Genre> genres = new ArrayList<>();
+        for (Genre genre : current().ordered) {
+            genres.add(copyOf(genre));
+        }
+        return genres;
+    }
+
+    public Optional<Genre> findByName(String name) {
+        return Optional.ofNullable(current().byName.get(name)).map(GenreCache::copyOf);
+    }
+
+    public List<Genre> findAllByIds(Collection<Long> ids) {
+        Snapshot current = current();
+        List<Genre> genres = new ArrayList<>();
+        Set<Long> missingIds = new HashSet<>();
+        for (Long id : ids) {
+            Genre genre = current.byId.get(id);
+            if (genre != null) {
+                genres.add(copyOf(genre));
+            } else {
+                missingIds.add(id);
+            }
+        }
+
+        // Промах читаем из базы: жанр мог появиться после загрузки снимка
+        if (!missingIds.isEmpty()) {
+            List<Genre> loaded = genreRepository.findAllByIds(missingIds);
+            if (!loaded.isEmpty()) {
+                invalidate();
+                genres.addAll(loaded);
+            }
+        }
+        return genres;
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            return loadFirst();
+        }
+        // Устаревший или сброшенный снимок обновляет один поток, остальные продолжают читать старый
+        boolean stale = current.generation != generation.get()
+                || System.nanoTime() - current.loadedAt > refreshIntervalNanos;
+        if (stale && refreshing.compareAndSet(false, true)) {
+            try {
+                Snapshot fresh = load();
+                snapshot.compareAndSet(current, fresh);
+                return fresh;
+            } finally {
+                refreshing.set(false);
+            }
+        }
+        return current;
+    }
+
+    // Прежнего снимка еще нет: загружает один поток, остальные ждут его результата
+    private Snapshot loadFirst() {
+        firstLoad.lock();
+        try {
+            Snapshot current = snapshot.get();
+            if (current == null) {
+                current = load();
+                snapshot.compareAndSet(null, current);
+            }
+            return current;
+        } finally {
+            firstLoad.unlock();
+        }
+    }
+
+    // Поколение читается до загрузки: если invalidate() пройдет во время чтения из базы,
+    // снимок сразу окажется устаревшим и следующий читатель перезагрузит его
+    private Snapshot load() {
+        long observedGeneration = generation.get();
+        return new Snapshot(genreRepository.findAll(), System.nanoTime(), observedGeneration);
+    }
+
+    private static Genre copyOf(Genre genre) {
+        Genre copy = new Genre();
+        copy.setId(genre.getId());
+        copy.setName(genre.getName());
+        copy.setDescription(genre.getDescription());
+        return copy;
+    }
+
+    private static final class Snapshot {
+        private final List<Genre> ordered;
+        private final Map<Long, Genre> byId;
+        private final Map<String, Genre> byName;
+        private final long loadedAt;
+        private final long generation;
+
+        private Snapshot(List<Genre> genres, long loadedAt, long generation) {
+            Map<Long, Genre> byId = new HashMap<>();
+            Map<String, Genre> byName = new HashMap<>();
+            for (Genre genre : genres) {
+                byId.put(genre.getId(), genre);
+                byName.put(genre.getName(), genre);
+            }
+            this.ordered = List.copyOf(genres);
+            this.byId = Map.copyOf(byId);
+            this.byName = Map.copyOf(byName);
+            this.loadedAt = loadedAt;
+            this.generation = generation;
+        }
+    }
+}
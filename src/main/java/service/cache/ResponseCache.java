@@ -0,0 +1,171 @@
+package service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import config.ApplicationConfig;
+import dto.CollectionVersion;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+// Готовые тела ответов списков в direct ByteBuffer вне кучи: попадание отдается без Jackson
+// и без новых объектов на каждый байт ответа. Размер ограничен бюджетом в байтах, вытеснение -
+// Caffeine по весу, как у DtoCache. Ключ - область (books, authors, genres) и строка запроса.
+// Вместе с телом хранится версия коллекции, по которой оно собрано: попадание отвечает на
+// условный GET без запроса к базе. Записи сбрасываются хуками сервисов, а срок жизни страхует
+// от изменений в обход них (прямой SQL, другой узел)
+public class ResponseCache {
+    public static final String BOOKS = "books";
+    public static final String AUTHORS = "authors";
+    public static final String GENRES = "genres";
+
+    // Сжатие мелких ответов не окупается
+    private static final int GZIP_MIN_BYTES = 1024;
+    private static final Duration DEFAULT_TTL = Duration.ofSeconds(60);
+
+    private final long maxBytes;
+    private final boolean gzipEnabled;
+    private final Cache<String, Entry> cache;
+    // Меняется при каждом сбросе: ответ, собранный до сброса, не должен попасть в кэш после него
+    private final AtomicLong generation = new AtomicLong();
+
+    public ResponseCache() {
+        this(ApplicationConfig.getLong("cache.responses.max.bytes", 32L * 1024 * 1024),
+                ApplicationConfig.getBoolean("cache.responses.gzip", true),
+                Duration.ofSeconds(ApplicationConfig.getLong("cache.responses.ttl.seconds", DEFAULT_TTL.getSeconds())));
+    }
+
+    public ResponseCache(long maxBytes, boolean gzipEnabled) {
+        this(maxBytes, gzipEnabled, DEFAULT_TTL);
+    }
+
+    public ResponseCache(long maxBytes, boolean gzipEnabled, Duration ttl) {
+        this.maxBytes = maxBytes;
+        this.gzipEnabled = gzipEnabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(Math.max(maxBytes, 0))
+                .weigher((String key, Entry entry) -> entry.sizeInBytes())
+                .expireAfterWrite(ttl)
+                // Вытеснение в вызывающем потоке: бюджет прямой памяти соблюдается сразу после put
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    public static String key(String region, String query) {
+        return region + ":" + (query != null ? query : "");
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    public Entry get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public Entry put(String key, long observedGeneration, byte[] body) {
+        return put(key, observedGeneration, null, body);
+    }
+
+    // observedGeneration читается до версии и загрузки данных. Возвращает null, если тело
+    // не кэшируется: одна запись не должна вытеснять большую часть кэша
+    public Entry put(String key, long observedGeneration, CollectionVersion version, byte[] body) {
+        if (!isEnabled() || body.length > maxBytes / 8) {
+            return null;
+        }
+        Entry entry = new Entry(toDirect(body), gzipEnabled && body.length >= GZIP_MIN_BYTES ? gzip(body) : null,
+                version);
+        cache.put(key, entry);
+        // Сброс мог пройти между загрузкой и записью
+        if (generation.get() != observedGeneration) {
+            cache.invalidate(key);
+        }
+        return entry;
+    }
+
+    public void invalidate(String region) {
+        generation.incrementAndGet();
+        String prefix = region + ":";
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    public long getUsedBytes() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static ByteBuffer gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Несжимаемое тело хранить второй раз незачем
+        return compressed.size() < body.length ? toDirect(compressed.toByteArray()) : null;
+    }
+
+    private static ByteBuffer toDirect(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    // Буферы отдаются копиями позиций: один и тот же ответ пишут несколько потоков сразу
+    public static final class Entry {
+        private final ByteBuffer body;
+        private final ByteBuffer gzippedBody;
+        private final CollectionVersion version;
+
+        private Entry(ByteBuffer body, ByteBuffer gzippedBody, CollectionVersion version) {
+            this.body = body;
+            this.gzippedBody = gzippedBody;
+            this.version = version;
+        }
+
+        // Версия коллекции, по которой собрано тело; null, если не передана
+        public CollectionVersion version() {
+            return version;
+        }
+
+        public ByteBuffer body() {
+            return body.duplicate();
+        }
+
+        // null, если сжатие выключено или не уменьшает ответ
+        public ByteBuffer gzippedBody() {
+            return gzippedBody != null ? gzippedBody.duplicate() : null;
+        }
+
+        int sizeInBytes() {
+            return body.capacity() + (gzippedBody != null ? gzippedBody.capacity() : 0);
+        }
+    }
+}
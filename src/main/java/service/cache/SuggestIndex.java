@@ -0,0 +1,477 @@
+package service.cache;
+
+import config.ApplicationConfig;
+import repository.AuthorRepository;
+import repository.BookRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Индекс подсказок по началу слов в названиях книг и именах авторов. Основная часть - два
+// параллельных отсортированных массива (ключ, ссылка на документ), поиск - бинарный. Изменения
+// после загрузки копятся в небольшом отсортированном наборе и периодически вливаются в массивы.
+// Чтение идет без блокировок; удаленные и измененные документы отсеиваются при чтении
+public class SuggestIndex {
+    public enum Type { BOOK, AUTHOR }
+
+    @FunctionalInterface
+    public interface Source {
+        void forEach(BiConsumer<Long, String> action);
+    }
+
+    // Длиннее префиксы в подсказках не набирают, а память на ключи растет
+    private static final int MAX_KEY_LENGTH = 32;
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_KEYS_PER_DOCUMENT = 8;
+    // Предел просмотренных ключей на запрос: защищает от длинных цепочек устаревших записей
+    private static final int MAX_SCAN = 10_000;
+    private static final int MIN_OVERLAY_COMPACTION = 1_024;
+
+    // Оценка занимаемой памяти: заголовок строки и массива, ссылки, узел хэш-таблицы
+    private static final int KEY_OVERHEAD_BYTES = 56;
+    private static final int DOCUMENT_OVERHEAD_BYTES = 120;
+
+    private final Source books;
+    private final Source authors;
+    private final long maxBytes;
+
+    private final Object writeLock = new Object();
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private volatile State state;
+    private volatile boolean stale;
+    // Изменения, пришедшие во время загрузки; доступ под writeLock
+    private List<Consumer<State>> pending;
+
+    public SuggestIndex(BookRepository bookRepository, AuthorRepository authorRepository) {
+        this(bookRepository::forEachTitle, authorRepository::forEachName,
+                ApplicationConfig.getLong("suggest.max.bytes", 64L * 1024 * 1024));
+    }
+
+    public SuggestIndex(Source books, Source authors, long maxBytes) {
+        this.books = books;
+        this.authors = authors;
+        this.maxBytes = maxBytes;
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        State current = current();
+        Segments segments = current.segments;
+        String[] keys = segments.keys;
+        long[] refs = segments.refs;
+        Map<Long, Suggestion> results = new LinkedHashMap<>();
+
+        // Ключи обрезаны до MAX_KEY_LENGTH: диапазон ищется по обрезанному префиксу,
+        // а полный префикс проверяется по тексту документа
+        String scanPrefix = normalized.length() > MAX_KEY_LENGTH ? normalized.substring(0, MAX_KEY_LENGTH) : normalized;
+        int base = lowerBound(keys, scanPrefix);
+        Iterator<Entry> overlay = segments.overlay.tailSet(new Entry(scanPrefix, Long.MIN_VALUE)).iterator();
+        Entry next = overlay.hasNext() ? overlay.next() : null;
+
+        // Слияние двух отсортированных последовательностей, пока ключи начинаются с префикса
+        for (int scanned = 0; results.size() < limit && scanned < MAX_SCAN; scanned++) {
+            boolean baseMatches = base < keys.length && keys[base].startsWith(scanPrefix);
+            boolean overlayMatches = next != null && next.key.startsWith(scanPrefix);
+            String key;
+            long ref;
+            if (baseMatches && (!overlayMatches || keys[base].compareTo(next.key) <= 0)) {
+                key = keys[base];
+                ref = refs[base++];
+            } else if (overlayMatches) {
+                key = next.key;
+                ref = next.ref;
+                next = overlay.hasNext() ? overlay.next() : null;
+            } else {
+                break;
+            }
+            Document document = current.documents.get(ref);
+            if (document != null && !results.containsKey(ref) && matches(document.normalized, key, normalized)) {
+                results.put(ref, new Suggestion(typeOf(ref), idOf(ref), document.label));
+            }
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    // Ключ устаревшей записи в тексте документа не найдется. Для префикса длиннее ключа
+    // проверяется, что текст с места ключа продолжается всем префиксом
+    private static boolean matches(String text, String key, String prefix) {
+        for (int at = text.indexOf(key); at >= 0; at = text.indexOf(key, at + 1)) {
+            if (text.startsWith(prefix, at)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void putBook(long id, String title) {
+        write(state -> state.put(ref(Type.BOOK, id), title));
+    }
+
+    public void removeBook(long id) {
+        write(state -> state.remove(ref(Type.BOOK, id)));
+    }
+
+    public void putAuthor(long id, String firstName, String lastName) {
+        write(state -> state.put(ref(Type.AUTHOR, id), authorLabel(firstName, lastName)));
+    }
+
+    public void removeAuthor(long id) {
+        write(state -> state.remove(ref(Type.AUTHOR, id)));
+    }
+
+    public void load() {
+        current();
+    }
+
+    // Полная перезагрузка при следующем запросе, например после пакетного импорта
+    public void invalidate() {
+        stale = true;
+    }
+
+    public int getDocumentCount() {
+        State current = state;
+        return current != null ? current.documents.size() : 0;
+    }
+
+    public long getEstimatedBytes() {
+        State current = state;
+        return current != null ? current.estimatedBytes : 0;
+    }
+
+    public boolean isTruncated() {
+        State current = state;
+        return current != null && current.truncated;
+    }
+
+    private State current() {
+        State current = state;
+        if (current == null) {
+            synchronized (loading) {
+                if (state == null) {
+                    reload();
+                }
+            }
+            return state;
+        }
+        // Устаревший индекс перестраивает один поток, остальные читают прежний
+        if (stale && loading.compareAndSet(false, true)) {
+            try {
+                stale = false;
+                reload();
+            } catch (RuntimeException e) {
+                // Неудачная перезагрузка повторится при следующем запросе
+                stale = true;
+                throw e;
+            } finally {
+                loading.set(false);
+            }
+        }
+        return state;
+    }
+
+    private void reload() {
+        synchronized (writeLock) {
+            pending = new ArrayList<>();
+        }
+        State fresh = new State(maxBytes);
+        try {
+            books.forEach((id, title) -> fresh.load(ref(Type.BOOK, id), title));
+            authors.forEach((id, name) -> fresh.load(ref(Type.AUTHOR, id), name));
+            fresh.finishLoad();
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                pending = null;
+            }
+            throw e;
+        }
+        synchronized (writeLock) {
+            for (Consumer<State> change : pending) {
+                change.accept(fresh);
+            }
+            pending = null;
+            state = fresh;
+        }
+    }
+
+    // До первой загрузки изменения не нужны: загрузка прочитает их из базы
+    private void write(Consumer<State> change) {
+        synchronized (writeLock) {
+            State current = state;
+            if (pending != null) {
+                pending.add(change);
+            }
+            if (current != null) {
+                change.accept(current);
+                current.compactIfNeeded();
+            }
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c == 'ё') {
+                c = 'е';
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (space && result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return result.toString();
+    }
+
+    // Ключ - остаток текста от начала каждого слова, чтобы "мир" находил "Война и мир"
+    static List<String> keys(String normalized) {
+        List<String> keys = new ArrayList<>();
+        int start = 0;
+        while (start < normalized.length() && keys.size() < MAX_KEYS_PER_DOCUMENT) {
+            int end = normalized.indexOf(' ', start);
+            int wordEnd = end < 0 ? normalized.length() : end;
+            if (wordEnd - start >= MIN_TOKEN_LENGTH) {
+                keys.add(normalized.substring(start, Math.min(normalized.length(), start + MAX_KEY_LENGTH)));
+            }
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        return keys;
+    }
+
+    private static String authorLabel(String firstName, String lastName) {
+        return ((firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "")).trim();
+    }
+
+    private static long ref(Type type, long id) {
+        return (id << 1) | type.ordinal();
+    }
+
+    private static Type typeOf(long ref) {
+        return Type.values()[(int) (ref & 1)];
+    }
+
+    private static long idOf(long ref) {
+        return ref >> 1;
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long keyBytes(String key) {
+        return KEY_OVERHEAD_BYTES + 2L * key.length();
+    }
+
+    private static final class State {
+        private final long maxBytes;
+        private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+        private volatile Segments segments = new Segments(new String[0], new long[0]);
+        private List<Entry> loaded = new ArrayList<>();
+        private long estimatedBytes;
+        private boolean truncated;
+
+        private State(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private void load(long ref, String label) {
+            Document document = document(label);
+            if (document == null) {
+                return;
+            }
+            documents.put(ref, document);
+            for (String key : keys(document.normalized)) {
+                loaded.add(new Entry(key, ref));
+            }
+        }
+
+        private void finishLoad() {
+            Entry[] entries = loaded.toArray(new Entry[0]);
+            loaded = null;
+            Arrays.sort(entries);
+            publish(entries);
+        }
+
+        private void put(long ref, String label) {
+            remove(ref);
+            Document document = document(label);
+            if (document == null) {
+                return;
+            }
+            documents.put(ref, document);
+            for (String key : keys(document.normalized)) {
+                segments.overlay.add(new Entry(key, ref));
+            }
+        }
+
+        // Ключи в массивах остаются до слияния, при чтении они отсеиваются по документу
+        private void remove(long ref) {
+            Document removed = documents.remove(ref);
+            if (removed != null) {
+                estimatedBytes -= removed.bytes;
+            }
+        }
+
+        // Документ сверх бюджета памяти не индексируется
+        private Document document(String label) {
+            if (label == null || label.isBlank()) {
+                return null;
+            }
+            Document document = new Document(label, normalize(label));
+            if (estimatedBytes + document.bytes > maxBytes) {
+                truncated = true;
+                return null;
+            }
+            estimatedBytes += document.bytes;
+            return document;
+        }
+
+        // Линейное слияние массивов и набора изменений без устаревших записей и повторов
+        private void compactIfNeeded() {
+            String[] keys = segments.keys;
+            long[] refs = segments.refs;
+            NavigableSet<Entry> changes = segments.overlay;
+            if (changes.size() < Math.max(MIN_OVERLAY_COMPACTION, keys.length / 16)) {
+                return;
+            }
+            List<Entry> merged = new ArrayList<>(keys.length + changes.size());
+            Entry previous = null;
+            Iterator<Entry> overlayIterator = changes.iterator();
+            Entry next = overlayIterator.hasNext() ? overlayIterator.next() : null;
+            int i = 0;
+            while (i < keys.length || next != null) {
+                Entry entry;
+                if (next == null || (i < keys.length && Entry.compare(keys[i], refs[i], next) <= 0)) {
+                    entry = new Entry(keys[i], refs[i]);
+                    i++;
+                } else {
+                    entry = next;
+                    next = overlayIterator.hasNext() ? overlayIterator.next() : null;
+                }
+                Document document = documents.get(entry.ref);
+                if (document != null && document.normalized.contains(entry.key)
+                        && (previous == null || previous.compareTo(entry) != 0)) {
+                    merged.add(entry);
+                    previous = entry;
+                }
+            }
+            publish(merged.toArray(new Entry[0]));
+        }
+
+        private void publish(Entry[] entries) {
+            String[] newKeys = new String[entries.length];
+            long[] newRefs = new long[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                newKeys[i] = entries[i].key;
+                newRefs[i] = entries[i].ref;
+            }
+            segments = new Segments(newKeys, newRefs);
+        }
+    }
+
+    // Массивы и набор изменений публикуются одним объектом, чтобы читатель видел их согласованными
+    private static final class Segments {
+        private final String[] keys;
+        private final long[] refs;
+        private final NavigableSet<Entry> overlay = new ConcurrentSkipListSet<>();
+
+        private Segments(String[] keys, long[] refs) {
+            this.keys = keys;
+            this.refs = refs;
+        }
+    }
+
+    private static final class Document {
+        private final String label;
+        private final String normalized;
+        private final long bytes;
+
+        private Document(String label, String normalized) {
+            this.label = label;
+            this.normalized = normalized;
+            long keyBytes = 0;
+            for (String key : keys(normalized)) {
+                keyBytes += keyBytes(key);
+            }
+            this.bytes = DOCUMENT_OVERHEAD_BYTES + 2L * (label.length() + normalized.length()) + keyBytes;
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final String key;
+        private final long ref;
+
+        private Entry(String key, long ref) {
+            this.key = key;
+            this.ref = ref;
+        }
+
+        private static int compare(String key, long ref, Entry other) {
+            int byKey = key.compareTo(other.key);
+            return byKey != 0 ? byKey : Long.compare(ref, other.ref);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return compare(key, ref, other);
+        }
+    }
+
+    public static final class Suggestion {
+        private final Type type;
+        private final long id;
+        private final String text;
+
+        private Suggestion(Type type, long id, String text) {
+            this.type = type;
+            this.id = id;
+            this.text = text;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+}
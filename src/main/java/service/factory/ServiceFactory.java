@@ -1,5 +1,6 @@
 package service.factory;
 
+import config.ApplicationConfig;
 import mapper.AuthorMapper;
 import mapper.BookMapper;
 import mapper.GenreMapper;
@@ -8,14 +9,26 @@ import repository.BookRepository;
 import repository.GenreRepository;
 import service.AuthorService;
 import service.BookService;
+import service.ExportService;
 import service.GenreService;
+import service.SuggestService;
+import service.cache.EntityCaches;
+import service.cache.GenreCache;
+import service.cache.SuggestIndex;
+import service.limit.ConcurrencyLimiter;
 
 public class ServiceFactory {
-    private static ServiceFactory INSTANCE = null;
+    // volatile: экземпляр, собранный одним потоком, виден остальным полностью
+    private static volatile ServiceFactory INSTANCE = null;
 
     private final AuthorService authorService;
     private final BookService bookService;
     private final GenreService genreService;
+    private final ExportService exportService;
+    private final SuggestService suggestService;
+    private final SuggestIndex suggestIndex;
+    private final EntityCaches entityCaches;
+    private final ConcurrencyLimiter concurrencyLimiter;
 
     // Конструктор для production
     ServiceFactory() {
@@ -28,21 +41,43 @@ public class ServiceFactory {
         BookMapper bookMapper = BookMapper.INSTANCE;
         GenreMapper genreMapper = GenreMapper.INSTANCE;
 
-        this.authorService = new AuthorService(authorRepository, authorMapper);
+        // Кэши DTO общие, чтобы запись одной сущности сбрасывала встроенные в другие DTO копии
+        this.entityCaches = new EntityCaches();
+
+        // Индекс подсказок общий: его обновляют и книги, и авторы
+        this.suggestIndex = new SuggestIndex(bookRepository, authorRepository);
+
+        this.authorService = new AuthorService(authorRepository, authorMapper, entityCaches, suggestIndex);
         this.bookService = new BookService(bookRepository, authorRepository,
-                genreRepository, bookMapper);
-        this.genreService = new GenreService(genreRepository, genreMapper);
+                genreRepository, bookMapper, entityCaches, suggestIndex);
+        this.genreService = new GenreService(genreRepository, genreMapper,
+                new GenreCache(genreRepository), entityCaches);
+        this.exportService = new ExportService(bookRepository, authorRepository, genreRepository);
+        this.suggestService = new SuggestService(suggestIndex);
+        // Предел общий для всех сервлетов: они делят один пул соединений
+        this.concurrencyLimiter = ApplicationConfig.getBoolean("limiter.enabled", true)
+                ? new ConcurrencyLimiter()
+                : null;
     }
 
+    // Обычно экземпляр создает ApplicationLifecycleListener при старте. Если первым успел
+    // другой поток, фабрика все равно строится один раз: пулы и кэши не дублируются
     public static ServiceFactory getInstance() {
-        if (INSTANCE == null) {
-            INSTANCE = new ServiceFactory();
+        ServiceFactory instance = INSTANCE;
+        if (instance == null) {
+            synchronized (ServiceFactory.class) {
+                instance = INSTANCE;
+                if (instance == null) {
+                    instance = new ServiceFactory();
+                    INSTANCE = instance;
+                }
+            }
         }
-        return INSTANCE;
+        return instance;
     }
 
     // Метод для тестов
-    static void setInstance(ServiceFactory instance) {
+    static synchronized void setInstance(ServiceFactory instance) {
         INSTANCE = instance;
     }
 
@@ -57,4 +92,25 @@ public class ServiceFactory {
     public GenreService getGenreService() {
         return genreService;
     }
+
+    public ExportService getExportService() {
+        return exportService;
+    }
+
+    public SuggestService getSuggestService() {
+        return suggestService;
+    }
+
+    public SuggestIndex getSuggestIndex() {
+        return suggestIndex;
+    }
+
+    public EntityCaches getEntityCaches() {
+        return entityCaches;
+    }
+
+    // null, если ограничение выключено настройкой limiter.enabled
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
 }
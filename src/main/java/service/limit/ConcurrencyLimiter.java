@@ -0,0 +1,147 @@
+package service.limit;
+
+import config.ApplicationConfig;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Адаптивный предел одновременных запросов к базе (градиентный алгоритм в духе Gradient2).
+// Долгая средняя задержка сравнивается с задержкой последнего запроса: ее рост означает
+// очередь за соединениями пула, и предел уменьшается пропорционально. Пока задержка не растет,
+// предел увеличивается на sqrt(limit). Запросы сверх предела отклоняются сразу, а не ждут
+// соединение до таймаута пула
+public class ConcurrencyLimiter {
+    // Средняя по последним ~600 замерам
+    private static final double LONG_RTT_SMOOTHING = 2.0 / 601;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    // Допустимый рост задержки, при котором предел еще не снижается
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long retryAfterSeconds;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    // Изменяется только под монитором
+    private double longRttNanos;
+
+    public ConcurrencyLimiter() {
+        this(ApplicationConfig.getInt("limiter.initial", 20),
+                ApplicationConfig.getInt("limiter.min", 2),
+                ApplicationConfig.getInt("limiter.max", 200),
+                ApplicationConfig.getLong("limiter.retry.after.seconds", 1),
+                System::nanoTime);
+    }
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                              long retryAfterSeconds, LongSupplier nanoClock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    // null - предел исчерпан, запрос нужно отклонить
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(nanoClock.getAsLong(), current + 1);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public double getLongRttMillis() {
+        synchronized (this) {
+            return longRttNanos / 1_000_000.0;
+        }
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart, boolean dropped) {
+        double rtt = Math.max(rttNanos, 1);
+        if (longRttNanos == 0) {
+            longRttNanos = rtt;
+        } else {
+            longRttNanos += (rtt - longRttNanos) * LONG_RTT_SMOOTHING;
+        }
+        // Нагрузка спала: средняя быстрее возвращается к новой базовой задержке
+        if (longRttNanos / rtt > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double current = limit;
+        // Пока запросов заметно меньше предела, нет сигнала ни для роста, ни для снижения
+        if (!dropped && inFlightAtStart < current / 2) {
+            return;
+        }
+
+        double gradient = dropped
+                ? MIN_GRADIENT
+                : Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * longRttNanos / rtt));
+        double target = current * gradient + Math.sqrt(current);
+        double smoothed = current * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+
+    // Разрешение нужно вернуть ровно один раз одним из трех способов
+    public final class Permit {
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void onSuccess() {
+            release(true, false);
+        }
+
+        // Ошибка или таймаут: признак перегрузки, предел снижается сильнее
+        public void onDropped() {
+            release(true, true);
+        }
+
+        // Запрос занял место, но его задержка не показательна (например, потоковая выдача)
+        public void onIgnore() {
+            release(false, false);
+        }
+
+        private void release(boolean sample, boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                if (sample) {
+                    onSample(nanoClock.getAsLong() - startNanos, inFlightAtStart, dropped);
+                }
+            }
+        }
+    }
+}
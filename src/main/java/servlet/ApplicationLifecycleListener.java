@@ -0,0 +1,91 @@
+package servlet;
+
+import config.ApplicationConfig;
+import config.DatabaseConfig;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import service.factory.ServiceFactory;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Запуск и остановка приложения. Контейнер вызывает contextInitialized до приема запросов,
+// поэтому сервисы, пул соединений, индекс подсказок и JIT готовы к первому запросу.
+// При остановке новые запросы получают 503, начатые дорабатывают, затем закрывается пул
+public class ApplicationLifecycleListener implements ServletContextListener {
+    private static final Logger LOGGER = Logger.getLogger(ApplicationLifecycleListener.class.getName());
+
+    private static volatile boolean ready;
+    private static boolean shuttingDown;
+
+    public static boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        long startNanos = System.nanoTime();
+        BaseServlet.setDraining(false);
+        ServiceFactory factory = ServiceFactory.getInstance();
+
+        // Недоступная при старте база не мешает развертыванию: соединения откроются позже
+        try {
+            DatabaseConfig.prefill();
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Connection pool pre-fill failed", e);
+        }
+        try {
+            factory.getSuggestService().warmUp();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Suggest index warm-up failed, it will be loaded on first request", e);
+        }
+
+        if (ApplicationConfig.getBoolean("startup.warmup.enabled", true)) {
+            StartupWarmUp warmUp = new StartupWarmUp(factory.getBookService(), factory.getAuthorService(),
+                    factory.getGenreService(), factory.getSuggestService(),
+                    ApplicationConfig.getInt("startup.warmup.threads", 4),
+                    ApplicationConfig.getInt("startup.warmup.iterations", 50),
+                    ApplicationConfig.getLong("startup.warmup.millis", 10_000));
+            try {
+                long operations = warmUp.run();
+                LOGGER.info("Warm-up completed " + operations + " read operations");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        ready = true;
+        LOGGER.info("Application ready in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms");
+    }
+
+    // Контейнер уничтожает сервлеты раньше, чем вызывает contextDestroyed, поэтому остановку
+    // начинает первый уничтожаемый сервлет (BaseServlet.destroy). Здесь она только завершается,
+    // если до этого не дошло, и закрывается пул
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        beginShutdown();
+        DatabaseConfig.close();
+    }
+
+    // Готовность снимается, новые запросы получают 503, затем ожидаются обработчики, которые
+    // еще работают, включая завершенные таймаутом. Повторные вызовы ничего не делают
+    static synchronized void beginShutdown() {
+        if (shuttingDown) {
+            return;
+        }
+        shuttingDown = true;
+        ready = false;
+        BaseServlet.setDraining(true);
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(ApplicationConfig.getLong("shutdown.drain.seconds", 10));
+        try {
+            if (!BaseServlet.awaitInFlight(timeoutMillis)) {
+                LOGGER.warning(BaseServlet.getInFlightCount() + " requests still running after "
+                        + timeoutMillis + " ms, shutting down anyway");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -7,21 +7,30 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import repository.FieldSet;
 import service.AuthorService;
+import service.cache.ResponseCache;
 import service.factory.ServiceFactory;
+import service.limit.ConcurrencyLimiter;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.Map;
 
 public class AuthorServlet extends BaseServlet {
     private final AuthorService authorService;
 
     public AuthorServlet() {
+        super(ServiceFactory.getInstance().getConcurrencyLimiter(),
+                ServiceFactory.getInstance().getEntityCaches().responses());
         this.authorService = ServiceFactory.getInstance().getAuthorService();
     }
 
     AuthorServlet(AuthorService authorService) {
+        this(authorService, null);
+    }
+
+    AuthorServlet(AuthorService authorService, ConcurrencyLimiter concurrencyLimiter) {
+        super(concurrencyLimiter);
         this.authorService = authorService;
     }
 
@@ -32,13 +41,32 @@ public class AuthorServlet extends BaseServlet {
             String pathInfo = request.getPathInfo();
             if (pathInfo == null || pathInfo.equals("/")) {
                 // Если путь /api/authors или /api/authors/, возвращаем всех авторов
-                List<AuthorDto> authors = authorService.findAll();
-                sendResponse(response, authors, HttpServletResponse.SC_OK);
+                int limit = parseLimit(request);
+                FieldSet fields = parseFields(request, FieldSet.AUTHOR_FIELDS);
+                if (isStreamRequest(request)) {
+                    if (checkCollectionNotModified(request, response, ResponseCache.AUTHORS,
+                            authorService.getCollectionVersion())) {
+                        return;
+                    }
+                    this.<AuthorDto>sendStreamingResponse(response,
+                            action -> authorService.streamAll(fields, action), fields);
+                } else if (isPageRequest(request)) {
+                    sendCachedResponse(request, response, ResponseCache.AUTHORS, authorService::getCollectionVersion,
+                            () -> authorService.findPage(fields, request.getParameter("after"), limit), fields);
+                } else {
+                    sendCachedResponse(request, response, ResponseCache.AUTHORS, authorService::getCollectionVersion,
+                            () -> authorService.findAll(fields), fields);
+                }
             } else {
                 // Если путь /api/authors/{id}, возвращаем конкретного автора
                 Long id = parseId(pathInfo);
+                FieldSet fields = parseFields(request, FieldSet.AUTHOR_FIELDS);
+                // Одна сущность берется из кэша DTO целиком, поля отбираются при сериализации
                 AuthorDto author = authorService.findById(id);
-                sendResponse(response, author, HttpServletResponse.SC_OK);
+                if (checkEntityNotModified(request, response, "author", id, author.getUpdatedAt(), author.getBooks())) {
+                    return;
+                }
+                sendResponse(response, author, HttpServletResponse.SC_OK, fields);
             }
         } catch (IllegalArgumentException e) {
             handleException(new ValidationException("Invalid ID format",
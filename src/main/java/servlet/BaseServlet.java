@@ -1,29 +1,397 @@
 package servlet;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import config.ApplicationConfig;
+import config.ReplicaRouter;
 import exception.*;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import metrics.CountingResponseWrapper;
+import metrics.MetricsRegistry;
+import metrics.ServletMetrics;
+import repository.FieldSet;
+import service.cache.ResponseCache;
+import service.limit.ConcurrencyLimiter;
+import dto.CollectionVersion;
 import dto.ErrorResponse;
 import dto.ValidationErrorResponse;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public abstract class BaseServlet extends HttpServlet {
-    protected final ObjectMapper objectMapper;
+    protected static final int DEFAULT_PAGE_LIMIT = 50;
+    protected static final int MAX_PAGE_LIMIT = 500;
+    private static final int WRITE_CHUNK_BYTES = 8192;
+
+    // Запрос не занимает поток Tomcat на время обращения к базе: обработка уходит
+    // в виртуальный поток, а поток контейнера сразу возвращается в пул
+    private static final ExecutorService REQUEST_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Запросы, обработчики которых еще работают, во всех сервлетах: их дожидается остановка
+    // приложения. Счетчик уменьшает сам обработчик, а не таймаут, завершивший ответ раньше него
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+    private static volatile boolean draining;
+
+    private final ServletMetrics metrics;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final ResponseCache responseCache;
+    private final boolean asyncEnabled;
+    private final long asyncTimeoutMillis;
+    private final long maxRequestBytes;
 
     protected BaseServlet() {
-        this.objectMapper = new ObjectMapper();
+        this(null);
+    }
+
+    // concurrencyLimiter может быть null: сервлет работает без ограничения параллельности
+    protected BaseServlet(ConcurrencyLimiter concurrencyLimiter) {
+        this(concurrencyLimiter, null);
+    }
+
+    // responseCache может быть null: списки сериализуются на каждый запрос
+    protected BaseServlet(ConcurrencyLimiter concurrencyLimiter, ResponseCache responseCache) {
+        this.metrics = MetricsRegistry.getInstance().servlet(getClass().getSimpleName());
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.responseCache = responseCache;
+        this.asyncEnabled = ApplicationConfig.getBoolean("servlet.async.enabled", true);
+        this.asyncTimeoutMillis = TimeUnit.SECONDS.toMillis(
+                ApplicationConfig.getLong("servlet.async.timeout.seconds", 30));
+        this.maxRequestBytes = ApplicationConfig.getLong("servlet.request.max.bytes", 1024 * 1024);
+    }
+
+    // Асинхронный режим включается только для сервлетов с async-supported в web.xml
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        long startNanos = System.nanoTime();
+        CountingResponseWrapper countingResponse = new CountingResponseWrapper(response);
+
+        // При остановке новые запросы не начинаются: балансировщик повторит их на другом узле
+        if (draining && rejectsWhileDraining()) {
+            handleException(new ServiceUnavailableException("Server is shutting down", 1), countingResponse);
+            recordRequest(request, countingResponse, startNanos);
+            return;
+        }
+
+        // Сверх предела отвечаем сразу, не дожидаясь соединения из пула
+        ConcurrencyLimiter.Permit permit = null;
+        if (concurrencyLimiter != null) {
+            permit = concurrencyLimiter.tryAcquire();
+            if (permit == null) {
+                handleException(new ServiceUnavailableException("Too many concurrent requests",
+                        concurrencyLimiter.getRetryAfterSeconds()), countingResponse);
+                recordRequest(request, countingResponse, startNanos);
+                return;
+            }
+        }
+
+        boolean longRunning = isLongRunningRequest(request);
+        IN_FLIGHT.incrementAndGet();
+        // Долгие запросы идут в потоке контейнера, как выгрузка ExportServlet: таймаут асинхронного
+        // запроса прервал бы их на середине, а сбой после начала ответа обрывает соединение только
+        // исключением из service() - асинхронный запрос контейнер всегда завершает штатно
+        if (!asyncEnabled || longRunning || !request.isAsyncSupported()) {
+            try {
+                super.service(request, countingResponse);
+            } finally {
+                ReplicaRouter.clearRequestState();
+                releasePermit(permit, longRunning, countingResponse.getStatus());
+                recordRequest(request, countingResponse, startNanos);
+                IN_FLIGHT.decrementAndGet();
+            }
+            return;
+        }
+
+        try {
+            serviceAsync(request, countingResponse, permit, startNanos);
+        } catch (RuntimeException e) {
+            releasePermit(permit, false, countingResponse.getStatus());
+            recordRequest(request, countingResponse, startNanos);
+            IN_FLIGHT.decrementAndGet();
+            throw e;
+        }
+    }
+
+    // Обработчик пишет в GuardedResponse: кто первым завершит запрос - обработчик, таймаут или
+    // ошибка контейнера, - тот и отвечает, а остальные записи отбрасываются. Разрешение
+    // ограничителя и счетчик незавершенных запросов освобождает только сам обработчик:
+    // после таймаута он еще может держать соединение из пула
+    private void serviceAsync(HttpServletRequest request, CountingResponseWrapper response,
+                              ConcurrencyLimiter.Permit permit, long startNanos) {
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(asyncTimeoutMillis);
+        GuardedResponse guarded = new GuardedResponse(response);
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                boolean completed = guarded.finish(() -> {
+                    Thread thread = worker.get();
+                    if (thread != null) {
+                        thread.interrupt();
+                    }
+                    if (!response.isCommitted()) {
+                        response.reset();
+                        handleException(new ServiceUnavailableException("Request timed out"), response);
+                    }
+                    recordRequest(request, response, startNanos);
+                });
+                if (completed) {
+                    asyncContext.complete();
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) throws IOException {
+                if (guarded.finish(() -> recordRequest(request, response, startNanos))) {
+                    asyncContext.complete();
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        REQUEST_EXECUTOR.execute(() -> {
+            worker.set(Thread.currentThread());
+            try {
+                super.service(request, guarded);
+            } catch (Exception e) {
+                // doXxx сами отвечают на LibraryException; сюда доходят только непредвиденные ошибки.
+                // После таймаута ответ закрыт и выглядит отправленным
+                if (!guarded.isCommitted()) {
+                    try {
+                        handleException(new LibraryException("Internal server error", e), guarded);
+                    } catch (IOException ignored) {
+                        // Клиент уже отключился или запрос завершен таймаутом
+                    }
+                }
+            } finally {
+                ReplicaRouter.clearRequestState();
+                worker.set(null);
+                try {
+                    if (guarded.finish(() -> recordRequest(request, response, startNanos))) {
+                        asyncContext.complete();
+                    }
+                } catch (IOException ignored) {
+                    // recordRequest не пишет в ответ
+                } finally {
+                    releasePermit(permit, false, guarded.getStatus());
+                    IN_FLIGHT.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    // Вызывается ровно один раз на запрос, когда ответ завершен
+    private void recordRequest(HttpServletRequest request, CountingResponseWrapper response, long startNanos) {
+        metrics.recordRequest(request.getMethod(), response.getStatus(),
+                System.nanoTime() - startNanos, response.getBytesWritten());
+    }
+
+    // Первый уничтожаемый сервлет начинает остановку приложения и ждет обработчики всех
+    // сервлетов: после этого можно уничтожать остальные и закрывать пул
+    @Override
+    public void destroy() {
+        ApplicationLifecycleListener.beginShutdown();
+        super.destroy();
+    }
+
+    // Служебные сервлеты (проверки состояния) отвечают и во время остановки
+    protected boolean rejectsWhileDraining() {
+        return true;
+    }
+
+    static void setDraining(boolean value) {
+        draining = value;
+    }
+
+    static int getInFlightCount() {
+        return IN_FLIGHT.get();
+    }
+
+    // Ждет завершения начатых запросов; false, если за timeoutMillis они не закончились
+    static boolean awaitInFlight(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (IN_FLIGHT.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
     }
 
     protected void sendResponse(HttpServletResponse response, Object data, int status) throws IOException {
+        sendResponse(response, data, status, FieldSet.ALL);
+    }
+
+    // JSON пишется байтами UTF-8 прямо в поток ответа, без промежуточного Writer
+    protected void sendResponse(HttpServletResponse response, Object data, int status, FieldSet fields)
+            throws IOException {
         response.setStatus(status);
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        objectMapper.writeValue(response.getWriter(), data);
+        JsonSupport.writer(fields).writeValue(response.getOutputStream(), data);
+    }
+
+    // Список берется из кэша готовых ответов: при попадании нет ни запроса к базе, ни Jackson,
+    // условный GET проверяется по версии, сохраненной вместе с телом. При промахе версия
+    // читается из базы, а тело сериализуется один раз в байты, которые и кэшируются, и отправляются.
+    // Область кэша служит и видом коллекции в ETag
+    protected void sendCachedResponse(HttpServletRequest request, HttpServletResponse response, String region,
+                                      Supplier<CollectionVersion> version, Supplier<?> loader, FieldSet fields)
+            throws IOException {
+        if (responseCache == null || !responseCache.isEnabled()) {
+            if (!checkCollectionNotModified(request, response, region, version.get())) {
+                sendResponse(response, loader.get(), HttpServletResponse.SC_OK, fields);
+            }
+            return;
+        }
+
+        String key = ResponseCache.key(region, request.getQueryString());
+        ResponseCache.Entry entry = responseCache.get(key);
+        byte[] uncached = null;
+        if (entry != null) {
+            if (checkCollectionNotModified(request, response, region, entry.version())) {
+                return;
+            }
+        } else {
+            long generation = responseCache.generation();
+            CollectionVersion current = version.get();
+            if (checkCollectionNotModified(request, response, region, current)) {
+                return;
+            }
+            uncached = JsonSupport.writer(fields).writeValueAsBytes(loader.get());
+            entry = responseCache.put(key, generation, current, uncached);
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.addHeader("Vary", "Accept-Encoding");
+        if (entry == null) {
+            response.getOutputStream().write(uncached);
+            return;
+        }
+
+        ByteBuffer body = acceptsGzip(request) ? entry.gzippedBody() : null;
+        if (body != null) {
+            response.setHeader("Content-Encoding", "gzip");
+        } else {
+            body = entry.body();
+        }
+        response.setContentLengthLong(body.remaining());
+        writeBuffer(body, response.getOutputStream());
+    }
+
+    // В Servlet 6.0 у ServletOutputStream нет write(ByteBuffer): копируем через небольшой буфер
+    private static void writeBuffer(ByteBuffer source, OutputStream out) throws IOException {
+        byte[] chunk = new byte[Math.min(source.remaining(), WRITE_CHUNK_BYTES)];
+        while (source.hasRemaining()) {
+            int length = Math.min(source.remaining(), chunk.length);
+            source.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    protected <T> void sendStreamingResponse(HttpServletResponse response, StreamSource<T> source) throws IOException {
+        sendStreamingResponse(response, source, FieldSet.ALL);
+    }
+
+    // Пишет массив JSON по одному элементу, не собирая весь список в памяти
+    protected <T> void sendStreamingResponse(HttpServletResponse response, StreamSource<T> source, FieldSet fields)
+            throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        ObjectWriter writer = JsonSupport.writer(fields);
+        JsonGenerator generator = writer.createGenerator(response.getOutputStream());
+        try {
+            generator.writeStartArray();
+            source.forEach(item -> {
+                try {
+                    writer.writeValue(generator, item);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            generator.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            // Пока ответ не отправлен, можно заменить начатый массив сообщением об ошибке,
+            // иначе handleException оборвет соединение
+            if (!response.isCommitted()) {
+                response.resetBuffer();
+            }
+            throw e;
+        }
+    }
+
+    protected boolean isStreamRequest(HttpServletRequest request) {
+        return Boolean.parseBoolean(request.getParameter("stream"));
+    }
+
+    // Запрос, длительность которого задает объем данных, а не нагрузка: потоковая выдача,
+    // пакетная загрузка. Он не ограничен таймаутом и не влияет на адаптивный предел
+    protected boolean isLongRunningRequest(HttpServletRequest request) {
+        return isStreamRequest(request);
+    }
+
+    // Ответ 5xx (включая таймаут) считается признаком перегрузки и снижает предел сильнее
+    private static void releasePermit(ConcurrencyLimiter.Permit permit, boolean longRunning, int status) {
+        if (permit == null) {
+            return;
+        }
+        if (longRunning) {
+            permit.onIgnore();
+        } else if (status >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR) {
+            permit.onDropped();
+        } else {
+            permit.onSuccess();
+        }
     }
 
     protected void sendError(HttpServletResponse response, LibraryException e, int status) throws IOException {
@@ -38,19 +406,42 @@ public abstract class BaseServlet extends HttpServlet {
         response.setStatus(status);
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        objectMapper.writeValue(response.getWriter(), errorResponse);
+        JsonSupport.writer().writeValue(response.getOutputStream(), errorResponse);
     }
 
+    // Тело разбирается прямо из потока запроса; предел размера проверяется по Content-Length
+    // до чтения и по фактически прочитанным байтам во время разбора
     protected <T> T readRequestBody(HttpServletRequest request, Class<T> clazz) throws IOException {
-        String body = request.getReader().lines().collect(Collectors.joining());
-        return objectMapper.readValue(body, clazz);
+        if (request.getContentLengthLong() > maxRequestBytes) {
+            throw new PayloadTooLargeException(maxRequestBytes);
+        }
+        try {
+            return JsonSupport.reader(clazz).readValue(new BoundedInputStream(request.getInputStream(), maxRequestBytes));
+        } catch (BoundedInputStream.LimitExceededException e) {
+            throw new PayloadTooLargeException(maxRequestBytes);
+        }
     }
 
+    // После отправки первых байт ответ уже не заменить ошибкой: дописанный JSON испортил бы тело,
+    // а штатное завершение выдало бы усеченный массив за полный. Исключение из service()
+    // заставляет контейнер оборвать соединение
     protected void handleException(LibraryException e, HttpServletResponse response) throws IOException {
+        metrics.recordError(e.getClass());
+        if (response.isCommitted()) {
+            throw new IOException("Response interrupted", e);
+        }
         if (e instanceof EntityNotFoundException) {
             sendError(response, e, HttpServletResponse.SC_NOT_FOUND);
         } else if (e instanceof ValidationException || e instanceof DuplicateEntityException) {
             sendError(response, e, HttpServletResponse.SC_BAD_REQUEST);
+        } else if (e instanceof PayloadTooLargeException) {
+            sendError(response, e, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        } else if (e instanceof ServiceUnavailableException) {
+            long retryAfter = ((ServiceUnavailableException) e).getRetryAfterSeconds();
+            if (retryAfter > 0) {
+                response.setHeader("Retry-After", String.valueOf(retryAfter));
+            }
+            sendError(response, e, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
         } else if (e instanceof DatabaseException) {
             sendError(response, new LibraryException("Internal server error"),
                     HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
@@ -74,4 +465,105 @@ public abstract class BaseServlet extends HttpServlet {
                     Map.of("id", "ID must be a number but was: '" + idStr + "'"));
         }
     }
-}
\ No newline at end of file
+
+    // Условный GET для одной сущности: версия учитывает время изменения встроенных
+    // сущностей и их количество, чтобы удаление связи тоже меняло ETag
+    protected boolean checkEntityNotModified(HttpServletRequest request, HttpServletResponse response,
+                                             String kind, Long id, Instant updatedAt, Collection<?> embedded) {
+        if (updatedAt == null) {
+            return false;
+        }
+        int embeddedCount = embedded != null ? embedded.size() : 0;
+        String etag = "W/\"" + kind + "-" + id + "-" + updatedAt.toEpochMilli() + "-" + embeddedCount + "\"";
+        return checkNotModified(request, response, etag, updatedAt);
+    }
+
+    // Условный GET для списка: валидатор строится из версии коллекции и времени ее изменения
+    protected boolean checkCollectionNotModified(HttpServletRequest request, HttpServletResponse response,
+                                                 String kind, CollectionVersion version) {
+        if (version == null) {
+            return false;
+        }
+        Instant lastModified = version.getLastModified();
+        String etag = "W/\"" + kind + "-" + version.getVersion() + "-"
+                + (lastModified != null ? lastModified.toEpochMilli() : 0) + "\"";
+        return checkNotModified(request, response, etag, lastModified);
+    }
+
+    private boolean checkNotModified(HttpServletRequest request, HttpServletResponse response,
+                                     String etag, Instant lastModified) {
+        response.setHeader("ETag", etag);
+        if (lastModified != null) {
+            response.setDateHeader("Last-Modified", lastModified.toEpochMilli());
+        }
+
+        boolean notModified;
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            // If-None-Match имеет приоритет над If-Modified-Since
+            notModified = matchesEtag(ifNoneMatch, etag);
+        } else {
+            notModified = lastModified != null && isNotModifiedSince(request, lastModified);
+        }
+
+        if (notModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    private boolean matchesEtag(String ifNoneMatch, String etag) {
+        String expected = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeakPrefix(tag).equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String stripWeakPrefix(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private boolean isNotModifiedSince(HttpServletRequest request, Instant lastModified) {
+        try {
+            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+            // HTTP-даты имеют точность до секунды
+            return ifModifiedSince > 0 && lastModified.getEpochSecond() * 1000 <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    protected interface StreamSource<T> {
+        void forEach(Consumer<T> action);
+    }
+
+    protected FieldSet parseFields(HttpServletRequest request, List<String> allowed) {
+        return FieldSet.parse(request.getParameter("fields"), allowed);
+    }
+
+    protected boolean isPageRequest(HttpServletRequest request) {
+        return request.getParameter("limit") != null || request.getParameter("after") != null;
+    }
+
+    protected int parseLimit(HttpServletRequest request) {
+        String limitStr = request.getParameter("limit");
+        if (limitStr == null || limitStr.isEmpty()) {
+            return DEFAULT_PAGE_LIMIT;
+        }
+        try {
+            int limit = Integer.parseInt(limitStr);
+            if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+                throw new ValidationException("limit",
+                        "Limit must be between 1 and " + MAX_PAGE_LIMIT + " but was: " + limit);
+            }
+            return limit;
+        } catch (NumberFormatException e) {
+            throw new ValidationException("limit", "Limit must be a number but was: '" + limitStr + "'");
+        }
+    }
+}
@@ -1,24 +1,37 @@
 package servlet;
 
 import dto.BookDto;
+import dto.BookShortDto;
+import dto.BulkImportResultDto;
+import dto.PageDto;
 import exception.DatabaseException;
 import exception.LibraryException;
 import exception.ValidationException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import repository.BookFilter;
+import repository.FieldSet;
+import service.DataFormat;
 import service.BookService;
+import service.cache.ResponseCache;
 import service.factory.ServiceFactory;
+import service.limit.ConcurrencyLimiter;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 public class BookServlet extends BaseServlet {
+    private static final String BULK_PATH = "/bulk";
+    private static final String SEARCH_PATH = "/search";
+    private static final String[] FILTER_PARAMETERS = {"genreId", "authorId", "yearFrom", "yearTo", "sort"};
+
     private final BookService bookService;
 
     public BookServlet() {
+        super(ServiceFactory.getInstance().getConcurrencyLimiter(),
+                ServiceFactory.getInstance().getEntityCaches().responses());
         this.bookService = ServiceFactory.getInstance().getBookService();
     }
 
@@ -29,12 +42,40 @@ public class BookServlet extends BaseServlet {
         try {
             String pathInfo = request.getPathInfo();
             if (pathInfo == null || pathInfo.equals("/")) {
-                List<BookDto> books = bookService.findAll();
-                sendResponse(response, books, HttpServletResponse.SC_OK);
+                int limit = parseLimit(request);
+                FieldSet fields = parseFields(request, FieldSet.BOOK_FIELDS);
+                if (isFilterRequest(request)) {
+                    // Отфильтрованный список всегда отдается страницами
+                    BookFilter filter = parseFilter(request);
+                    sendCachedResponse(request, response, ResponseCache.BOOKS, bookService::getCollectionVersion,
+                            () -> bookService.findPage(filter, fields, request.getParameter("after"), limit), fields);
+                } else if (isStreamRequest(request)) {
+                    if (checkCollectionNotModified(request, response, ResponseCache.BOOKS,
+                            bookService.getCollectionVersion())) {
+                        return;
+                    }
+                    this.<BookDto>sendStreamingResponse(response,
+                            action -> bookService.streamAll(fields, action), fields);
+                } else if (isPageRequest(request)) {
+                    sendCachedResponse(request, response, ResponseCache.BOOKS, bookService::getCollectionVersion,
+                            () -> bookService.findPage(fields, request.getParameter("after"), limit), fields);
+                } else {
+                    sendCachedResponse(request, response, ResponseCache.BOOKS, bookService::getCollectionVersion,
+                            () -> bookService.findAll(fields), fields);
+                }
+            } else if (SEARCH_PATH.equals(pathInfo)) {
+                PageDto<BookShortDto> page = bookService.search(request.getParameter("q"),
+                        request.getParameter("after"), parseLimit(request));
+                sendResponse(response, page, HttpServletResponse.SC_OK);
             } else {
                 Long id = parseId(pathInfo);
+                FieldSet fields = parseFields(request, FieldSet.BOOK_FIELDS);
+                // Одна сущность берется из кэша DTO целиком, поля отбираются при сериализации
                 BookDto book = bookService.findById(id);
-                sendResponse(response, book, HttpServletResponse.SC_OK);
+                if (checkEntityNotModified(request, response, "book", id, book.getUpdatedAt(), book.getGenres())) {
+                    return;
+                }
+                sendResponse(response, book, HttpServletResponse.SC_OK, fields);
             }
         } catch (IllegalArgumentException e) {
             handleException(new ValidationException("Invalid ID format",
@@ -50,6 +91,11 @@ public class BookServlet extends BaseServlet {
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
         try {
+            if (BULK_PATH.equals(request.getPathInfo())) {
+                importBooks(request, response);
+                return;
+            }
+
             BookDto bookDto = readRequestBody(request, BookDto.class);
             validateBookDto(bookDto);
             BookDto savedBook = bookService.save(bookDto);
@@ -98,6 +144,65 @@ public class BookServlet extends BaseServlet {
         }
     }
 
+    // Пакетная загрузка сотен тысяч строк длится дольше таймаута асинхронного запроса
+    @Override
+    protected boolean isLongRunningRequest(HttpServletRequest request) {
+        return super.isLongRunningRequest(request)
+                || "POST".equals(request.getMethod()) && BULK_PATH.equals(request.getPathInfo());
+    }
+
+    private boolean isFilterRequest(HttpServletRequest request) {
+        for (String name : FILTER_PARAMETERS) {
+            if (request.getParameter(name) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BookFilter parseFilter(HttpServletRequest request) {
+        return new BookFilter(
+                parseLongParameter(request, "genreId"),
+                parseLongParameter(request, "authorId"),
+                parseIntParameter(request, "yearFrom"),
+                parseIntParameter(request, "yearTo"),
+                BookFilter.Sort.fromParameter(request.getParameter("sort")));
+    }
+
+    private Long parseLongParameter(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ValidationException(name, name + " must be a number but was: '" + value + "'");
+        }
+    }
+
+    private Integer parseIntParameter(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ValidationException(name, name + " must be a number but was: '" + value + "'");
+        }
+    }
+
+    // Тело читается потоком, поэтому размер загрузки ограничен только временем запроса
+    private void importBooks(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        DataFormat format = DataFormat.fromContentType(request.getContentType());
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding("UTF-8");
+        }
+        BulkImportResultDto result = bookService.importBooks(request.getReader(), format);
+        sendResponse(response, result, HttpServletResponse.SC_OK);
+    }
+
     private void validateBookDto(BookDto bookDto) {
         Map<String, String> errors = new HashMap<>();
 
@@ -119,6 +224,11 @@ public class BookServlet extends BaseServlet {
     }
 
     BookServlet(BookService bookService) {
+        this(bookService, null);
+    }
+
+    BookServlet(BookService bookService, ConcurrencyLimiter concurrencyLimiter) {
+        super(concurrencyLimiter);
         this.bookService = bookService;
     }
 
@@ -0,0 +1,56 @@
+package servlet;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Обрывает чтение тела запроса, как только прочитано больше maxBytes: Content-Length
+// может отсутствовать (chunked) или не совпадать с телом
+class BoundedInputStream extends FilterInputStream {
+    private final long maxBytes;
+    private long count;
+
+    BoundedInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    private void count(long n) throws LimitExceededException {
+        count += n;
+        if (count > maxBytes) {
+            throw new LimitExceededException();
+        }
+    }
+
+    // IOException, а не RuntimeException: Jackson пробрасывает ошибки чтения как есть
+    static final class LimitExceededException extends IOException {
+        LimitExceededException() {
+            super("Request body limit exceeded");
+        }
+    }
+}
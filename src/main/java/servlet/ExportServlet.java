@@ -0,0 +1,113 @@
+package servlet;
+
+import exception.LibraryException;
+import exception.ValidationException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import service.DataFormat;
+import service.ExportService;
+import service.factory.ServiceFactory;
+import service.limit.ConcurrencyLimiter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Выгрузка идет в порядке id, поэтому прерванную загрузку можно продолжить с последнего
+// полученного id: ?after=N или заголовком Range: id=N-. Выгрузка держит соединение пула
+// все время COPY, поэтому проходит через общий ограничитель, как и остальные запросы
+public class ExportServlet extends BaseServlet {
+    private static final Pattern ID_RANGE = Pattern.compile("id=(\\d+)-");
+
+    private final ExportService exportService;
+
+    public ExportServlet() {
+        super(ServiceFactory.getInstance().getConcurrencyLimiter());
+        this.exportService = ServiceFactory.getInstance().getExportService();
+    }
+
+    ExportServlet(ExportService exportService) {
+        this(exportService, null);
+    }
+
+    ExportServlet(ExportService exportService, ConcurrencyLimiter concurrencyLimiter) {
+        super(concurrencyLimiter);
+        this.exportService = exportService;
+    }
+
+    // Длительность выгрузки задает объем данных: она не должна снижать адаптивный предел
+    @Override
+    protected boolean isLongRunningRequest(HttpServletRequest request) {
+        return true;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        try {
+            String pathInfo = request.getPathInfo();
+            String collection = pathInfo == null ? "" : pathInfo.substring(1);
+            DataFormat format = DataFormat.forExport(request.getParameter("format"), request.getHeader("Accept"));
+            Long rangeStart = parseIdRange(request.getHeader("Range"));
+            Long afterId = rangeStart != null ? Long.valueOf(rangeStart - 1) : parseAfter(request.getParameter("after"));
+
+            response.setHeader("Accept-Ranges", "id");
+            response.setContentType(format.getContentType());
+            response.setCharacterEncoding("UTF-8");
+            response.setHeader("Content-Disposition",
+                    "attachment; filename=\"" + collection + "." + format.getExtension() + "\"");
+            if (rangeStart != null) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "id " + rangeStart + "-*/*");
+            } else {
+                response.setStatus(HttpServletResponse.SC_OK);
+            }
+
+            exportService.export(collection, format, afterId, response.getOutputStream());
+        } catch (LibraryException e) {
+            handleExportFailure(e, response);
+        } catch (Exception e) {
+            handleExportFailure(new LibraryException("Internal server error", e), response);
+        }
+    }
+
+    // Поддерживается только открытый диапазон "id=N-"; остальные формы игнорируются, как требует RFC 9110
+    private Long parseIdRange(String range) {
+        if (range == null) {
+            return null;
+        }
+        Matcher matcher = ID_RANGE.matcher(range.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return Math.max(Long.parseLong(matcher.group(1)), 1);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Long parseAfter(String after) {
+        if (after == null || after.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(after);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Invalid export position",
+                    Map.of("after", "Must be the last exported ID but was: '" + after + "'"));
+        }
+    }
+
+    // Ошибку до начала выгрузки можно отдать обычным JSON: сбрасываем заголовки выгрузки и выбор
+    // getOutputStream. После отправки первых байт соединение нужно оборвать, иначе клиент
+    // примет усеченную выгрузку за полную
+    private void handleExportFailure(LibraryException e, HttpServletResponse response) throws IOException {
+        if (response.isCommitted()) {
+            throw new IOException("Export interrupted", e);
+        }
+        response.reset();
+        handleException(e, response);
+    }
+}
@@ -6,18 +6,22 @@ import exception.ValidationException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import repository.FieldSet;
 import service.GenreService;
+import service.cache.ResponseCache;
 import service.factory.ServiceFactory;
+import service.limit.ConcurrencyLimiter;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 public class GenreServlet extends BaseServlet {
     private final GenreService genreService;
 
     public GenreServlet() {
+        super(ServiceFactory.getInstance().getConcurrencyLimiter(),
+                ServiceFactory.getInstance().getEntityCaches().responses());
         this.genreService = ServiceFactory.getInstance().getGenreService();
     }
 
@@ -29,12 +33,30 @@ public class GenreServlet extends BaseServlet {
         try {
             String pathInfo = request.getPathInfo();
             if (pathInfo == null || pathInfo.equals("/")) {
-                List<GenreDto> genres = genreService.findAll();
-                sendResponse(response, genres, HttpServletResponse.SC_OK);
+                int limit = parseLimit(request);
+                // Жанры - небольшой справочник из кэша в памяти, поля отбираются только при сериализации
+                FieldSet fields = parseFields(request, FieldSet.GENRE_FIELDS);
+                if (isStreamRequest(request)) {
+                    if (checkCollectionNotModified(request, response, ResponseCache.GENRES,
+                            genreService.getCollectionVersion())) {
+                        return;
+                    }
+                    sendStreamingResponse(response, genreService::streamAll, fields);
+                } else if (isPageRequest(request)) {
+                    sendCachedResponse(request, response, ResponseCache.GENRES, genreService::getCollectionVersion,
+                            () -> genreService.findPage(request.getParameter("after"), limit), fields);
+                } else {
+                    sendCachedResponse(request, response, ResponseCache.GENRES, genreService::getCollectionVersion,
+                            genreService::findAll, fields);
+                }
             } else {
                 Long id = parseId(pathInfo);
+                FieldSet fields = parseFields(request, FieldSet.GENRE_FIELDS);
                 GenreDto genre = genreService.findById(id);
-                sendResponse(response, genre, HttpServletResponse.SC_OK);
+                if (checkEntityNotModified(request, response, "genre", id, genre.getUpdatedAt(), genre.getBooks())) {
+                    return;
+                }
+                sendResponse(response, genre, HttpServletResponse.SC_OK, fields);
             }
         } catch (IllegalArgumentException e) {
             handleException(new ValidationException("Invalid ID format",
@@ -110,6 +132,15 @@ public class GenreServlet extends BaseServlet {
     }
 
     GenreServlet(GenreService genreService) {
+        this(genreService, null);
+    }
+
+    GenreServlet(GenreService genreService, ConcurrencyLimiter concurrencyLimiter) {
+        this(genreService, concurrencyLimiter, null);
+    }
+
+    GenreServlet(GenreService genreService, ConcurrencyLimiter concurrencyLimiter, ResponseCache responseCache) {
+        super(concurrencyLimiter, responseCache);
         this.genreService = genreService;
     }
 
@@ -0,0 +1,289 @@
+package servlet;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Ответ асинхронного запроса, который видит обработчик в виртуальном потоке. Таймаут или ошибка
+// контейнера могут завершить запрос раньше обработчика: после finish() запись и заголовки
+// обработчика отбрасываются, иначе поздний поток тронул бы ответ, который Tomcat уже отдал
+// другому запросу. Каждое обращение и finish() идут под одной блокировкой. ReentrantLock,
+// а не synchronized: запись в сокет под synchronized закрепила бы виртуальный поток за носителем
+final class GuardedResponse extends HttpServletResponseWrapper {
+    private final HttpServletResponse target;
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean finished;
+    private int statusAtFinish;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    GuardedResponse(HttpServletResponse response) {
+        super(response);
+        this.target = response;
+    }
+
+    // Выполняет action и закрывает ответ, если его еще никто не закрыл. action пишет
+    // в исходный ответ напрямую; complete() вызывающий делает после, уже без блокировки
+    boolean finish(Completion action) throws IOException {
+        lock.lock();
+        try {
+            if (finished) {
+                return false;
+            }
+            try {
+                action.run();
+            } finally {
+                statusAtFinish = target.getStatus();
+                finished = true;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getStatus() {
+        lock.lock();
+        try {
+            return finished ? statusAtFinish : target.getStatus();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Закрытый ответ для обработчика выглядит отправленным: он не пытается заменить его ошибкой
+    @Override
+    public boolean isCommitted() {
+        lock.lock();
+        try {
+            return finished || target.isCommitted();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        ifOpen(() -> target.setStatus(sc));
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        ifOpen(() -> target.setHeader(name, value));
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        ifOpen(() -> target.addHeader(name, value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        ifOpen(() -> target.setDateHeader(name, date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        ifOpen(() -> target.addDateHeader(name, date));
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        ifOpen(() -> target.setIntHeader(name, value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        ifOpen(() -> target.addIntHeader(name, value));
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        ifOpen(() -> target.addCookie(cookie));
+    }
+
+    @Override
+    public void setContentType(String type) {
+        ifOpen(() -> target.setContentType(type));
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        ifOpen(() -> target.setCharacterEncoding(charset));
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        ifOpen(() -> target.setContentLength(len));
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        ifOpen(() -> target.setContentLengthLong(len));
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        ifOpen(() -> target.setLocale(locale));
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        ifOpen(() -> target.setBufferSize(size));
+    }
+
+    @Override
+    public void reset() {
+        ifOpen(() -> {
+            target.reset();
+            outputStream = null;
+            writer = null;
+        });
+    }
+
+    @Override
+    public void resetBuffer() {
+        ifOpen(() -> target.resetBuffer());
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        whileOpen(() -> target.flushBuffer());
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        whileOpen(() -> target.sendError(sc, msg));
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        whileOpen(() -> target.sendError(sc));
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        whileOpen(() -> target.sendRedirect(location));
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        lock.lock();
+        try {
+            checkOpen();
+            if (outputStream == null) {
+                outputStream = new GuardedOutputStream(target.getOutputStream());
+            }
+            return outputStream;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Все ответы JSON отдаются в UTF-8
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        lock.lock();
+        try {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), StandardCharsets.UTF_8));
+            }
+            return writer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ifOpen(Runnable action) {
+        lock.lock();
+        try {
+            if (!finished) {
+                action.run();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void whileOpen(Completion action) throws IOException {
+        lock.lock();
+        try {
+            checkOpen();
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Исключение прерывает сериализацию в позднем обработчике: дописывать ответ уже некуда
+    private void checkOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Response already completed");
+        }
+    }
+
+    interface Completion {
+        void run() throws IOException;
+    }
+
+    private final class GuardedOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+
+        private GuardedOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            whileOpen(() -> delegate.write(b));
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            whileOpen(() -> delegate.write(b, off, len));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            whileOpen(delegate::flush);
+        }
+
+        // Закрытие после finish() ничего не делает: поток закроет контейнер
+        @Override
+        public void close() throws IOException {
+            lock.lock();
+            try {
+                if (!finished) {
+                    delegate.close();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            lock.lock();
+            try {
+                return !finished && delegate.isReady();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            ifOpen(() -> delegate.setWriteListener(writeListener));
+        }
+    }
+}
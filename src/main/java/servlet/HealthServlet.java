@@ -0,0 +1,50 @@
+package servlet;
+
+import exception.EntityNotFoundException;
+import exception.LibraryException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+// /health/live - процесс отвечает; /health/ready - приложение прогрето и не останавливается.
+// Балансировщик снимает узел с нагрузки по 503 на ready еще до закрытия пула
+public class HealthServlet extends BaseServlet {
+    private final BooleanSupplier readiness;
+
+    public HealthServlet() {
+        this(ApplicationLifecycleListener::isReady);
+    }
+
+    HealthServlet(BooleanSupplier readiness) {
+        this.readiness = readiness;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        try {
+            String pathInfo = request.getPathInfo();
+            if ("/live".equals(pathInfo)) {
+                sendResponse(response, Map.of("status", "UP"), HttpServletResponse.SC_OK);
+            } else if ("/ready".equals(pathInfo)) {
+                boolean ready = readiness.getAsBoolean();
+                sendResponse(response, Map.of("status", ready ? "UP" : "DOWN"),
+                        ready ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            } else {
+                throw new EntityNotFoundException("Health check", String.valueOf(pathInfo));
+            }
+        } catch (LibraryException e) {
+            handleException(e, response);
+        } catch (Exception e) {
+            handleException(new LibraryException("Internal server error", e), response);
+        }
+    }
+
+    @Override
+    protected boolean rejectsWhileDraining() {
+        return false;
+    }
+}
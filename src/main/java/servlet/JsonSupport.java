@@ -0,0 +1,80 @@
+package servlet;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import dto.AuthorDto;
+import dto.BookDto;
+import dto.GenreDto;
+import repository.FieldSet;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Общий ObjectMapper всех сервлетов. Читатели и писатели неизменяемы и потокобезопасны,
+// поэтому строятся один раз на тип (и на набор полей), а не на каждый запрос
+public final class JsonSupport {
+    static final String FIELDS_FILTER = "fields";
+
+    private static final ObjectMapper MAPPER = createMapper();
+    private static final ObjectWriter WRITER = MAPPER.writer();
+    private static final ClassValue<ObjectReader> READERS = new ClassValue<>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return MAPPER.readerFor(type);
+        }
+    };
+    // Наборов полей конечное число: имена проверяются по списку допустимых
+    private static final Map<FieldSet, ObjectWriter> FILTERED_WRITERS = new ConcurrentHashMap<>();
+
+    private JsonSupport() {
+    }
+
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    public static ObjectReader reader(Class<?> type) {
+        return READERS.get(type);
+    }
+
+    public static ObjectWriter writer() {
+        return WRITER;
+    }
+
+    public static ObjectWriter writer(FieldSet fields) {
+        if (fields.isAll()) {
+            return WRITER;
+        }
+        return FILTERED_WRITERS.computeIfAbsent(fields, key -> MAPPER.writer(new SimpleFilterProvider()
+                .addFilter(FIELDS_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(key.getNames()))));
+    }
+
+    // Потоки запроса и ответа принадлежат контейнеру: Jackson их не закрывает и не сбрасывает
+    // после каждого значения. Фильтр полей подключается миксином, поэтому вложенные DTO
+    // (автор книги, книги автора) не фильтруются; без ?fields= он пропускает все свойства
+    private static ObjectMapper createMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new BlackbirdModule());
+        mapper.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        mapper.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        mapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        for (Class<?> type : List.of(BookDto.class, AuthorDto.class, GenreDto.class)) {
+            mapper.addMixIn(type, FieldFilterMixIn.class);
+        }
+        mapper.setFilterProvider(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+        return mapper;
+    }
+
+    @JsonFilter(FIELDS_FILTER)
+    private abstract static class FieldFilterMixIn {
+    }
+}
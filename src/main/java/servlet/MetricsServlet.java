@@ -0,0 +1,39 @@
+package servlet;
+
+import exception.LibraryException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import metrics.MetricsRegistry;
+import metrics.PrometheusWriter;
+
+import java.io.IOException;
+
+public class MetricsServlet extends BaseServlet {
+    private final MetricsRegistry metricsRegistry;
+
+    public MetricsServlet() {
+        this(MetricsRegistry.getInstance());
+    }
+
+    MetricsServlet(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        try {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(PrometheusWriter.CONTENT_TYPE);
+            metricsRegistry.writePrometheus(response.getWriter());
+        } catch (Exception e) {
+            handleException(new LibraryException("Internal server error", e), response);
+        }
+    }
+
+    // Метрики нужны и во время остановки, чтобы видеть, как завершаются запросы
+    @Override
+    protected boolean rejectsWhileDraining() {
+        return false;
+    }
+}
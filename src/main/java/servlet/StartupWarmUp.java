@@ -0,0 +1,88 @@
+package servlet;
+
+import dto.BookDto;
+import dto.PageDto;
+import repository.BookFilter;
+import repository.FieldSet;
+import service.AuthorService;
+import service.BookService;
+import service.GenreService;
+import service.SuggestService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Короткий синтетический прогон путей чтения до того, как приложение объявит готовность.
+// JIT успевает скомпилировать репозитории, маппинг и сериализацию, а драйвер PostgreSQL
+// после нескольких выполнений запроса на соединении переводит его в серверный prepared statement.
+// Несколько потоков нужны, чтобы запросы разошлись по разным соединениям пула
+final class StartupWarmUp {
+    private static final Logger LOGGER = Logger.getLogger(StartupWarmUp.class.getName());
+
+    private final List<Callable<Object>> operations;
+    private final int threads;
+    private final int iterations;
+    private final long budgetNanos;
+
+    StartupWarmUp(BookService bookService, AuthorService authorService, GenreService genreService,
+                  SuggestService suggestService, int threads, int iterations, long budgetMillis) {
+        BookFilter byYear = new BookFilter(null, null, null, null, BookFilter.Sort.YEAR_DESC);
+        this.operations = List.of(
+                genreService::findAll,
+                bookService::getCollectionVersion,
+                () -> bookService.findPage(FieldSet.ALL, null, BaseServlet.DEFAULT_PAGE_LIMIT),
+                () -> bookService.findPage(byYear, FieldSet.ALL, null, BaseServlet.DEFAULT_PAGE_LIMIT),
+                () -> firstBook(bookService),
+                () -> authorService.findPage(FieldSet.ALL, null, BaseServlet.DEFAULT_PAGE_LIMIT),
+                () -> bookService.search("library", null, 10),
+                () -> suggestService.suggest("a", 10));
+        this.threads = threads;
+        this.iterations = iterations;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    // Возвращает число выполненных операций. Ошибка не мешает старту: поток прогрева
+    // останавливается, а приложение поднимается непрогретым
+    long run() throws InterruptedException {
+        long deadline = System.nanoTime() + budgetNanos;
+        AtomicLong completed = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> runOperations(deadline, completed)));
+            }
+            // Без shutdown() awaitTermination не вернется раньше срока, даже если прогрев закончился
+            executor.shutdown();
+            if (!executor.awaitTermination(budgetNanos + TimeUnit.SECONDS.toNanos(1), TimeUnit.NANOSECONDS)) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+        return completed.get();
+    }
+
+    private void runOperations(long deadline, AtomicLong completed) {
+        try {
+            for (int i = 0; i < iterations && System.nanoTime() < deadline; i++) {
+                for (Callable<Object> operation : operations) {
+                    JsonSupport.writer().writeValueAsBytes(operation.call());
+                    completed.incrementAndGet();
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Warm-up stopped early", e);
+        }
+    }
+
+    private static Object firstBook(BookService bookService) {
+        PageDto<BookDto> page = bookService.findPage(FieldSet.ALL, null, 1);
+        return page.getItems().isEmpty() ? page : bookService.findById(page.getItems().get(0).getId());
+    }
+}
@@ -0,0 +1,102 @@
+package servlet;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import exception.LibraryException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import service.cache.DtoCache;
+import service.cache.EntityCaches;
+import service.cache.ResponseCache;
+import service.cache.SuggestIndex;
+import service.factory.ServiceFactory;
+import service.limit.ConcurrencyLimiter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class StatsServlet extends BaseServlet {
+    private final EntityCaches entityCaches;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final SuggestIndex suggestIndex;
+
+    // Сам StatsServlet не ограничивается: метрики должны читаться и при перегрузке
+    public StatsServlet() {
+        this(ServiceFactory.getInstance().getEntityCaches(),
+                ServiceFactory.getInstance().getConcurrencyLimiter(),
+                ServiceFactory.getInstance().getSuggestIndex());
+    }
+
+    StatsServlet(EntityCaches entityCaches, ConcurrencyLimiter concurrencyLimiter, SuggestIndex suggestIndex) {
+        this.entityCaches = entityCaches;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.suggestIndex = suggestIndex;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        try {
+            Map<String, Object> caches = new LinkedHashMap<>();
+            for (DtoCache<?> cache : entityCaches.all()) {
+                caches.put(cache.getName(), cacheStats(cache));
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("caches", caches);
+            stats.put("responses", responseCacheStats(entityCaches.responses()));
+            if (concurrencyLimiter != null) {
+                stats.put("concurrency", concurrencyStats());
+            }
+            if (suggestIndex != null) {
+                stats.put("suggest", suggestStats());
+            }
+            sendResponse(response, stats, HttpServletResponse.SC_OK);
+        } catch (Exception e) {
+            handleException(new LibraryException("Internal server error", e), response);
+        }
+    }
+
+    private Map<String, Object> cacheStats(DtoCache<?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("requests", stats.requestCount());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRatio", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("loadFailures", stats.loadFailureCount());
+        result.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        return result;
+    }
+
+    private Map<String, Object> responseCacheStats(ResponseCache cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("bytes", cache.getUsedBytes());
+        result.put("maxBytes", cache.getMaxBytes());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRatio", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private Map<String, Object> concurrencyStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("limit", concurrencyLimiter.getLimit());
+        result.put("inFlight", concurrencyLimiter.getInFlight());
+        result.put("rejected", concurrencyLimiter.getRejectedCount());
+        result.put("longRttMillis", concurrencyLimiter.getLongRttMillis());
+        return result;
+    }
+
+    private Map<String, Object> suggestStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("documents", suggestIndex.getDocumentCount());
+        result.put("estimatedBytes", suggestIndex.getEstimatedBytes());
+        result.put("truncated", suggestIndex.isTruncated());
+        return result;
+    }
+}
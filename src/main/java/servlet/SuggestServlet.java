@@ -0,0 +1,70 @@
+package servlet;
+
+import dto.SuggestionDto;
+import exception.LibraryException;
+import exception.ValidationException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import service.SuggestService;
+import service.factory.ServiceFactory;
+import service.limit.ConcurrencyLimiter;
+
+import java.io.IOException;
+import java.util.List;
+
+public class SuggestServlet extends BaseServlet {
+    private static final int DEFAULT_SUGGEST_LIMIT = 10;
+    private static final int MAX_SUGGEST_LIMIT = 50;
+
+    private final SuggestService suggestService;
+
+    public SuggestServlet() {
+        super(ServiceFactory.getInstance().getConcurrencyLimiter());
+        this.suggestService = ServiceFactory.getInstance().getSuggestService();
+    }
+
+    SuggestServlet(SuggestService suggestService) {
+        this.suggestService = suggestService;
+    }
+
+    // Сервлет загружается при старте (load-on-startup), ошибка базы не мешает развертыванию:
+    // индекс загрузится при первом запросе
+    @Override
+    public void init() {
+        try {
+            suggestService.warmUp();
+        } catch (RuntimeException e) {
+            log("Suggest index warm-up failed, it will be loaded on first request", e);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        try {
+            List<SuggestionDto> suggestions = suggestService.suggest(request.getParameter("prefix"),
+                    parseSuggestLimit(request.getParameter("limit")));
+            sendResponse(response, suggestions, HttpServletResponse.SC_OK);
+        } catch (LibraryException e) {
+            handleException(e, response);
+        } catch (Exception e) {
+            handleException(new LibraryException("Internal server error", e), response);
+        }
+    }
+
+    private int parseSuggestLimit(String limitStr) {
+        if (limitStr == null || limitStr.isEmpty()) {
+            return DEFAULT_SUGGEST_LIMIT;
+        }
+        try {
+            int limit = Integer.parseInt(limitStr);
+            if (limit < 1 || limit > MAX_SUGGEST_LIMIT) {
+                throw new ValidationException("limit",
+                        "Limit must be between 1 and " + MAX_SUGGEST_LIMIT + " but was: " + limit);
+            }
+            return limit;
+        } catch (NumberFormatException e) {
+            throw new ValidationException("limit", "Limit must be a number but was: '" + limitStr + "'");
+        }
+    }
+}
@@ -0,0 +1,4 @@
+-- Индексы для валидаторов условного GET: max(updated_at) читается из индекса, а не полным сканированием
+CREATE INDEX idx_authors_updated_at ON authors(updated_at);
+CREATE INDEX idx_books_updated_at ON books(updated_at);
+CREATE INDEX idx_genres_updated_at ON genres(updated_at);
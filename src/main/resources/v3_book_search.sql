@@ -0,0 +1,14 @@
+-- Полнотекстовый поиск: векторы вычисляются базой при записи, поиск идет по GIN-индексам.
+-- Сгенерированный столбец не может ссылаться на другую таблицу, поэтому у книг вектор
+-- по названию, у авторов - по имени и биографии; запрос объединяет оба индекса
+ALTER TABLE books ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', coalesce(title, '')), 'A')
+) STORED;
+
+ALTER TABLE authors ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', coalesce(first_name, '') || ' ' || coalesce(last_name, '')), 'B') ||
+    setweight(to_tsvector('russian', coalesce(biography, '')), 'C')
+) STORED;
+
+CREATE INDEX idx_books_search_vector ON books USING GIN (search_vector);
+CREATE INDEX idx_authors_search_vector ON authors USING GIN (search_vector);
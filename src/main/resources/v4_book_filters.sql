@@ -0,0 +1,13 @@
+-- Индексы для фильтров GET /api/books: каждое условие вместе с порядком страницы (ключ, id)
+-- читается из индекса диапазоном, без полного чтения таблицы.
+-- Первичный ключ books_genres начинается с book_id и не помогает выбрать книги жанра
+CREATE INDEX idx_books_genres_genre_id ON books_genres(genre_id, book_id);
+
+-- Год без значения сортируется как 0: выражение совпадает с ключом сортировки в BookRepository
+CREATE INDEX idx_books_year_id ON books ((COALESCE(publication_year, 0)), id);
+
+-- Составные индексы заменяют одностолбцовые: внешний ключ и поиск по названию используют их так же
+CREATE INDEX idx_books_author_id_id ON books(author_id, id);
+DROP INDEX idx_books_author_id;
+CREATE INDEX idx_books_title_id ON books(title, id);
+DROP INDEX idx_books_title;
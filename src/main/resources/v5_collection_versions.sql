@@ -0,0 +1,131 @@
+-- Версии коллекций для условного GET: валидатор списка читается по первичному ключу,
+-- а не подсчетом строк и max(updated_at) по всей таблице. Версию таблицы увеличивает триггер
+-- каждой изменяющей ее команды, поэтому учитываются и записи в обход приложения.
+--
+-- Версия таблицы - сумма счетчиков ее 64 шардов. Сеанс увеличивает шард по своему pid, так что
+-- параллельные транзакции пула почти всегда блокируют разные строки и не ждут друг друга,
+-- а долгая пакетная загрузка держит только свой шард. Каждая зафиксированная запись
+-- увеличивает один шард, поэтому видимая сумма растет с каждой фиксацией
+CREATE TABLE collection_versions (
+    table_name VARCHAR(30) NOT NULL,
+    shard SMALLINT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (table_name, shard)
+);
+
+INSERT INTO collection_versions (table_name, shard)
+SELECT table_name, shard
+FROM unnest(ARRAY['authors', 'genres', 'books', 'books_genres']) AS table_name,
+     generate_series(0, 63) AS shard;
+
+-- Триггер уровня команды срабатывает после нее и видит измененные строки в таблице перехода
+-- changed_rows: команда, не изменившая ни одной строки, версию не трогает. У TRUNCATE таблицы
+-- перехода нет, он увеличивает версию всегда
+CREATE OR REPLACE FUNCTION bump_collection_version()
+RETURNS TRIGGER AS $$
+BEGIN
+    -- Вложенное условие: у TRUNCATE таблицы changed_rows нет, и запрос к ней не разобрался бы
+    IF TG_OP <> 'TRUNCATE' THEN
+        IF NOT EXISTS (SELECT 1 FROM changed_rows) THEN
+            RETURN NULL;
+        END IF;
+    END IF;
+    UPDATE collection_versions
+    SET version = version + 1, updated_at = clock_timestamp()
+    WHERE table_name = TG_TABLE_NAME AND shard = pg_backend_pid() % 64;
+    RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+CREATE TRIGGER bump_authors_version_insert
+    AFTER INSERT ON authors
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_authors_version_update
+    AFTER UPDATE ON authors
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_authors_version_delete
+    AFTER DELETE ON authors
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_authors_version_truncate
+    AFTER TRUNCATE ON authors
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_genres_version_insert
+    AFTER INSERT ON genres
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_genres_version_update
+    AFTER UPDATE ON genres
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_genres_version_delete
+    AFTER DELETE ON genres
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_genres_version_truncate
+    AFTER TRUNCATE ON genres
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_version_insert
+    AFTER INSERT ON books
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_version_update
+    AFTER UPDATE ON books
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_version_delete
+    AFTER DELETE ON books
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_version_truncate
+    AFTER TRUNCATE ON books
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_genres_version_insert
+    AFTER INSERT ON books_genres
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_genres_version_update
+    AFTER UPDATE ON books_genres
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_genres_version_delete
+    AFTER DELETE ON books_genres
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_genres_version_truncate
+    AFTER TRUNCATE ON books_genres
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
@@ -0,0 +1,113 @@
+package benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Сравнение синхронного и асинхронного режима сервлетов под 2000 одновременных клиентов.
+// Поднимите два экземпляра приложения: один с SERVLET_ASYNC_ENABLED=false, другой с true, и запустите
+//   java -cp target/test-classes benchmark.AsyncModeBenchmark \
+//       sync=http://localhost:8080/api/books/1 async=http://localhost:8081/api/books/1 [клиентов] [секунд]
+// Каждый клиент - виртуальный поток, отправляющий запросы без пауз (замкнутая модель нагрузки)
+public class AsyncModeBenchmark {
+    private static final int DEFAULT_CLIENTS = 2000;
+    private static final int DEFAULT_SECONDS = 30;
+    private static final int WARMUP_SECONDS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        List<String[]> targets = new ArrayList<>();
+        List<Integer> numbers = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.contains("=")) {
+                targets.add(arg.split("=", 2));
+            } else {
+                numbers.add(Integer.parseInt(arg));
+            }
+        }
+        if (targets.isEmpty()) {
+            System.err.println("Usage: AsyncModeBenchmark name=url [name=url ...] [clients] [seconds]");
+            System.exit(1);
+        }
+        int clients = numbers.size() > 0 ? numbers.get(0) : DEFAULT_CLIENTS;
+        int seconds = numbers.size() > 1 ? numbers.get(1) : DEFAULT_SECONDS;
+
+        System.out.printf("%-8s %10s %10s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (String[] target : targets) {
+            run(URI.create(target[1]), clients, WARMUP_SECONDS);
+            Result result = run(URI.create(target[1]), clients, seconds);
+            System.out.printf("%-8s %10.0f %10.1f %10.1f %10.1f %8d%n", target[0],
+                    result.requests / (double) seconds, result.percentile(0.50), result.percentile(0.99),
+                    result.percentile(1.0), result.errors);
+        }
+    }
+
+    private static Result run(URI uri, int clients, int seconds) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET().build();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        // Гистограмма задержек с шагом 0.1 мс до 60 с
+        AtomicLong[] histogram = new AtomicLong[600_001];
+        Arrays.setAll(histogram, i -> new AtomicLong());
+        LongAdder requests = new LongAdder();
+        LongAdder errors = new LongAdder();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.execute(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.increment();
+                            }
+                        } catch (Exception e) {
+                            errors.increment();
+                        }
+                        int bucket = (int) Math.min((System.nanoTime() - start) / 100_000, histogram.length - 1);
+                        histogram[bucket].incrementAndGet();
+                        requests.increment();
+                    }
+                });
+            }
+        }
+        return new Result(histogram, requests.sum(), errors.sum());
+    }
+
+    private static final class Result {
+        private final AtomicLong[] histogram;
+        private final long requests;
+        private final long errors;
+
+        private Result(AtomicLong[] histogram, long requests, long errors) {
+            this.histogram = histogram;
+            this.requests = requests;
+            this.errors = errors;
+        }
+
+        private double percentile(double quantile) {
+            long target = (long) Math.ceil(requests * quantile);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i].get();
+                if (seen >= target && seen > 0) {
+                    return i / 10.0;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Операция нагрузки: метод и адрес для отчета и построитель запроса. Созданные через POST
+// записи запоминаются, их затем удаляет DELETE, чтобы не трогать заполненные данные
+final class LoadOperation {
+    static final String DEFAULT_MIX = "books.get=30,books.list=10,books.create=4,books.update=4,books.delete=2,"
+            + "authors.get=15,authors.list=5,authors.create=2,authors.update=2,authors.delete=1,"
+            + "genres.get=15,genres.list=5,genres.create=2,genres.update=2,genres.delete=1";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    // Уникальный суффикс для ISBN и имен жанров, не повторяется между запусками
+    private static final AtomicLong UNIQUE = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private final String name;
+    private final String endpoint;
+    private final Function<ThreadLocalRandom, HttpRequest> request;
+    private final Queue<Long> createdIds;
+
+    private LoadOperation(String name, String endpoint, Function<ThreadLocalRandom, HttpRequest> request,
+                          Queue<Long> createdIds) {
+        this.name = name;
+        this.endpoint = endpoint;
+        this.request = request;
+        this.createdIds = createdIds;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    // null, если операции не с чем работать (например, удалять еще нечего)
+    HttpRequest buildRequest() {
+        return request.apply(ThreadLocalRandom.current());
+    }
+
+    void onResponse(int status, String body) {
+        if (createdIds != null && status == 201) {
+            try {
+                JsonNode id = MAPPER.readTree(body).path("id");
+                if (id.canConvertToLong()) {
+                    createdIds.add(id.asLong());
+                }
+            } catch (Exception ignored) {
+                // ответ без id не мешает замеру
+            }
+        }
+    }
+
+    static Map<String, LoadOperation> all(LoadTestEnvironment env) {
+        String base = env.getBaseUrl();
+        LoadTestEnvironment.IdRange authors = env.getAuthors();
+        LoadTestEnvironment.IdRange genres = env.getGenres();
+        LoadTestEnvironment.IdRange books = env.getBooks();
+        Queue<Long> createdBooks = new ConcurrentLinkedQueue<>();
+        Queue<Long> createdAuthors = new ConcurrentLinkedQueue<>();
+        Queue<Long> createdGenres = new ConcurrentLinkedQueue<>();
+
+        Map<String, LoadOperation> operations = new LinkedHashMap<>();
+        add(operations, "books.get", "GET /api/books/{id}", null,
+                random -> get(base + "/api/books/" + pick(random, books)));
+        add(operations, "books.list", "GET /api/books?limit=50", null,
+                random -> get(base + "/api/books?limit=50&after=" + (pick(random, books) - 1)));
+        add(operations, "books.create", "POST /api/books", createdBooks,
+                random -> send("POST", base + "/api/books", bookJson(random, null, authors, genres)));
+        add(operations, "books.update", "PUT /api/books/{id}", null, random -> {
+            long id = pick(random, books);
+            return send("PUT", base + "/api/books/" + id, bookJson(random, "S-" + id, authors, genres));
+        });
+        add(operations, "books.delete", "DELETE /api/books/{id}", null,
+                random -> delete(base + "/api/books/", createdBooks));
+
+        add(operations, "authors.get", "GET /api/authors/{id}", null,
+                random -> get(base + "/api/authors/" + pick(random, authors)));
+        add(operations, "authors.list", "GET /api/authors?limit=50", null,
+                random -> get(base + "/api/authors?limit=50&after=" + (pick(random, authors) - 1)));
+        add(operations, "authors.create", "POST /api/authors", createdAuthors,
+                random -> send("POST", base + "/api/authors", authorJson(random)));
+        add(operations, "authors.update", "PUT /api/authors/{id}", null,
+                random -> send("PUT", base + "/api/authors/" + pick(random, authors), authorJson(random)));
+        add(operations, "authors.delete", "DELETE /api/authors/{id}", null,
+                random -> delete(base + "/api/authors/", createdAuthors));
+
+        add(operations, "genres.get", "GET /api/genres/{id}", null,
+                random -> get(base + "/api/genres/" + pick(random, genres)));
+        add(operations, "genres.list", "GET /api/genres?limit=50", null,
+                random -> get(base + "/api/genres?limit=50&after=" + (pick(random, genres) - 1)));
+        add(operations, "genres.create", "POST /api/genres", createdGenres,
+                random -> send("POST", base + "/api/genres", genreJson("Жанр C" + unique())));
+        // Имя меняется только у созданных жанров: у заполненных имена входят в выборки
+        add(operations, "genres.update", "PUT /api/genres/{id}", null, random -> {
+            Long id = createdGenres.peek();
+            return id != null ? send("PUT", base + "/api/genres/" + id, genreJson("Жанр U" + unique())) : null;
+        });
+        add(operations, "genres.delete", "DELETE /api/genres/{id}", null,
+                random -> delete(base + "/api/genres/", createdGenres));
+        return operations;
+    }
+
+    private static void add(Map<String, LoadOperation> operations, String name, String endpoint,
+                            Queue<Long> createdIds, Function<ThreadLocalRandom, HttpRequest> request) {
+        operations.put(name, new LoadOperation(name, endpoint, request, createdIds));
+    }
+
+    private static long pick(ThreadLocalRandom random, LoadTestEnvironment.IdRange range) {
+        return range.max() > range.min() ? random.nextLong(range.min(), range.max() + 1) : range.min();
+    }
+
+    private static String unique() {
+        return Long.toString(UNIQUE.incrementAndGet(), 36);
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    private static HttpRequest send(String method, String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static HttpRequest delete(String url, Queue<Long> createdIds) {
+        Long id = createdIds.poll();
+        return id != null
+                ? HttpRequest.newBuilder(URI.create(url + id)).timeout(REQUEST_TIMEOUT).DELETE().build()
+                : null;
+    }
+
+    private static String bookJson(ThreadLocalRandom random, String isbn, LoadTestEnvironment.IdRange authors,
+                                   LoadTestEnvironment.IdRange genres) {
+        String bookIsbn = isbn != null ? isbn : "C-" + unique();
+        return "{\"title\":\"Книга " + random.nextInt(1_000_000) + "\",\"isbn\":\"" + bookIsbn + "\","
+                + "\"publicationYear\":" + random.nextInt(1900, 2025) + ","
+                + "\"author\":{\"id\":" + pick(random, authors) + "},"
+                + "\"genres\":[{\"id\":" + pick(random, genres) + "}]}";
+    }
+
+    private static String authorJson(ThreadLocalRandom random) {
+        return "{\"firstName\":\"Имя " + random.nextInt(1_000_000) + "\",\"lastName\":\"Фамилия\","
+                + "\"biography\":\"Биография автора\"}";
+    }
+
+    private static String genreJson(String name) {
+        return "{\"name\":\"" + name + "\",\"description\":\"Описание жанра\"}";
+    }
+}
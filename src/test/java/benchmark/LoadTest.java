@@ -0,0 +1,275 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Сквозной нагрузочный тест: приложение во встроенном Tomcat, PostgreSQL в Testcontainers
+// (или своя база через db.url), смесь операций с постоянной интенсивностью (открытая модель).
+//   mvn -Pload-test -DskipTests verify -Dload.args="rate=500 duration=120 books=100000"
+// Параметры: rate (запросов/с), duration и warmup (с), authors/genres/books (размер данных),
+// seed=false (не заполнять), db.url/db.username/db.password, mix (см. LoadOperation.DEFAULT_MIX),
+// maxInFlight, output (JSON-отчет, по умолчанию target/load-test-result.json)
+public class LoadTest {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final List<LoadOperation> schedule = new ArrayList<>();
+    private final int[] cumulativeWeights;
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private LoadTest(Map<String, LoadOperation> operations, Map<String, Integer> mix, int maxInFlight) {
+        List<Integer> weights = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            LoadOperation operation = operations.get(entry.getKey());
+            if (operation == null) {
+                throw new IllegalArgumentException("Unknown operation: " + entry.getKey()
+                        + ", expected one of " + operations.keySet());
+            }
+            if (entry.getValue() > 0) {
+                total += entry.getValue();
+                schedule.add(operation);
+                weights.add(total);
+            }
+        }
+        this.cumulativeWeights = weights.stream().mapToInt(Integer::intValue).toArray();
+        this.maxInFlight = maxInFlight;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.client = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = new LoadTestSettings(args);
+        int rate = settings.getInt("rate", 200);
+        int durationSeconds = settings.getInt("duration", 60);
+        int warmupSeconds = settings.getInt("warmup", 10);
+        Map<String, Integer> mix = settings.getMix(LoadOperation.DEFAULT_MIX);
+        File output = new File(settings.getString("output", "target/load-test-result.json"));
+
+        try (LoadTestEnvironment env = LoadTestEnvironment.start(settings)) {
+            LoadTest test = new LoadTest(LoadOperation.all(env), mix, settings.getInt("maxInFlight", 10_000));
+            System.out.printf("Target %s, %d req/s, warmup %d s, measurement %d s%n",
+                    env.getBaseUrl(), rate, warmupSeconds, durationSeconds);
+
+            test.run(rate, warmupSeconds);
+            Results results = test.run(rate, durationSeconds);
+            test.executor.shutdown();
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("finishedAt", Instant.now().toString());
+            Map<String, Object> config = new LinkedHashMap<>();
+            config.put("rate", rate);
+            config.put("durationSeconds", durationSeconds);
+            config.put("warmupSeconds", warmupSeconds);
+            config.put("authors", env.getAuthors().max() - env.getAuthors().min() + 1);
+            config.put("genres", env.getGenres().max() - env.getGenres().min() + 1);
+            config.put("books", env.getBooks().max() - env.getBooks().min() + 1);
+            config.put("mix", mix);
+            report.put("settings", config);
+            report.putAll(results.toReport());
+
+            if (output.getParentFile() != null) {
+                output.getParentFile().mkdirs();
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, report);
+            results.print();
+            System.out.println("Report written to " + output.getAbsolutePath());
+        }
+    }
+
+    // Запросы отправляются по расписанию независимо от ответов. Задержка считается от
+    // запланированного момента, поэтому очередь на стороне клиента тоже попадает в результат
+    private Results run(int rate, int seconds) throws InterruptedException {
+        Results results = new Results(seconds);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            LoadOperation operation = pick(ThreadLocalRandom.current());
+            if (inFlight.get() >= maxInFlight) {
+                results.stats(operation).dropped.increment();
+                continue;
+            }
+            inFlight.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    execute(operation, intended, results);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        return results;
+    }
+
+    private void execute(LoadOperation operation, long intendedNanos, Results results) {
+        OperationStats stats = results.stats(operation);
+        HttpRequest request = operation.buildRequest();
+        if (request == null) {
+            stats.skipped.increment();
+            return;
+        }
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            stats.record(System.nanoTime() - intendedNanos, response.statusCode());
+            operation.onResponse(response.statusCode(), response.body());
+        } catch (Exception e) {
+            stats.record(System.nanoTime() - intendedNanos, 0);
+            stats.errors.computeIfAbsent(e.getClass().getSimpleName(), key -> new LongAdder()).increment();
+        }
+    }
+
+    private LoadOperation pick(ThreadLocalRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return schedule.get(i);
+            }
+        }
+        return schedule.get(schedule.size() - 1);
+    }
+
+    private static final class Results {
+        private final int seconds;
+        private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+        private final OperationStats total = new OperationStats("*");
+
+        private Results(int seconds) {
+            this.seconds = seconds;
+        }
+
+        private OperationStats stats(LoadOperation operation) {
+            return operations.computeIfAbsent(operation.getName(), key -> new OperationStats(operation.getEndpoint()) {
+                @Override
+                void record(long latencyNanos, int status) {
+                    super.record(latencyNanos, status);
+                    total.record(latencyNanos, status);
+                }
+            });
+        }
+
+        private Map<String, Object> toReport() {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("total", total.toReport(seconds));
+            Map<String, Object> endpoints = new TreeMap<>();
+            operations.forEach((name, stats) -> endpoints.put(name, stats.toReport(seconds)));
+            report.put("operations", endpoints);
+            return report;
+        }
+
+        private void print() {
+            System.out.printf("%-16s %-26s %9s %9s %9s %9s %9s %7s%n",
+                    "operation", "endpoint", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+            new TreeMap<>(operations).forEach((name, stats) -> stats.print(name, seconds));
+            total.print("total", seconds);
+        }
+    }
+
+    private static class OperationStats {
+        private final String endpoint;
+        private final Histogram latencyMicros = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+
+        private OperationStats(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        // Статус 0 - запрос завершился исключением на стороне клиента
+        void record(long latencyNanos, int status) {
+            latencyMicros.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+        }
+
+        private long failures() {
+            long failures = 0;
+            for (Map.Entry<Integer, LongAdder> entry : statuses.entrySet()) {
+                if (entry.getKey() == 0 || entry.getKey() >= 500) {
+                    failures += entry.getValue().sum();
+                }
+            }
+            return failures;
+        }
+
+        private Map<String, Object> toReport(int seconds) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("endpoint", endpoint);
+            report.put("requests", latencyMicros.getTotalCount());
+            report.put("throughputPerSecond", (double) latencyMicros.getTotalCount() / seconds);
+            report.put("failures", failures());
+            report.put("dropped", dropped.sum());
+            report.put("skipped", skipped.sum());
+            Map<String, Long> statusCounts = new TreeMap<>();
+            statuses.forEach((status, count) -> statusCounts.put(String.valueOf(status), count.sum()));
+            report.put("statuses", statusCounts);
+            if (!errors.isEmpty()) {
+                Map<String, Long> errorCounts = new TreeMap<>();
+                errors.forEach((type, count) -> errorCounts.put(type, count.sum()));
+                report.put("errors", errorCounts);
+            }
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("mean", latencyMicros.getMean() / 1000.0);
+            latency.put("p50", percentileMillis(50));
+            latency.put("p99", percentileMillis(99));
+            latency.put("p999", percentileMillis(99.9));
+            latency.put("max", latencyMicros.getMaxValue() / 1000.0);
+            report.put("latencyMillis", latency);
+            return report;
+        }
+
+        private void print(String name, int seconds) {
+            System.out.printf("%-16s %-26s %9.1f %9.2f %9.2f %9.2f %9.2f %7d%n",
+                    name, endpoint, (double) latencyMicros.getTotalCount() / seconds,
+                    percentileMillis(50), percentileMillis(99), percentileMillis(99.9),
+                    latencyMicros.getMaxValue() / 1000.0, failures());
+        }
+
+        private double percentileMillis(double percentile) {
+            return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package benchmark;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// База (Testcontainers или заданная db.url) с данными и приложение во встроенном Tomcat.
+// Приложение поднимается из src/main/webapp с web.xml, классы берутся из classpath
+final class LoadTestEnvironment implements AutoCloseable {
+    private static final Pattern MIGRATION = Pattern.compile("v(\\d+)_.*\\.sql");
+
+    private final PostgreSQLContainer<?> postgres;
+    private final Tomcat tomcat;
+    private final String baseUrl;
+    private final IdRange authors;
+    private final IdRange genres;
+    private final IdRange books;
+
+    private LoadTestEnvironment(PostgreSQLContainer<?> postgres, Tomcat tomcat, String baseUrl,
+                                IdRange authors, IdRange genres, IdRange books) {
+        this.postgres = postgres;
+        this.tomcat = tomcat;
+        this.baseUrl = baseUrl;
+        this.authors = authors;
+        this.genres = genres;
+        this.books = books;
+    }
+
+    static LoadTestEnvironment start(LoadTestSettings settings) throws Exception {
+        PostgreSQLContainer<?> postgres = null;
+        String url = settings.getString("db.url", null);
+        String username = settings.getString("db.username", "postgres");
+        String password = settings.getString("db.password", "postgres");
+        if (url == null) {
+            postgres = new PostgreSQLContainer<>("postgres:15.2")
+                    .withDatabaseName("library_load")
+                    .withUsername("test")
+                    .withPassword("test");
+            postgres.start();
+            url = postgres.getJdbcUrl();
+            username = postgres.getUsername();
+            password = postgres.getPassword();
+        }
+
+        try (Connection conn = DriverManager.getConnection(url, username, password)) {
+            if (!tableExists(conn, "books")) {
+                applyMigrations(conn);
+            }
+            if (Boolean.parseBoolean(settings.getString("seed", "true"))) {
+                seed(conn, settings.getInt("authors", 1_000), settings.getInt("genres", 50),
+                        settings.getInt("books", 10_000));
+            }
+        }
+
+        // DatabaseConfig читает подключение из системных свойств при первом обращении
+        System.setProperty("db.url", url);
+        System.setProperty("db.username", username);
+        System.setProperty("db.password", password);
+
+        int port = settings.getInt("port", 0);
+        Tomcat tomcat = startTomcat(port);
+        String baseUrl = "http://localhost:" + tomcat.getConnector().getLocalPort();
+
+        try (Connection conn = DriverManager.getConnection(url, username, password)) {
+            return new LoadTestEnvironment(postgres, tomcat, baseUrl,
+                    IdRange.of(conn, "authors"), IdRange.of(conn, "genres"), IdRange.of(conn, "books"));
+        }
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    IdRange getAuthors() {
+        return authors;
+    }
+
+    IdRange getGenres() {
+        return genres;
+    }
+
+    IdRange getBooks() {
+        return books;
+    }
+
+    @Override
+    public void close() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    private static Tomcat startTomcat(int port) throws LifecycleException, IOException {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("load-test-tomcat").toString());
+        tomcat.setPort(port);
+        tomcat.getConnector();
+        // Только web.xml приложения: сервлеты JSP и статики не нужны
+        tomcat.setAddDefaultWebXmlToWebapp(false);
+        Context context = tomcat.addWebapp("", new File("src/main/webapp").getAbsolutePath());
+        context.setParentClassLoader(LoadTestEnvironment.class.getClassLoader());
+        tomcat.start();
+        return tomcat;
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getBoolean(1);
+            }
+        }
+    }
+
+    // Те же миграции из src/main/resources, что применяет setup.sh, по возрастанию версии
+    private static void applyMigrations(Connection conn) throws IOException, SQLException {
+        List<Path> migrations;
+        try (Stream<Path> files = Files.list(Path.of("src/main/resources"))) {
+            migrations = files
+                    .filter(path -> MIGRATION.matcher(path.getFileName().toString()).matches())
+                    .sorted(Comparator.comparingInt(LoadTestEnvironment::migrationVersion))
+                    .toList();
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (Path migration : migrations) {
+                stmt.execute(Files.readString(migration));
+            }
+        }
+    }
+
+    private static int migrationVersion(Path path) {
+        Matcher matcher = MIGRATION.matcher(path.getFileName().toString());
+        matcher.matches();
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    // Данные генерируются на стороне базы; ISBN и имена жанров содержат id, чтобы оставаться
+    // уникальными при повторном заполнении той же базы
+    private static void seed(Connection conn, int authorCount, int genreCount, int bookCount) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO authors (first_name, last_name, biography) "
+                        + "SELECT 'Имя ' || i, 'Фамилия ' || i, repeat('Биография автора. ', 10) "
+                        + "FROM generate_series(1, ?) AS i")) {
+            stmt.setInt(1, authorCount);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO genres (name, description) "
+                        + "SELECT 'Жанр ' || nextval('genres_id_seq'), 'Описание жанра' FROM generate_series(1, ?)")) {
+            stmt.setInt(1, genreCount);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO books (title, publication_year, author_id) "
+                        + "SELECT 'Книга ' || i, 1900 + i % 120, a.min_id + i % a.count "
+                        + "FROM generate_series(1, ?) AS i, "
+                        + "(SELECT min(id) AS min_id, count(*) AS count FROM authors) AS a")) {
+            stmt.setInt(1, bookCount);
+            stmt.executeUpdate();
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE books SET isbn = 'S-' || id WHERE isbn IS NULL");
+            stmt.executeUpdate("INSERT INTO books_genres (book_id, genre_id) "
+                    + "SELECT b.id, g.min_id + (b.id + s) % g.count "
+                    + "FROM books b, generate_series(0, 1) AS s, "
+                    + "(SELECT min(id) AS min_id, count(*) AS count FROM genres) AS g "
+                    + "ON CONFLICT DO NOTHING");
+            stmt.execute("ANALYZE");
+        }
+    }
+
+    record IdRange(long min, long max) {
+        static IdRange of(Connection conn, String table) throws SQLException {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT coalesce(min(id), 0), coalesce(max(id), 0) FROM " + table)) {
+                rs.next();
+                return new IdRange(rs.getLong(1), rs.getLong(2));
+            }
+        }
+    }
+}
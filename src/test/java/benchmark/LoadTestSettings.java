@@ -0,0 +1,42 @@
+package benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Параметры нагрузочного теста: аргумент key=value, затем системное свойство load.key, затем значение по умолчанию
+final class LoadTestSettings {
+    private final Map<String, String> args = new LinkedHashMap<>();
+
+    LoadTestSettings(String[] commandLine) {
+        for (String arg : commandLine) {
+            String[] parts = arg.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            args.put(parts[0], parts[1]);
+        }
+    }
+
+    String getString(String key, String defaultValue) {
+        String value = args.get(key);
+        if (value == null) {
+            value = System.getProperty("load." + key);
+        }
+        return value != null && !value.isBlank() ? value.trim() : defaultValue;
+    }
+
+    int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    // Смесь операций: books.get=30,books.create=5,...; операции без веса не выполняются
+    Map<String, Integer> getMix(String defaultValue) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : getString("mix", defaultValue).split(",")) {
+            String[] parts = entry.trim().split("=", 2);
+            mix.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,199 @@
+package config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReplicaRouterTest {
+    private static final long MAX_LAG_MILLIS = 1000;
+    private static final long CHECK_INTERVAL_MILLIS = 500;
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private AtomicLong clock;
+    private ReplicaRouter router;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        clock = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+        router = new ReplicaRouter(primary, replica, MAX_LAG_MILLIS, CHECK_INTERVAL_MILLIS, clock::get);
+        when(replica.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(ReplicaRouter.LAG_QUERY)).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        replicaLag(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRouter.clearRequestState();
+    }
+
+    @Test
+    void forRead_WithoutReplica_UsesPrimary() {
+        assertSame(primary, new ReplicaRouter(primary).forRead());
+    }
+
+    @Test
+    void forRead_ReplicaInSync_UsesReplica() {
+        assertSame(replica, router.forRead());
+        assertEquals(0, router.getLastLagMillis());
+    }
+
+    @Test
+    void forRead_AfterWriteInSameRequest_StaysOnPrimary() {
+        // Given
+        router.forWrite();
+        advanceMillis(MAX_LAG_MILLIS + 1);
+
+        // When / Then
+        assertSame(primary, router.forRead());
+        ReplicaRouter.clearRequestState();
+        assertSame(replica, router.forRead());
+    }
+
+    @Test
+    void forRead_ShortlyAfterWriteInAnotherRequest_UsesPrimary() {
+        // Given: запись в другом запросе только что сбросила кэши
+        router.forWrite();
+        ReplicaRouter.clearRequestState();
+
+        // When / Then
+        assertSame(primary, router.forRead());
+        advanceMillis(MAX_LAG_MILLIS + 1);
+        assertSame(replica, router.forRead());
+    }
+
+    @Test
+    void forRead_WriteTransactionLongerThanWindow_StaysOnPrimaryUntilWindowAfterClose() throws SQLException {
+        // Given: транзакция записи длится дольше окна
+        Connection writeConnection = mock(Connection.class);
+        Connection tracked = router.trackWrite(writeConnection);
+        router.forWrite();
+        ReplicaRouter.clearRequestState();
+        advanceMillis(MAX_LAG_MILLIS * 5);
+
+        // When
+        tracked.commit();
+        tracked.close();
+
+        // Then
+        verify(writeConnection).close();
+        assertSame(primary, router.forRead(), "Окно отсчитывается от возврата соединения");
+        advanceMillis(MAX_LAG_MILLIS + 1);
+        assertSame(replica, router.forRead());
+    }
+
+    @Test
+    void forRead_ReplicaLagsBehind_FallsBackToPrimaryUntilNextCheck() throws SQLException {
+        // Given
+        replicaLag(5000);
+
+        // When / Then
+        assertSame(primary, router.forRead());
+        assertEquals(5000, router.getLastLagMillis());
+
+        replicaLag(10);
+        assertSame(primary, router.forRead(), "Результат проверки действует до следующего интервала");
+        advanceMillis(CHECK_INTERVAL_MILLIS + 1);
+        assertSame(replica, router.forRead());
+        verify(statement, times(2)).executeQuery();
+    }
+
+    @Test
+    void forRead_ReplicaNotReceivingWal_UsesPrimary() throws SQLException {
+        // Given
+        when(resultSet.wasNull()).thenReturn(true);
+
+        // When / Then
+        assertSame(primary, router.forRead());
+        assertEquals(-1, router.getLastLagMillis());
+    }
+
+    @Test
+    void forRead_ReplicaUnreachable_UsesPrimary() throws SQLException {
+        // Given
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        // When / Then
+        assertSame(primary, router.forRead());
+    }
+
+    @Test
+    void forRead_WriteWindowNarrowerThanLag_ReturnsToReplicaAfterWindow() {
+        // Given
+        router = new ReplicaRouter(primary, replica, MAX_LAG_MILLIS, 100, CHECK_INTERVAL_MILLIS, clock::get);
+        router.forWrite();
+        ReplicaRouter.clearRequestState();
+
+        // When / Then
+        assertSame(primary, router.forRead());
+        advanceMillis(101);
+        assertSame(replica, router.forRead());
+    }
+
+    @Test
+    void fallbackFrom_ReplicaFailed_UsesPrimaryUntilNextCheck() throws SQLException {
+        // Given
+        assertSame(replica, router.forRead());
+
+        // When
+        DataSource fallback = router.fallbackFrom(replica, new SQLException("Pool exhausted"));
+
+        // Then
+        assertSame(primary, fallback);
+        assertSame(primary, router.forRead());
+        assertEquals(-1, router.getLastLagMillis());
+        advanceMillis(CHECK_INTERVAL_MILLIS + 1);
+        assertSame(replica, router.forRead());
+    }
+
+    @Test
+    void fallbackFrom_PrimaryFailed_Rethrows() {
+        // Given
+        SQLException cause = new SQLException("Connection refused");
+
+        // When / Then
+        assertSame(cause, assertThrows(SQLException.class, () -> router.fallbackFrom(primary, cause)));
+    }
+
+    private void replicaLag(double millis) throws SQLException {
+        when(resultSet.getDouble(1)).thenReturn(millis);
+        when(resultSet.wasNull()).thenReturn(false);
+    }
+
+    private void advanceMillis(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,70 @@
+package metrics;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CountingResponseWrapperTest {
+    @Mock
+    private HttpServletResponse response;
+
+    @Test
+    void getWriter_CountsUtf8Bytes() throws IOException {
+        // Given
+        StringWriter body = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+        CountingResponseWrapper wrapper = new CountingResponseWrapper(response);
+
+        // When
+        PrintWriter writer = wrapper.getWriter();
+        writer.write("{\"title\":\"Мир\"}");
+        writer.flush();
+
+        // Then
+        assertEquals("{\"title\":\"Мир\"}", body.toString());
+        assertEquals(18, wrapper.getBytesWritten());
+    }
+
+    @Test
+    void getOutputStream_CountsBytes() throws IOException {
+        // Given
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+        CountingResponseWrapper wrapper = new CountingResponseWrapper(response);
+
+        // When
+        wrapper.getOutputStream().write(new byte[]{1, 2, 3}, 0, 3);
+        wrapper.getOutputStream().write(4);
+
+        // Then
+        assertEquals(4, body.size());
+        assertEquals(4, wrapper.getBytesWritten());
+    }
+}
@@ -0,0 +1,180 @@
+package metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.postgresql.PGConnection;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class InstrumentedDataSourceTest {
+    @Mock
+    private DataSource delegate;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private SqlMetrics sqlMetrics;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        sqlMetrics = new SqlMetrics();
+        when(delegate.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, true, false);
+    }
+
+    @Test
+    void executeQuery_RecordsTimingAndRowsByFingerprintAndOperation() throws Exception {
+        // Given
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(delegate, sqlMetrics, 60_000);
+
+        // When
+        try (Connection conn = dataSource.getConnection("BookRepository.findAll");
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM books WHERE id > ?  LIMIT 20")) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                // строки только читаются
+            }
+        }
+
+        // Then
+        String output = render();
+        assertTrue(output.contains(
+                "db_query_seconds_count{query=\"SELECT * FROM books WHERE id > ? LIMIT ?\"} 1\n"));
+        assertTrue(output.contains(
+                "db_query_rows_total{query=\"SELECT * FROM books WHERE id > ? LIMIT ?\"} 3\n"));
+        assertTrue(output.contains(
+                "db_connection_wait_seconds_count{operation=\"BookRepository.findAll\"} 1\n"));
+        assertTrue(output.contains(
+                "db_connection_hold_seconds_count{operation=\"BookRepository.findAll\"} 1\n"));
+        assertTrue(output.contains("db_operation_rows_total{operation=\"BookRepository.findAll\"} 3\n"));
+        verify(connection).close();
+    }
+
+    @Test
+    void executeQuery_Failure_CountsError() throws Exception {
+        // Given
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(delegate, sqlMetrics, 60_000);
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLException("duplicate key"));
+
+        // When
+        SQLException exception;
+        try (Connection conn = dataSource.getConnection("AuthorRepository.save");
+             PreparedStatement stmt = conn.prepareStatement("INSERT INTO authors (name) VALUES (?)")) {
+            exception = assertThrows(SQLException.class, stmt::executeUpdate);
+        }
+
+        // Then
+        assertEquals("duplicate key", exception.getMessage());
+        assertTrue(render().contains(
+                "db_query_errors_total{query=\"INSERT INTO authors (name) VALUES (?)\"} 1\n"));
+    }
+
+    @Test
+    void executeQuery_SlowerThanThreshold_LogsFingerprint() throws Exception {
+        // Given: порог 0 мс, любой запрос считается медленным
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(delegate, sqlMetrics, 0);
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger("sql.slow");
+        logger.addHandler(handler);
+
+        // When
+        try (Connection conn = dataSource.getConnection("GenreRepository.findById");
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM genres WHERE id = 7")) {
+            stmt.executeQuery();
+        } finally {
+            logger.removeHandler(handler);
+        }
+
+        // Then
+        assertEquals(1, records.size());
+        assertTrue(records.get(0).getMessage().contains("GenreRepository.findById"));
+        assertTrue(records.get(0).getMessage().contains("SELECT * FROM genres WHERE id = ?"));
+    }
+
+    @Test
+    void unwrap_DelegatesToDriverConnection() throws SQLException {
+        // Given
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(delegate, sqlMetrics, 60_000);
+
+        // When
+        try (Connection conn = dataSource.getConnection()) {
+            // Then
+            assertSame(pgConnection, conn.unwrap(PGConnection.class));
+        }
+    }
+
+    @Test
+    void timeCopy_RecordsCopyTimingAndRows() throws Exception {
+        // Given
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(delegate, sqlMetrics, 60_000);
+
+        // When
+        long copied;
+        try (Connection conn = dataSource.getConnection("BookRepository.exportCsv")) {
+            assertTrue(conn.isWrapperFor(InstrumentedDataSource.TimedConnection.class));
+            copied = conn.unwrap(InstrumentedDataSource.TimedConnection.class)
+                    .timeCopy("COPY (SELECT * FROM books) TO STDOUT (FORMAT csv)", () -> 5L);
+        }
+
+        // Then
+        assertEquals(5, copied);
+        String output = render();
+        assertTrue(output.contains(
+                "db_query_seconds_count{query=\"COPY (SELECT * FROM books) TO STDOUT (FORMAT csv)\"} 1\n"));
+        assertTrue(output.contains(
+                "db_query_rows_total{query=\"COPY (SELECT * FROM books) TO STDOUT (FORMAT csv)\"} 5\n"));
+        assertTrue(output.contains("db_operation_rows_total{operation=\"BookRepository.exportCsv\"} 5\n"));
+    }
+
+    private String render() throws IOException {
+        StringWriter writer = new StringWriter();
+        sqlMetrics.writeTo(new PrometheusWriter(writer));
+        return writer.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRegistryTest {
+    private MetricsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    void writePrometheus_RendersLatencyHistogramInSeconds() throws IOException {
+        // Given
+        ServletMetrics metrics = registry.servlet("BookServlet");
+        metrics.recordRequest("GET", 200, TimeUnit.MILLISECONDS.toNanos(3), 100);
+        metrics.recordRequest("GET", 200, TimeUnit.MILLISECONDS.toNanos(30), 100);
+
+        // When
+        String output = render();
+
+        // Then
+        assertTrue(output.contains("# TYPE http_server_requests_seconds histogram\n"));
+        assertTrue(output.contains(
+                "http_server_requests_seconds_bucket{servlet=\"BookServlet\",method=\"GET\",le=\"0.0025\"} 0\n"));
+        assertTrue(output.contains(
+                "http_server_requests_seconds_bucket{servlet=\"BookServlet\",method=\"GET\",le=\"0.005\"} 1\n"));
+        assertTrue(output.contains(
+                "http_server_requests_seconds_bucket{servlet=\"BookServlet\",method=\"GET\",le=\"+Inf\"} 2\n"));
+        assertTrue(output.contains(
+                "http_server_requests_seconds_count{servlet=\"BookServlet\",method=\"GET\"} 2\n"));
+    }
+
+    @Test
+    void writePrometheus_CountsRequestsByStatus() throws IOException {
+        // Given
+        ServletMetrics metrics = registry.servlet("AuthorServlet");
+        metrics.recordRequest("POST", 201, 1_000, 10);
+        metrics.recordRequest("POST", 400, 1_000, 10);
+        metrics.recordRequest("POST", 400, 1_000, 10);
+        metrics.recordRequest("PATCH", 405, 1_000, 10);
+
+        // When
+        String output = render();
+
+        // Then
+        assertTrue(output.contains(
+                "http_server_requests_total{servlet=\"AuthorServlet\",method=\"POST\",status=\"201\"} 1\n"));
+        assertTrue(output.contains(
+                "http_server_requests_total{servlet=\"AuthorServlet\",method=\"POST\",status=\"400\"} 2\n"));
+        assertTrue(output.contains(
+                "http_server_requests_total{servlet=\"AuthorServlet\",method=\"OTHER\",status=\"405\"} 1\n"));
+    }
+
+    @Test
+    void writePrometheus_RendersResponseSizeAndErrors() throws IOException {
+        // Given
+        ServletMetrics metrics = registry.servlet("GenreServlet");
+        metrics.recordRequest("GET", 200, 1_000, 2_000);
+        metrics.recordError(IllegalStateException.class);
+
+        // When
+        String output = render();
+
+        // Then
+        assertTrue(output.contains(
+                "http_server_response_size_bytes_bucket{servlet=\"GenreServlet\",method=\"GET\",le=\"1024\"} 0\n"));
+        assertTrue(output.contains(
+                "http_server_response_size_bytes_bucket{servlet=\"GenreServlet\",method=\"GET\",le=\"4096\"} 1\n"));
+        assertTrue(output.contains(
+                "library_errors_total{servlet=\"GenreServlet\",type=\"IllegalStateException\"} 1\n"));
+    }
+
+    @Test
+    void writePrometheus_DeclaresEachFamilyOnce() throws IOException {
+        // Given
+        registry.servlet("AuthorServlet").recordRequest("GET", 200, 1_000, 10);
+        registry.servlet("BookServlet").recordRequest("GET", 200, 1_000, 10);
+
+        // When
+        String output = render();
+
+        // Then
+        assertEquals(1, output.split("# TYPE http_server_requests_seconds ", -1).length - 1);
+    }
+
+    @Test
+    void writePrometheus_AccumulatesAcrossScrapes() throws IOException {
+        // Given
+        ServletMetrics metrics = registry.servlet("BookServlet");
+        metrics.recordRequest("GET", 200, 1_000, 10);
+        render();
+        metrics.recordRequest("GET", 200, 1_000, 10);
+
+        // When
+        String output = render();
+
+        // Then
+        assertTrue(output.contains(
+                "http_server_requests_seconds_count{servlet=\"BookServlet\",method=\"GET\"} 2\n"));
+    }
+
+    private String render() throws IOException {
+        StringWriter writer = new StringWriter();
+        registry.writePrometheus(writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,32 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlFingerprintTest {
+
+    @Test
+    void normalize_ReplacesLiteralsAndCollapsesWhitespace() {
+        // Given
+        String sql = "SELECT id, title\n  FROM books WHERE id > 42 AND title = 'O''Brien' -- поиск\nLIMIT 10";
+
+        // When
+        String fingerprint = SqlFingerprint.normalize(sql);
+
+        // Then
+        assertEquals("SELECT id, title FROM books WHERE id > ? AND title = ? LIMIT ?", fingerprint);
+    }
+
+    @Test
+    void normalize_CollapsesInListsAndKeepsIdentifiersWithDigits() {
+        // Given
+        String sql = "SELECT * FROM v2_books WHERE genre_id IN (?, ?, ?) OR author_id = $1";
+
+        // When
+        String fingerprint = SqlFingerprint.normalize(sql);
+
+        // Then
+        assertEquals("SELECT * FROM v2_books WHERE genre_id IN (?) OR author_id = ?", fingerprint);
+    }
+}
@@ -33,6 +33,30 @@ class AuthorRepositoryTest extends BaseRepositoryTest {
         assertFalse(author.getBooks().isEmpty());
     }
 
+    @Test
+    void findPage_WithProjection_ReadsOnlyRequestedColumnsAndBooks() {
+        // When
+        var authors = authorRepository.findPage(FieldSet.parse("lastName,books", FieldSet.AUTHOR_FIELDS), null, 10);
+
+        // Then
+        assertEquals(3, authors.size());
+        assertEquals("Пушкин", authors.get(0).getLastName());
+        assertNull(authors.get(0).getFirstName());
+        assertNull(authors.get(0).getBiography());
+        assertEquals(1, authors.get(0).getBooks().size());
+    }
+
+    @Test
+    void findAll_WithoutBooksRequested_DoesNotLoadBooks() {
+        // When
+        var authors = authorRepository.findAll(FieldSet.ALL);
+
+        // Then
+        assertEquals(3, authors.size());
+        assertTrue(authors.stream().allMatch(author -> author.getBooks().isEmpty()));
+        assertNotNull(authors.get(0).getBiography());
+    }
+
     @Test
     void findById_NonExistingAuthor_ReturnsEmpty() {
         // Given
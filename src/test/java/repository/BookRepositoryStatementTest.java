@@ -0,0 +1,389 @@
+package repository;
+
+import dto.BulkImportResultDto;
+import entity.Author;
+import entity.Book;
+import entity.Genre;
+import metrics.InstrumentedDataSource;
+import metrics.PrometheusWriter;
+import metrics.SqlMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Проверяет количество SQL-запросов без реальной базы данных
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BookRepositoryStatementTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Mock
+    private Array sqlArray;
+
+    private BookRepository bookRepository;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(connection.createArrayOf(anyString(), any())).thenReturn(sqlArray);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        bookRepository = new BookRepository(dataSource);
+    }
+
+    @Test
+    void findAll_ManyBooks_IssuesSingleStatement() throws SQLException {
+        // Given: три книги, у первой два жанра, у третьей жанров нет
+        stubRows(
+                Map.of("id", 1L, "genre_id", 1L),
+                Map.of("id", 1L, "genre_id", 2L),
+                Map.of("id", 2L, "genre_id", 1L),
+                Map.of("id", 3L));
+
+        // When
+        List<Book> books = bookRepository.findAll();
+
+        // Then
+        assertEquals(3, books.size());
+        assertEquals(2, books.get(0).getGenres().size());
+        assertEquals(1, books.get(1).getGenres().size());
+        assertTrue(books.get(2).getGenres().isEmpty());
+        verify(connection, times(1)).createStatement();
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    void findPage_ManyBooks_IssuesTwoStatements() throws SQLException {
+        // Given: страница из трех книг, затем один пакетный запрос жанров
+        stubRows(
+                Map.of("id", 1L),
+                Map.of("id", 2L),
+                Map.of("id", 3L),
+                null,
+                Map.of("id", 10L, "book_id", 1L),
+                Map.of("id", 11L, "book_id", 3L));
+
+        // When
+        List<Book> books = bookRepository.findPage(null, 3);
+
+        // Then
+        assertEquals(3, books.size());
+        assertEquals(1, books.get(0).getGenres().size());
+        assertTrue(books.get(1).getGenres().isEmpty());
+        assertEquals(1, books.get(2).getGenres().size());
+        verify(connection, times(2)).prepareStatement(anyString());
+        verify(connection, never()).createStatement();
+    }
+
+    @Test
+    void findPage_EmptyPage_SkipsGenreQuery() throws SQLException {
+        // Given
+        stubRows();
+
+        // When
+        List<Book> books = bookRepository.findPage(100L, 10);
+
+        // Then
+        assertTrue(books.isEmpty());
+        verify(connection, times(1)).prepareStatement(anyString());
+    }
+
+    @Test
+    void streamAll_UsesServerSideCursorAndEmitsEachBookOnce() throws SQLException {
+        // Given
+        stubRows(
+                Map.of("id", 1L, "genre_id", 1L),
+                Map.of("id", 1L, "genre_id", 2L),
+                Map.of("id", 2L));
+
+        // When
+        List<Book> books = new ArrayList<>();
+        bookRepository.streamAll(books::add);
+
+        // Then
+        assertEquals(2, books.size());
+        assertEquals(2, books.get(0).getGenres().size());
+        verify(connection).setAutoCommit(false);
+        verify(preparedStatement).setFetchSize(anyInt());
+        verify(connection, times(1)).prepareStatement(anyString());
+    }
+
+    @Test
+    void findPage_WithProjection_SkipsAuthorJoinAndGenreQuery() throws SQLException {
+        // Given
+        stubRows(Map.of("id", 1L), Map.of("id", 2L));
+        FieldSet fields = FieldSet.parse("id,title", FieldSet.BOOK_FIELDS);
+
+        // When
+        List<Book> books = bookRepository.findPage(new BookFilter(null, null, null, null, BookFilter.Sort.ID),
+                fields, null, null, 10);
+
+        // Then
+        assertEquals(2, books.size());
+        assertNull(books.get(0).getAuthor());
+        List<String> statements = captureStatements();
+        assertEquals(1, statements.size());
+        assertTrue(statements.get(0).contains("b.title"));
+        assertFalse(statements.get(0).contains("JOIN authors"));
+        assertFalse(statements.get(0).contains("b.isbn"));
+    }
+
+    @Test
+    void streamAll_WithoutGenres_DoesNotJoinGenres() throws SQLException {
+        // Given
+        stubRows(Map.of("id", 1L), Map.of("id", 2L));
+
+        // When
+        List<Book> books = new ArrayList<>();
+        bookRepository.streamAll(FieldSet.parse("title,author", FieldSet.BOOK_FIELDS), books::add);
+
+        // Then
+        assertEquals(2, books.size());
+        String sql = captureStatements().get(0);
+        assertTrue(sql.contains("JOIN authors"));
+        assertFalse(sql.contains("books_genres"));
+        verify(resultSet, never()).getString("genre_name");
+    }
+
+    @Test
+    void save_WithGenres_SyncsLinksInDatabaseWithoutReadingThem() throws SQLException {
+        // Given: разницу с текущими жанрами считает база
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+
+        // When
+        bookRepository.save(createBookWithGenres(2L, 3L));
+
+        // Then
+        List<String> statements = captureStatements();
+        assertEquals(3, statements.size());
+        assertTrue(statements.get(1).contains("DELETE FROM books_genres"));
+        assertTrue(statements.get(1).contains("NOT EXISTS"));
+        assertTrue(statements.get(2).contains("INSERT INTO books_genres"));
+        assertTrue(statements.get(2).contains("WHERE NOT EXISTS (SELECT 1 FROM books_genres existing"));
+        verify(connection, times(1)).createArrayOf(eq("bigint"), any());
+        verify(preparedStatement, times(2)).setArray(2, sqlArray);
+        verify(preparedStatement, never()).executeQuery();
+        verify(preparedStatement, times(3)).executeUpdate();
+    }
+
+    @Test
+    void save_WithoutGenres_OnlyDeletesLinks() throws SQLException {
+        // Given
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+
+        // When
+        bookRepository.save(createBookWithGenres());
+
+        // Then
+        List<String> statements = captureStatements();
+        assertEquals(2, statements.size());
+        assertTrue(statements.get(1).contains("DELETE FROM books_genres"));
+        assertTrue(statements.stream().noneMatch(sql -> sql.contains("INSERT INTO books_genres")));
+    }
+
+    @Test
+    void importBooks_StreamsRowsThroughCopyAndMergesWithOneStatement() throws Exception {
+        // Given: вторая строка не проходит проверки в базе
+        PGConnection pgConnection = mock(PGConnection.class);
+        CopyManager copyManager = mock(CopyManager.class);
+        CopyIn copyIn = mock(CopyIn.class);
+        ByteArrayOutputStream copied = new ByteArrayOutputStream();
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(anyString())).thenReturn(copyIn);
+        doAnswer(invocation -> {
+            copied.write(invocation.<byte[]>getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+        when(statement.executeUpdate(anyString())).thenReturn(1);
+        stubRows(Map.of("row_num", 2L));
+
+        Book quoted = createBookWithGenres(1L);
+        quoted.setTitle("Книга \"в кавычках\", том 1");
+        quoted.setIsbn(null);
+        List<BookImportRow> rows = List.of(
+                new BookImportRow(1, quoted),
+                new BookImportRow(2, createBookWithGenres(5L)));
+
+        // When
+        BulkImportResultDto result = bookRepository.importBooks(rows.iterator());
+
+        // Then
+        assertEquals(2, result.getReceived());
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(2, result.getErrors().get(0).getRow());
+        assertEquals("1,\"Книга \"\"в кавычках\"\", том 1\",,2024,1,\"{1}\"\n"
+                        + "2,\"Book\",,2024,1,\"{5}\"\n",
+                copied.toString(StandardCharsets.UTF_8));
+        verify(connection, times(1)).createStatement();
+        verify(connection, never()).prepareStatement(anyString());
+        verify(copyIn, never()).cancelCopy();
+        verify(connection).commit();
+    }
+
+    @Test
+    void importBooks_ReaderFails_CancelsCopyAndRollsBack() throws Exception {
+        // Given
+        PGConnection pgConnection = mock(PGConnection.class);
+        CopyManager copyManager = mock(CopyManager.class);
+        CopyIn copyIn = mock(CopyIn.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(anyString())).thenReturn(copyIn);
+        when(copyIn.isActive()).thenReturn(true);
+        Iterator<BookImportRow> rows = mock(Iterator.class);
+        when(rows.hasNext()).thenThrow(new UncheckedIOException(new IOException("Connection reset")));
+
+        // When & Then
+        assertThrows(UncheckedIOException.class, () -> bookRepository.importBooks(rows));
+        verify(copyIn).cancelCopy();
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    void exportCsv_FromStart_CopiesWithHeader() throws Exception {
+        // Given
+        PGConnection pgConnection = mock(PGConnection.class);
+        CopyManager copyManager = mock(CopyManager.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyOut(anyString(), eq(out))).thenReturn(3L);
+
+        // When
+        long exported = bookRepository.exportCsv(out, null);
+
+        // Then
+        assertEquals(3, exported);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(copyManager).copyOut(sql.capture(), eq(out));
+        assertTrue(sql.getValue().contains("WHERE TRUE"));
+        assertTrue(sql.getValue().endsWith("TO STDOUT (FORMAT csv, HEADER)"));
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    void exportNdjson_Resumed_CopiesRowsAfterIdOnly() throws Exception {
+        // Given
+        PGConnection pgConnection = mock(PGConnection.class);
+        CopyManager copyManager = mock(CopyManager.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+
+        // When
+        bookRepository.exportNdjson(out, 100L);
+
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(copyManager).copyOut(sql.capture(), eq(out));
+        assertTrue(sql.getValue().contains("WHERE b.id > 100"));
+        assertTrue(sql.getValue().contains("json_build_object"));
+        assertTrue(sql.getValue().contains("QUOTE E'\\x01'"));
+    }
+
+    private Book createBookWithGenres(Long... genreIds) {
+        Author author = new Author();
+        author.setId(1L);
+        Book book = new Book();
+        book.setId(1L);
+        book.setTitle("Book");
+        book.setPublicationYear(2024);
+        book.setAuthor(author);
+        Set<Genre> genres = new HashSet<>();
+        for (Long genreId : genreIds) {
+            Genre genre = new Genre();
+            genre.setId(genreId);
+            genres.add(genre);
+        }
+        book.setGenres(genres);
+        return book;
+    }
+
+    private List<String> captureStatements() throws SQLException {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(connection, atLeastOnce()).prepareStatement(sql.capture());
+        return sql.getAllValues();
+    }
+
+    // Эмулирует ResultSet: null в списке строк завершает текущую выборку
+    @SafeVarargs
+    private void stubRows(Map<String, Long>... rows) throws SQLException {
+        List<Map<String, Long>> data = Arrays.asList(rows);
+        AtomicInteger cursor = new AtomicInteger(-1);
+        AtomicReference<Map<String, Long>> current = new AtomicReference<>();
+
+        when(resultSet.next()).thenAnswer(invocation -> {
+            int index = cursor.incrementAndGet();
+            current.set(index < data.size() ? data.get(index) : null);
+            return current.get() != null;
+        });
+        when(resultSet.getLong(anyString())).thenAnswer(invocation ->
+                current.get().getOrDefault(invocation.<String>getArgument(0), 0L));
+        when(resultSet.wasNull()).thenAnswer(invocation -> current.get().get("genre_id") == null);
+    }
+
+    @Test
+    void findById_InstrumentedDataSource_AttributesConnectionToRepositoryMethod() throws Exception {
+        // Given
+        SqlMetrics sqlMetrics = new SqlMetrics();
+        bookRepository = new BookRepository(new InstrumentedDataSource(dataSource, sqlMetrics, 60_000));
+        when(resultSet.next()).thenReturn(false);
+
+        // When
+        bookRepository.findById(1L);
+
+        // Then
+        StringWriter metrics = new StringWriter();
+        sqlMetrics.writeTo(new PrometheusWriter(metrics));
+        assertTrue(metrics.toString().contains(
+                "db_connection_hold_seconds_count{operation=\"BookRepository.findById\"} 1\n"));
+    }
+}
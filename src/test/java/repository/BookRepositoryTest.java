@@ -1,12 +1,25 @@
 package repository;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.BookDto;
+import dto.BulkImportErrorDto;
+import dto.BulkImportResultDto;
 import entity.Author;
 import entity.Book;
 import entity.Genre;
+import exception.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -58,6 +71,81 @@ class BookRepositoryTest extends BaseRepositoryTest {
         assertTrue(bookOptional.isEmpty());
     }
 
+    @Test
+    void search_MatchesTitleWithStemming() {
+        List<BookSearchHit> hits = bookRepository.search("войны", null, null, 10);
+
+        assertEquals(1, hits.size());
+        assertEquals(2L, hits.get(0).getBook().getId());
+        assertEquals("Война и мир", hits.get(0).getBook().getTitle());
+    }
+
+    @Test
+    void search_MatchesAuthorBiographyAndPagesByRank() {
+        List<BookSearchHit> firstPage = bookRepository.search("писатель", null, null, 2);
+        BookSearchHit last = firstPage.get(1);
+        List<BookSearchHit> secondPage = bookRepository.search("писатель", last.getRank(), last.getBook().getId(), 2);
+
+        assertEquals(2, firstPage.size());
+        assertEquals(1, secondPage.size());
+        Set<Long> ids = new HashSet<>();
+        firstPage.forEach(hit -> ids.add(hit.getBook().getId()));
+        secondPage.forEach(hit -> ids.add(hit.getBook().getId()));
+        assertEquals(Set.of(1L, 2L, 3L), ids);
+    }
+
+    @Test
+    void findPage_ReturnsBooksOrderedByIdAfterCursor() {
+        List<Book> firstPage = bookRepository.findPage(null, 2);
+        List<Book> secondPage = bookRepository.findPage(firstPage.get(1).getId(), 2);
+
+        assertEquals(2, firstPage.size());
+        assertEquals(1L, firstPage.get(0).getId());
+        assertEquals(2L, firstPage.get(1).getId());
+        assertEquals(1, secondPage.size());
+        assertEquals(3L, secondPage.get(0).getId());
+        assertEquals(2, firstPage.get(0).getGenres().size());
+        assertEquals("Пушкин", firstPage.get(0).getAuthor().getLastName());
+    }
+
+    @Test
+    void findPage_WithGenreFilter_ReturnsOnlyBooksOfGenre() {
+        BookFilter filter = new BookFilter(3L, null, null, null, BookFilter.Sort.ID);
+
+        List<Book> books = bookRepository.findPage(filter, null, null, 10);
+
+        assertEquals(1, books.size());
+        assertEquals(3L, books.get(0).getId());
+        assertEquals(2, books.get(0).getGenres().size());
+    }
+
+    @Test
+    void findPage_WithYearRangeSortedByYearDesc_PagesByCompositeKey() {
+        BookFilter filter = new BookFilter(1L, null, 1850, 1900, BookFilter.Sort.YEAR_DESC);
+
+        List<Book> firstPage = bookRepository.findPage(filter, null, null, 1);
+        Book last = firstPage.get(0);
+        List<Book> secondPage = bookRepository.findPage(filter, last.getPublicationYear(), last.getId(), 1);
+        List<Book> thirdPage = bookRepository.findPage(filter, 1866, 3L, 1);
+
+        assertEquals(2L, firstPage.get(0).getId());
+        assertEquals(1, secondPage.size());
+        assertEquals(3L, secondPage.get(0).getId());
+        assertTrue(thirdPage.isEmpty());
+    }
+
+    @Test
+    void findPage_WithAuthorFilterSortedByTitle_ReturnsAuthorBooks() {
+        BookFilter filter = new BookFilter(null, 1L, null, null, BookFilter.Sort.TITLE);
+
+        List<Book> books = bookRepository.findPage(filter, null, null, 10);
+        List<Book> afterLast = bookRepository.findPage(filter, "Евгений Онегин", 1L, 10);
+
+        assertEquals(1, books.size());
+        assertEquals("Евгений Онегин", books.get(0).getTitle());
+        assertTrue(afterLast.isEmpty());
+    }
+
     @Test
     void save_NewBook_SavesSuccessfully() {
         Author author = authorRepository.findById(1L).orElseThrow();
@@ -117,6 +205,45 @@ class BookRepositoryTest extends BaseRepositoryTest {
                 .anyMatch(genre -> genre.getName().equals("Драма")));
     }
 
+    @Test
+    void findVersion_ChangesOnLinkOrGenreChange() {
+        var initial = bookRepository.findVersion();
+
+        Book book = bookRepository.findById(1L).orElseThrow();
+        book.setGenres(new HashSet<>(Set.of(genreRepository.findById(3L).orElseThrow())));
+        bookRepository.save(book);
+        var afterLinks = bookRepository.findVersion();
+
+        Genre genre = genreRepository.findById(3L).orElseThrow();
+        genre.setDescription("Изменено");
+        genreRepository.save(genre);
+        var afterGenre = bookRepository.findVersion();
+
+        assertTrue(afterLinks.getVersion() > initial.getVersion());
+        assertTrue(afterGenre.getVersion() > afterLinks.getVersion());
+        assertNotNull(afterGenre.getLastModified());
+    }
+
+    @Test
+    void save_UnchangedGenres_InsertsNoLinks() throws SQLException {
+        Book book = bookRepository.findById(1L).orElseThrow();
+        long linksVersion = linksVersion();
+
+        bookRepository.save(book);
+
+        assertEquals(linksVersion, linksVersion(), "Ни одна связь не удалена и не вставлена");
+        assertEquals(2, bookRepository.findById(1L).orElseThrow().getGenres().size());
+    }
+
+    @Test
+    void findVersion_StatementWithoutChanges_KeepsVersion() {
+        var initial = bookRepository.findVersion();
+
+        assertThrows(EntityNotFoundException.class, () -> bookRepository.deleteById(999L));
+
+        assertEquals(initial.getVersion(), bookRepository.findVersion().getVersion());
+    }
+
     @Test
     void save_UpdateBookAuthor_UpdatesSuccessfully() {
         Book book = bookRepository.findById(1L).orElseThrow();
@@ -131,6 +258,61 @@ class BookRepositoryTest extends BaseRepositoryTest {
         assertEquals("Толстой", foundBook.get().getAuthor().getLastName());
     }
 
+    @Test
+    void importBooks_MixedRows_ImportsValidRowsAndReportsErrors() {
+        List<BookImportRow> rows = List.of(
+                new BookImportRow(1, createImportBook("Новая книга", "978-5-00-000001-1", 1L, 1L, 2L)),
+                new BookImportRow(2, createImportBook("Чужой автор", "978-5-00-000001-2", 999L, 1L)),
+                new BookImportRow(3, createImportBook("Занятый ISBN", "978-5-17-123456-1", 1L, 1L)),
+                new BookImportRow(4, createImportBook("Повтор в пакете", "978-5-00-000001-1", 2L, 3L)),
+                new BookImportRow(5, createImportBook("Нет жанра", null, 2L, 99L)));
+
+        BulkImportResultDto result = bookRepository.importBooks(rows.iterator());
+
+        assertEquals(5, result.getReceived());
+        assertEquals(1, result.getImported());
+        assertEquals(4, result.getFailed());
+        assertEquals(List.of(2L, 3L, 4L, 5L),
+                result.getErrors().stream().map(BulkImportErrorDto::getRow).toList());
+
+        List<Book> books = bookRepository.findAll();
+        assertEquals(4, books.size());
+        Book imported = books.get(3);
+        assertEquals("Новая книга", imported.getTitle());
+        assertEquals(2, imported.getGenres().size());
+        assertEquals("Пушкин", imported.getAuthor().getLastName());
+    }
+
+    @Test
+    void exportCsv_ResumedAfterId_WritesRemainingRowsWithoutHeader() throws IOException {
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        ByteArrayOutputStream resumed = new ByteArrayOutputStream();
+
+        long fullCount = bookRepository.exportCsv(full, null);
+        long resumedCount = bookRepository.exportCsv(resumed, 2L);
+
+        String[] lines = full.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, fullCount);
+        assertEquals("id,title,isbn,publication_year,author_id,genre_ids", lines[0]);
+        assertEquals("1,Евгений Онегин,978-5-17-123456-1,1833,1,1;2", lines[1]);
+        assertEquals(1, resumedCount);
+        assertTrue(resumed.toString(StandardCharsets.UTF_8).startsWith("3,"));
+    }
+
+    @Test
+    void exportNdjson_WritesOneBookDtoPerLine() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        bookRepository.exportNdjson(out, null);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        BookDto first = new ObjectMapper().readValue(lines[0], BookDto.class);
+        assertEquals("Евгений Онегин", first.getTitle());
+        assertEquals("Пушкин", first.getAuthor().getLastName());
+        assertEquals(2, first.getGenres().size());
+    }
+
     @Test
     void save_NewBookWithoutAuthor_ThrowsException() {
         Book newBook = new Book();
@@ -138,4 +320,31 @@ class BookRepositoryTest extends BaseRepositoryTest {
 
         assertThrows(RuntimeException.class, () -> bookRepository.save(newBook));
     }
+
+    private Book createImportBook(String title, String isbn, Long authorId, Long... genreIds) {
+        Book book = new Book(title, isbn);
+        book.setPublicationYear(2024);
+        Author author = new Author();
+        author.setId(authorId);
+        book.setAuthor(author);
+        Set<Genre> genres = new HashSet<>();
+        for (Long genreId : genreIds) {
+            Genre genre = new Genre();
+            genre.setId(genreId);
+            genres.add(genre);
+        }
+        book.setGenres(genres);
+        return book;
+    }
+
+    // Версию books_genres увеличивает только команда, изменившая строки связей
+    private long linksVersion() throws SQLException {
+        try (Connection conn = getDataSource().getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT sum(version) FROM collection_versions WHERE table_name = 'books_genres'")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
 }
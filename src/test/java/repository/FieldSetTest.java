@@ -0,0 +1,51 @@
+package repository;
+
+import exception.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldSetTest {
+
+    @Test
+    void parse_WithoutParameter_ReturnsAllFields() {
+        assertSame(FieldSet.ALL, FieldSet.parse(null, FieldSet.BOOK_FIELDS));
+        assertSame(FieldSet.ALL, FieldSet.parse(" ", FieldSet.BOOK_FIELDS));
+        assertTrue(FieldSet.ALL.includes("genres"));
+        assertFalse(FieldSet.ALL.requests("genres"));
+    }
+
+    @Test
+    void parse_AlwaysIncludesId() {
+        // When
+        FieldSet fields = FieldSet.parse("title, isbn,", FieldSet.BOOK_FIELDS);
+
+        // Then
+        assertEquals(Set.of("id", "title", "isbn"), fields.getNames());
+        assertTrue(fields.requests("title"));
+        assertFalse(fields.includes("author"));
+    }
+
+    @Test
+    void parse_UnknownField_ThrowsValidationException() {
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> FieldSet.parse("title,rating", FieldSet.BOOK_FIELDS));
+        assertTrue(exception.getErrors().containsKey("fields"));
+    }
+
+    @Test
+    void with_AddsFieldWithoutChangingOriginal() {
+        // Given
+        FieldSet fields = FieldSet.parse("title", FieldSet.BOOK_FIELDS);
+
+        // When
+        FieldSet extended = fields.with("publicationYear");
+
+        // Then
+        assertTrue(extended.includes("publicationYear"));
+        assertFalse(fields.includes("publicationYear"));
+        assertSame(FieldSet.ALL, FieldSet.ALL.with("title"));
+    }
+}
@@ -5,6 +5,8 @@ import entity.Genre;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class GenreRepositoryTest extends BaseRepositoryTest {
@@ -44,6 +46,16 @@ class GenreRepositoryTest extends BaseRepositoryTest {
         assertTrue(genreOptional.isEmpty());
     }
 
+    @Test
+    void findAllByIds_ReturnsOnlyExistingGenresWithoutBooks() {
+        var genres = genreRepository.findAllByIds(List.of(1L, 3L, 999L));
+
+        assertEquals(2, genres.size());
+        assertTrue(genres.stream().anyMatch(genre -> genre.getName().equals("Роман")));
+        assertTrue(genres.stream().anyMatch(genre -> genre.getName().equals("Драма")));
+        assertTrue(genres.stream().allMatch(genre -> genre.getBooks().isEmpty()));
+    }
+
     @Test
     void findByName_ExistingGenre_ReturnsGenre() {
         String genreName = "Поэзия";
@@ -0,0 +1,198 @@
+package repository;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import config.ReplicaRouter;
+import entity.Genre;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Два контейнера Postgres в потоковой репликации, как в docker-compose.yml
+@Testcontainers
+class ReplicaRoutingTest {
+    private static final long MAX_LAG_MILLIS = 200;
+
+    private static final Network network = Network.newNetwork();
+
+    @Container
+    private static final PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:15.2")
+            .withDatabaseName("library_test")
+            .withUsername("test")
+            .withPassword("test")
+            .withNetwork(network)
+            .withNetworkAliases("primary")
+            .withCopyFileToContainer(MountableFile.forHostPath("docker/postgres/init/02-replication.sh"),
+                    "/docker-entrypoint-initdb.d/02-replication.sh");
+
+    @Container
+    private static final GenericContainer<?> replica = new GenericContainer<>("postgres:15.2")
+            .withNetwork(network)
+            .withEnv("PGPASSWORD", "replicator")
+            .withCreateContainerCmdModifier(cmd -> cmd.withUser("postgres"))
+            .withCommand("bash", "-c", "until pg_basebackup -h primary -U replicator"
+                    + " -D /var/lib/postgresql/data -R -X stream; do sleep 1; done"
+                    + " && chmod 0700 /var/lib/postgresql/data && exec postgres")
+            .withExposedPorts(5432)
+            .dependsOn(primary)
+            .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*", 1)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    private static HikariDataSource primaryDataSource;
+    private static HikariDataSource replicaDataSource;
+
+    private ReplicaRouter router;
+    private GenreRepository genreRepository;
+
+    @BeforeAll
+    static void initDataSources() {
+        primaryDataSource = dataSource(primary.getJdbcUrl());
+        replicaDataSource = dataSource("jdbc:postgresql://" + replica.getHost() + ":"
+                + replica.getMappedPort(5432) + "/library_test");
+    }
+
+    @AfterAll
+    static void closeDataSources() {
+        primaryDataSource.close();
+        replicaDataSource.close();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executeOnPrimary(readScript("/schema.sql"));
+        executeOnPrimary(readScript("/test-data.sql"));
+        awaitReplicaCaughtUp();
+        router = new ReplicaRouter(primaryDataSource, replicaDataSource, MAX_LAG_MILLIS, 0, System::nanoTime);
+        genreRepository = new GenreRepository(router);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        ReplicaRouter.clearRequestState();
+        executeOn(replicaDataSource, "SELECT pg_wal_replay_resume()");
+    }
+
+    @Test
+    void findAll_ReplicaInSync_ReadsFromReplica() throws Exception {
+        // When
+        DataSource readSource = router.forRead();
+
+        // Then
+        assertSame(replicaDataSource, readSource);
+        assertTrue(isInRecovery(readSource));
+        assertFalse(genreRepository.findAll().isEmpty());
+    }
+
+    @Test
+    void findByName_AfterSaveInSameRequest_ReadsOwnWrite() throws Exception {
+        // Given: воспроизведение WAL на реплике остановлено, новая строка туда не дойдет
+        executeOn(replicaDataSource, "SELECT pg_wal_replay_pause()");
+        Genre genre = new Genre();
+        genre.setName("Replicated genre");
+
+        // When
+        genreRepository.save(genre);
+
+        // Then
+        assertTrue(genreRepository.findByName("Replicated genre").isPresent());
+        assertSame(primaryDataSource, router.forRead());
+    }
+
+    @Test
+    void forRead_ReplicaReplayPaused_FallsBackToPrimary() throws Exception {
+        // Given: запись другого запроса не применена на реплике дольше допустимого отставания
+        executeOn(replicaDataSource, "SELECT pg_wal_replay_pause()");
+        executeOnPrimary("INSERT INTO genres (name) VALUES ('Lagging genre')");
+        Thread.sleep(MAX_LAG_MILLIS * 3);
+
+        // When / Then
+        assertSame(primaryDataSource, router.forRead());
+        assertTrue(router.getLastLagMillis() > MAX_LAG_MILLIS);
+        assertTrue(genreRepository.findByName("Lagging genre").isPresent());
+
+        executeOn(replicaDataSource, "SELECT pg_wal_replay_resume()");
+        awaitReplicaCaughtUp();
+        assertSame(replicaDataSource, router.forRead());
+    }
+
+    private static HikariDataSource dataSource(String url) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername("test");
+        config.setPassword("test");
+        config.setMaximumPoolSize(3);
+        return new HikariDataSource(config);
+    }
+
+    // Реплика догнала основной сервер, когда применила весь WAL, записанный на нем к этому моменту
+    private static void awaitReplicaCaughtUp() throws Exception {
+        String primaryLsn;
+        try (Connection conn = primaryDataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT pg_current_wal_lsn()::text")) {
+            rs.next();
+            primaryLsn = rs.getString(1);
+        }
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (System.nanoTime() < deadline) {
+            try (Connection conn = replicaDataSource.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                         "SELECT pg_last_wal_replay_lsn() >= '" + primaryLsn + "'::pg_lsn")) {
+                rs.next();
+                if (rs.getBoolean(1)) {
+                    return;
+                }
+            }
+            Thread.sleep(50);
+        }
+        fail("Replica did not catch up with " + primaryLsn);
+    }
+
+    private static boolean isInRecovery(DataSource dataSource) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT pg_is_in_recovery()")) {
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+
+    private static void executeOnPrimary(String sql) throws SQLException {
+        executeOn(primaryDataSource, sql);
+    }
+
+    private static void executeOn(DataSource dataSource, String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static String readScript(String path) {
+        return new BufferedReader(new InputStreamReader(ReplicaRoutingTest.class.getResourceAsStream(path)))
+                .lines()
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,135 @@
+package repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Проверяет, сколько соединений берется из пула и как фиксируется транзакция, без реальной базы
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TransactionTemplateTest {
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    private TransactionTemplate transactions;
+    private ConnectionRepository repository;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        transactions = new TransactionTemplate();
+        repository = new ConnectionRepository(dataSource);
+    }
+
+    @Test
+    void execute_ReadsAndWrites_ShareOneConnectionAndCommitOnce() throws SQLException {
+        // When: проверка чтением и запись, каждая со своим try-with-resources, как в репозиториях
+        String result = transactions.execute(() -> {
+            repository.read();
+            repository.write();
+            repository.write();
+            return "saved";
+        });
+
+        // Then
+        assertEquals("saved", result);
+        verify(dataSource, times(1)).getConnection();
+        InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(connection).commit();
+        inOrder.verify(connection).setAutoCommit(true);
+        inOrder.verify(connection).close();
+        verify(connection, never()).rollback();
+    }
+
+    @Test
+    void execute_WorkThrows_RollsBackAndReleasesConnection() throws SQLException {
+        // When
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> transactions.execute(() -> {
+            repository.write();
+            throw new IllegalStateException("Author not found");
+        }));
+
+        // Then
+        assertEquals("Author not found", thrown.getMessage());
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(connection).close();
+        assertFalse(TransactionTemplate.isActive());
+    }
+
+    @Test
+    void execute_Nested_JoinsOuterTransaction() throws SQLException {
+        // When
+        transactions.executeWithoutResult(() -> {
+            repository.write();
+            transactions.executeWithoutResult(repository::write);
+            assertTrue(TransactionTemplate.isActive());
+        });
+
+        // Then
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(1)).commit();
+        verify(connection, times(1)).close();
+    }
+
+    @Test
+    void execute_NoRepositoryCalls_DoesNotTouchPool() throws SQLException {
+        // When
+        transactions.executeWithoutResult(() -> { });
+
+        // Then
+        verifyNoInteractions(dataSource);
+    }
+
+    @Test
+    void getConnection_OutsideTransaction_TakesConnectionPerCall() throws SQLException {
+        // When
+        repository.read();
+        repository.write();
+
+        // Then: без единицы работы репозиторий сам фиксирует запись и закрывает соединение
+        verify(dataSource, times(2)).getConnection();
+        verify(connection, times(1)).commit();
+        verify(connection, times(2)).close();
+    }
+
+    // Повторяет обращение репозиториев с соединением: сами открывают, фиксируют и закрывают
+    private static final class ConnectionRepository extends BaseRepository {
+        private ConnectionRepository(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        private void read() {
+            try (Connection conn = getReadConnection()) {
+                conn.isValid(1);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void write() {
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                conn.commit();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
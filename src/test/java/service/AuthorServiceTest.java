@@ -13,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import repository.AuthorRepository;
+import repository.FieldSet;
 
 import java.util.*;
 
@@ -110,7 +111,7 @@ class AuthorServiceTest {
         List<Author> authors = Arrays.asList(createTestAuthor(), createTestAuthor());
         List<AuthorDto> expectedDtos = Arrays.asList(createTestAuthorDto(), createTestAuthorDto());
 
-        when(authorRepository.findAll()).thenReturn(authors);
+        when(authorRepository.findAll(FieldSet.ALL)).thenReturn(authors);
         when(authorMapper.toDto(any(Author.class))).thenReturn(expectedDtos.get(0), expectedDtos.get(1));
 
         // When
@@ -118,7 +119,7 @@ class AuthorServiceTest {
 
         // Then
         assertEquals(expectedDtos.size(), result.size());
-        verify(authorRepository).findAll();
+        verify(authorRepository).findAll(FieldSet.ALL);
         verify(authorMapper, times(2)).toDto(any(Author.class));
     }
 
@@ -2,7 +2,11 @@ package service;
 
 import dto.AuthorShortDto;
 import dto.BookDto;
+import dto.BookShortDto;
+import dto.BulkImportErrorDto;
+import dto.BulkImportResultDto;
 import dto.GenreShortDto;
+import dto.PageDto;
 import entity.Author;
 import entity.Book;
 import entity.Genre;
@@ -15,12 +19,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import repository.AuthorRepository;
+import repository.BookFilter;
+import repository.BookImportRow;
 import repository.BookRepository;
+import repository.BookSearchHit;
+import repository.FieldSet;
 import repository.GenreRepository;
 
+import java.io.StringReader;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -67,6 +78,114 @@ class BookServiceTest {
         verify(bookMapper).toDto(book);
     }
 
+    @Test
+    void findById_CalledTwice_LoadsBookOnce() {
+        // Given
+        Book book = createTestBook();
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookMapper.toDto(book)).thenReturn(createTestBookDto());
+
+        // When
+        BookDto first = bookService.findById(1L);
+        BookDto second = bookService.findById(1L);
+
+        // Then
+        assertSame(first, second);
+        verify(bookRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void deleteById_EvictsCachedBook() {
+        // Given
+        Book book = createTestBook();
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookMapper.toDto(book)).thenReturn(createTestBookDto());
+        bookService.findById(1L);
+
+        // When
+        bookService.deleteById(1L);
+        bookService.findById(1L);
+
+        // Then: findById, проверка перед удалением и повторная загрузка после сброса
+        verify(bookRepository, times(3)).findById(1L);
+    }
+
+    @Test
+    void importBooks_Csv_SkipsInvalidRowsAndMergesErrorsByRow() {
+        // Given: вторая строка без жанров, третья с некорректным годом, четвертую отклонит база
+        String csv = """
+                title,isbn,publication_year,author_id,genre_ids
+                "Война и мир, том 1",978-5-17-000001-1,1869,2,1;3
+                Без жанров,,1900,1,
+                Плохой год,,год,1,1
+                Чужой автор,,2000,999,1
+                """;
+        List<BookImportRow> copied = new ArrayList<>();
+        when(bookRepository.importBooks(any())).thenAnswer(invocation -> {
+            invocation.<Iterator<BookImportRow>>getArgument(0).forEachRemaining(copied::add);
+            return new BulkImportResultDto(2, 1, 1,
+                    List.of(new BulkImportErrorDto(4, "author", "Author not found with identifier: 999")));
+        });
+
+        // When
+        BulkImportResultDto result = bookService.importBooks(new StringReader(csv), DataFormat.CSV);
+
+        // Then
+        assertEquals(2, copied.size());
+        Book first = copied.get(0).getBook();
+        assertEquals("Война и мир, том 1", first.getTitle());
+        assertEquals(2L, first.getAuthor().getId());
+        assertEquals(2, first.getGenres().size());
+        assertEquals(4, result.getReceived());
+        assertEquals(1, result.getImported());
+        assertEquals(3, result.getFailed());
+        assertEquals(List.of(2L, 3L, 4L), result.getErrors().stream().map(BulkImportErrorDto::getRow).toList());
+        assertEquals("genres", result.getErrors().get(0).getField());
+        assertEquals("publicationYear", result.getErrors().get(1).getField());
+    }
+
+    @Test
+    void importBooks_NdjsonWithMalformedLine_ReportsLineNumber() {
+        // Given
+        String ndjson = """
+                {"title":"Книга","author":{"id":1},"genres":[{"id":1}]}
+
+                {"title":
+                """;
+        when(bookRepository.importBooks(any())).thenAnswer(invocation -> {
+            Iterator<BookImportRow> rows = invocation.getArgument(0);
+            long count = 0;
+            while (rows.hasNext()) {
+                rows.next();
+                count++;
+            }
+            return new BulkImportResultDto(count, count, 0, List.of());
+        });
+
+        // When
+        BulkImportResultDto result = bookService.importBooks(new StringReader(ndjson), DataFormat.NDJSON);
+
+        // Then
+        assertEquals(2, result.getReceived());
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(3, result.getErrors().get(0).getRow());
+    }
+
+    @Test
+    void importBooks_CsvWithoutRequiredColumns_ThrowsValidationException() {
+        // Given
+        String csv = "title,isbn\nКнига,123\n";
+        when(bookRepository.importBooks(any())).thenAnswer(invocation -> {
+            invocation.<Iterator<BookImportRow>>getArgument(0).hasNext();
+            return new BulkImportResultDto();
+        });
+
+        // When/Then
+        assertThrows(ValidationException.class,
+                () -> bookService.importBooks(new StringReader(csv), DataFormat.CSV));
+    }
+
     @Test
     void findById_WhenBookDoesNotExist_ThrowsException() {
         // Given
@@ -91,8 +210,8 @@ class BookServiceTest {
 
         // Мокируем все необходимые вызовы
         when(authorRepository.findById(inputDto.getAuthor().getId())).thenReturn(Optional.of(author));
-        // Добавляем мок для жанра
-        when(genreRepository.findById(any())).thenReturn(Optional.of(genre));
+        // Добавляем мок для жанров
+        when(genreRepository.findAllByIds(Set.of(1L))).thenReturn(List.of(genre));
         when(bookMapper.toEntity(inputDto)).thenReturn(book);
         when(bookRepository.save(book)).thenReturn(savedBook);
         when(bookMapper.toDto(savedBook)).thenReturn(expectedDto);
@@ -105,19 +224,42 @@ class BookServiceTest {
         assertEquals(expectedDto.getId(), result.getId());
         assertEquals(expectedDto.getTitle(), result.getTitle());
         verify(authorRepository).findById(inputDto.getAuthor().getId());
-        verify(genreRepository).findById(any()); // Проверяем, что был вызов поиска жанра
+        verify(genreRepository).findAllByIds(Set.of(1L)); // Проверяем, что жанры искались одним вызовом
+        verify(genreRepository, never()).findById(any());
         verify(bookMapper).toEntity(inputDto);
         verify(bookRepository).save(book);
         verify(bookMapper).toDto(savedBook);
     }
 
+    @Test
+    void save_WithMissingGenres_ReportsAllMissingIds() {
+        // Given
+        BookDto inputDto = createTestBookDto();
+        for (long id = 2; id <= 3; id++) {
+            GenreShortDto genreDto = new GenreShortDto();
+            genreDto.setId(id);
+            inputDto.getGenres().add(genreDto);
+        }
+        when(authorRepository.findById(inputDto.getAuthor().getId())).thenReturn(Optional.of(createTestAuthor()));
+        when(genreRepository.findAllByIds(Set.of(1L, 2L, 3L))).thenReturn(List.of(createTestGenre()));
+
+        // When/Then
+        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class,
+                () -> bookService.save(inputDto));
+
+        assertEquals("Genre", exception.getEntityName());
+        assertEquals("2, 3", exception.getIdentifier());
+        verify(genreRepository).findAllByIds(Set.of(1L, 2L, 3L));
+        verifyNoInteractions(bookRepository);
+    }
+
     @Test
     void findAll_ReturnsAllBooks() {
         // Given
         List<Book> books = Arrays.asList(createTestBook(), createTestBook());
         List<BookDto> expectedDtos = Arrays.asList(createTestBookDto(), createTestBookDto());
 
-        when(bookRepository.findAll()).thenReturn(books);
+        when(bookRepository.findAll(FieldSet.ALL)).thenReturn(books);
         when(bookMapper.toDto(any(Book.class))).thenReturn(expectedDtos.get(0), expectedDtos.get(1));
 
         // When
@@ -125,10 +267,173 @@ class BookServiceTest {
 
         // Then
         assertEquals(expectedDtos.size(), result.size());
-        verify(bookRepository).findAll();
+        verify(bookRepository).findAll(FieldSet.ALL);
         verify(bookMapper, times(2)).toDto(any(Book.class));
     }
 
+    @Test
+    void findPage_WhenMoreRowsThanLimit_ReturnsNextCursor() {
+        // Given
+        Book first = createTestBook();
+        Book second = createTestBook();
+        second.setId(2L);
+        Book third = createTestBook();
+        third.setId(3L);
+        BookDto firstDto = createTestBookDto();
+        BookDto secondDto = createTestBookDto();
+        secondDto.setId(2L);
+        BookDto thirdDto = createTestBookDto();
+        thirdDto.setId(3L);
+
+        when(bookRepository.findPage(null, 3)).thenReturn(Arrays.asList(first, second, third));
+        when(bookMapper.toDto(any(Book.class))).thenReturn(firstDto, secondDto, thirdDto);
+
+        // When
+        PageDto<BookDto> page = bookService.findPage(null, 2);
+
+        // Then
+        assertEquals(2, page.getItems().size());
+        assertEquals(PageCursor.encode(2L), page.getNextCursor());
+        verify(bookRepository).findPage(null, 3);
+    }
+
+    @Test
+    void findPage_WithCursor_ContinuesAfterDecodedId() {
+        // Given
+        when(bookRepository.findPage(2L, 3)).thenReturn(List.of(createTestBook()));
+        when(bookMapper.toDto(any(Book.class))).thenReturn(createTestBookDto());
+
+        // When
+        PageDto<BookDto> page = bookService.findPage(PageCursor.encode(2L), 2);
+
+        // Then
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void findPage_WithMalformedCursor_ThrowsValidationException() {
+        assertThrows(ValidationException.class, () -> bookService.findPage("not-a-cursor", 10));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void findPage_WithYearSort_ReturnsCompositeCursor() {
+        // Given
+        Book first = createTestBook();
+        Book second = createTestBook();
+        second.setId(2L);
+        second.setPublicationYear(1869);
+        Book third = createTestBook();
+        third.setId(3L);
+        BookFilter filter = new BookFilter(1L, null, 1800, 1900, BookFilter.Sort.YEAR_DESC);
+        when(bookRepository.findPage(filter, FieldSet.ALL, null, null, 3)).thenReturn(List.of(first, second, third));
+        when(bookMapper.toDto(any(Book.class))).thenReturn(createTestBookDto());
+
+        // When
+        PageDto<BookDto> page = bookService.findPage(filter, null, 2);
+
+        // Then
+        assertEquals(2, page.getItems().size());
+        assertEquals(PageCursor.encodeKeyed("-year", "1869", 2L), page.getNextCursor());
+    }
+
+    @Test
+    void findPage_WithTitleCursor_ContinuesAfterDecodedKey() {
+        // Given
+        BookFilter filter = new BookFilter(null, 2L, null, null, BookFilter.Sort.TITLE);
+        when(bookRepository.findPage(filter, FieldSet.ALL, "Война: и мир", 2L, 3)).thenReturn(List.of());
+
+        // When
+        PageDto<BookDto> page = bookService.findPage(filter, PageCursor.encodeKeyed("title", "Война: и мир", 2L), 2);
+
+        // Then
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+        verify(bookRepository).findPage(filter, FieldSet.ALL, "Война: и мир", 2L, 3);
+    }
+
+    @Test
+    void findPage_WithCursorOfAnotherSort_ThrowsValidationException() {
+        BookFilter filter = new BookFilter(null, null, null, null, BookFilter.Sort.YEAR);
+        String titleCursor = PageCursor.encodeKeyed("title", "Война и мир", 2L);
+
+        assertThrows(ValidationException.class, () -> bookService.findPage(filter, titleCursor, 2));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void findPage_WithInvertedYearRange_ThrowsValidationException() {
+        BookFilter filter = new BookFilter(null, null, 1900, 1800, BookFilter.Sort.ID);
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> bookService.findPage(filter, null, 10));
+        assertTrue(exception.getErrors().containsKey("yearTo"));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void search_WhenMoreHitsThanLimit_ReturnsRankedCursor() {
+        // Given
+        Book first = createTestBook();
+        Book second = createTestBook();
+        second.setId(2L);
+        Book third = createTestBook();
+        third.setId(3L);
+        when(bookRepository.search("мир", null, null, 3)).thenReturn(List.of(
+                new BookSearchHit(first, 0.9f), new BookSearchHit(second, 0.5f), new BookSearchHit(third, 0.1f)));
+        when(bookMapper.toShortDto(any(Book.class))).thenReturn(new BookShortDto());
+
+        // When
+        PageDto<BookShortDto> page = bookService.search(" мир ", null, 2);
+
+        // Then
+        assertEquals(2, page.getItems().size());
+        assertEquals(PageCursor.encodeRanked(0.5f, 2L), page.getNextCursor());
+    }
+
+    @Test
+    void search_WithCursor_ContinuesAfterDecodedPosition() {
+        // Given
+        when(bookRepository.search("мир", 0.5f, 2L, 3)).thenReturn(List.of());
+
+        // When
+        PageDto<BookShortDto> page = bookService.search("мир", PageCursor.encodeRanked(0.5f, 2L), 2);
+
+        // Then
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+        verify(bookRepository).search("мир", 0.5f, 2L, 3);
+    }
+
+    @Test
+    void search_WithBlankQuery_ThrowsValidationException() {
+        assertThrows(ValidationException.class, () -> bookService.search("  ", null, 10));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void streamAll_MapsEachBookToDto() {
+        // Given
+        Book book = createTestBook();
+        BookDto dto = createTestBookDto();
+        doAnswer(invocation -> {
+            Consumer<Book> action = invocation.getArgument(1);
+            action.accept(book);
+            action.accept(book);
+            return null;
+        }).when(bookRepository).streamAll(eq(FieldSet.ALL), any());
+        when(bookMapper.toDto(book)).thenReturn(dto);
+
+        // When
+        List<BookDto> result = new ArrayList<>();
+        bookService.streamAll(result::add);
+
+        // Then
+        assertEquals(2, result.size());
+        assertSame(dto, result.get(0));
+    }
+
     @Test
     void deleteById_ExistingBook_DeletesSuccessfully() {
         // Given
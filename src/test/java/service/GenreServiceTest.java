@@ -12,7 +12,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import repository.GenreRepository;
+import repository.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -112,6 +114,78 @@ class GenreServiceTest {
         verify(genreMapper, times(2)).toDto(any(Genre.class));
     }
 
+    @Test
+    void findAll_CalledTwice_LoadsGenresOnce() {
+        // Given
+        when(genreRepository.findAll()).thenReturn(List.of(createTestGenre()));
+        when(genreMapper.toDto(any(Genre.class))).thenReturn(createTestGenreDto());
+
+        // When
+        genreService.findAll();
+        genreService.findAll();
+
+        // Then
+        verify(genreRepository, times(1)).findAll();
+    }
+
+    @Test
+    void save_NewGenreWithExistingName_ThrowsDuplicateEntityException() {
+        // Given
+        GenreDto inputDto = createTestGenreDto();
+        inputDto.setId(null);
+        when(genreRepository.findByName(inputDto.getName())).thenReturn(Optional.of(createTestGenre()));
+
+        // When/Then
+        assertThrows(DuplicateEntityException.class, () -> genreService.save(inputDto));
+        verify(genreRepository, never()).findAll();
+        verify(genreRepository, never()).save(any());
+    }
+
+    @Test
+    void save_NewGenre_ChecksNameAndWritesInOneTransaction() {
+        // Given
+        GenreDto inputDto = createTestGenreDto();
+        inputDto.setId(null);
+        Genre genre = createTestGenre();
+        List<Boolean> inTransaction = new ArrayList<>();
+        when(genreRepository.findByName(inputDto.getName())).thenAnswer(invocation -> {
+            inTransaction.add(TransactionTemplate.isActive());
+            return Optional.empty();
+        });
+        when(genreMapper.toEntity(inputDto)).thenReturn(genre);
+        when(genreRepository.save(genre)).thenAnswer(invocation -> {
+            inTransaction.add(TransactionTemplate.isActive());
+            return genre;
+        });
+        when(genreMapper.toDto(any(Genre.class))).thenReturn(inputDto);
+
+        // When
+        genreService.save(inputDto);
+
+        // Then
+        assertEquals(List.of(true, true), inTransaction);
+        assertFalse(TransactionTemplate.isActive());
+    }
+
+    @Test
+    void save_InvalidatesGenreCache() {
+        // Given
+        GenreDto inputDto = createTestGenreDto();
+        Genre genre = createTestGenre();
+        when(genreRepository.findAll()).thenReturn(List.of(genre));
+        when(genreMapper.toEntity(inputDto)).thenReturn(genre);
+        when(genreRepository.save(genre)).thenReturn(genre);
+        when(genreMapper.toDto(any(Genre.class))).thenReturn(inputDto);
+        genreService.findAll();
+
+        // When
+        genreService.save(inputDto);
+        genreService.findAll();
+
+        // Then
+        verify(genreRepository, times(2)).findAll();
+    }
+
     @Test
     void deleteById_ExistingGenre_DeletesSuccessfully() {
         // Given
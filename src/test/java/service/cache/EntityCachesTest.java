@@ -0,0 +1,203 @@
+package service.cache;
+
+import dto.AuthorDto;
+import dto.AuthorShortDto;
+import dto.BookDto;
+import dto.BookShortDto;
+import dto.GenreDto;
+import dto.GenreShortDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityCachesTest {
+
+    private EntityCaches entityCaches;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        entityCaches = new EntityCaches(100, Duration.ofMinutes(10));
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void get_SameId_LoadsOnceAndRecordsHit() {
+        // When
+        entityCaches.books().get(1L, id -> createBook(id, 1L, 1L));
+        entityCaches.books().get(1L, id -> createBook(id, 1L, 1L));
+
+        // Then
+        assertEquals(1, loads.get());
+        assertEquals(1, entityCaches.books().stats().hitCount());
+        assertEquals(1, entityCaches.books().stats().missCount());
+    }
+
+    @Test
+    void onAuthorChanged_EvictsAuthorAndBooksEmbeddingIt() {
+        // Given
+        entityCaches.authors().get(1L, this::createAuthor);
+        entityCaches.books().get(10L, id -> createBook(id, 1L, 1L));
+        entityCaches.books().get(20L, id -> createBook(id, 2L, 1L));
+
+        // When
+        entityCaches.onAuthorChanged(1L);
+
+        // Then
+        assertFalse(isCached(entityCaches.authors(), 1L));
+        assertFalse(isCached(entityCaches.books(), 10L));
+        assertTrue(isCached(entityCaches.books(), 20L));
+    }
+
+    @Test
+    void onBookChanged_EvictsOldAndNewAuthorsAndGenres() {
+        // Given: автор 1 и жанр 1 содержат книгу 10, книга переходит к автору 2 и жанру 2
+        entityCaches.authors().get(1L, id -> createAuthorWithBook(id, 10L));
+        entityCaches.authors().get(2L, this::createAuthor);
+        entityCaches.authors().get(3L, this::createAuthor);
+        entityCaches.genres().get(1L, id -> createGenreWithBook(id, 10L));
+        entityCaches.genres().get(2L, this::createGenre);
+        entityCaches.genres().get(3L, this::createGenre);
+        entityCaches.books().get(10L, id -> createBook(id, 1L, 1L));
+
+        // When
+        entityCaches.onBookChanged(10L, 2L, Set.of(2L));
+
+        // Then
+        assertFalse(isCached(entityCaches.books(), 10L));
+        assertFalse(isCached(entityCaches.authors(), 1L));
+        assertFalse(isCached(entityCaches.authors(), 2L));
+        assertTrue(isCached(entityCaches.authors(), 3L));
+        assertFalse(isCached(entityCaches.genres(), 1L));
+        assertFalse(isCached(entityCaches.genres(), 2L));
+        assertTrue(isCached(entityCaches.genres(), 3L));
+    }
+
+    @Test
+    void onGenreChanged_EvictsBooksWithGenreAndNewlyLinkedBooks() {
+        // Given
+        entityCaches.genres().get(1L, this::createGenre);
+        entityCaches.books().get(10L, id -> createBook(id, 1L, 1L));
+        entityCaches.books().get(20L, id -> createBook(id, 1L, 2L));
+        entityCaches.books().get(30L, id -> createBook(id, 1L, 2L));
+
+        // When
+        entityCaches.onGenreChanged(1L, Set.of(20L));
+
+        // Then
+        assertFalse(isCached(entityCaches.genres(), 1L));
+        assertFalse(isCached(entityCaches.books(), 10L));
+        assertFalse(isCached(entityCaches.books(), 20L));
+        assertTrue(isCached(entityCaches.books(), 30L));
+    }
+
+    private boolean isCached(DtoCache<?> cache, Long id) {
+        int before = loads.get();
+        cache.get(id, key -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        return loads.get() == before;
+    }
+
+    @Test
+    void onGenreChanged_DropsGenreAndBookListResponsesOnly() {
+        // Given
+        EntityCaches caches = new EntityCaches(100, Duration.ofMinutes(10), new ResponseCache(1024 * 1024, false));
+        ResponseCache responses = caches.responses();
+        for (String region : new String[]{ResponseCache.BOOKS, ResponseCache.AUTHORS, ResponseCache.GENRES}) {
+            responses.put(ResponseCache.key(region, null), responses.generation(), new byte[]{'[', ']'});
+        }
+
+        // When
+        caches.onGenreChanged(1L, Set.of());
+
+        // Then
+        assertNull(responses.get(ResponseCache.key(ResponseCache.GENRES, null)));
+        assertNull(responses.get(ResponseCache.key(ResponseCache.BOOKS, null)));
+        assertNotNull(responses.get(ResponseCache.key(ResponseCache.AUTHORS, null)));
+    }
+
+    @Test
+    void onAuthorChanged_DuringBookLoad_LoadedBookIsNotKept() throws Exception {
+        // Given: книга читается из базы до записи автора, а в кэш попадает после сброса
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        CompletableFuture<BookDto> load = CompletableFuture.supplyAsync(() ->
+                entityCaches.books().get(10L, id -> {
+                    BookDto book = createBook(id, 1L, 1L);
+                    loading.countDown();
+                    await(written);
+                    return book;
+                }));
+        loading.await();
+
+        // When
+        entityCaches.onAuthorChanged(1L);
+        written.countDown();
+
+        // Then
+        assertEquals(10L, load.get(5, TimeUnit.SECONDS).getId());
+        entityCaches.books().get(10L, id -> createBook(id, 1L, 1L));
+        assertEquals(2, loads.get(), "Книга, загруженная до записи, перечитывается");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BookDto createBook(Long id, Long authorId, Long genreId) {
+        loads.incrementAndGet();
+        BookDto book = new BookDto();
+        book.setId(id);
+        AuthorShortDto author = new AuthorShortDto();
+        author.setId(authorId);
+        book.setAuthor(author);
+        GenreShortDto genre = new GenreShortDto();
+        genre.setId(genreId);
+        book.getGenres().add(genre);
+        return book;
+    }
+
+    private AuthorDto createAuthor(Long id) {
+        loads.incrementAndGet();
+        AuthorDto author = new AuthorDto();
+        author.setId(id);
+        return author;
+    }
+
+    private AuthorDto createAuthorWithBook(Long id, Long bookId) {
+        AuthorDto author = createAuthor(id);
+        BookShortDto book = new BookShortDto();
+        book.setId(bookId);
+        author.getBooks().add(book);
+        return author;
+    }
+
+    private GenreDto createGenre(Long id) {
+        loads.incrementAndGet();
+        GenreDto genre = new GenreDto();
+        genre.setId(id);
+        return genre;
+    }
+
+    private GenreDto createGenreWithBook(Long id, Long bookId) {
+        GenreDto genre = createGenre(id);
+        BookShortDto book = new BookShortDto();
+        book.setId(bookId);
+        genre.getBooks().add(book);
+        return genre;
+    }
+}
@@ -0,0 +1,143 @@
+package service.cache;
+
+import entity.Genre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.GenreRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GenreCacheTest {
+
+    @Mock
+    private GenreRepository genreRepository;
+
+    private GenreCache genreCache;
+
+    @BeforeEach
+    void setUp() {
+        genreCache = new GenreCache(genreRepository, TimeUnit.HOURS.toNanos(1));
+    }
+
+    @Test
+    void reads_AfterFirstLoad_DoNotHitRepository() {
+        // Given
+        when(genreRepository.findAll()).thenReturn(List.of(createGenre(1L, "Роман"), createGenre(2L, "Драма")));
+
+        // When
+        List<Genre> all = genreCache.findAll();
+        var byName = genreCache.findByName("Драма");
+        List<Genre> byIds = genreCache.findAllByIds(Set.of(1L, 2L));
+
+        // Then
+        assertEquals(2, all.size());
+        assertTrue(byName.isPresent());
+        assertEquals(2L, byName.get().getId());
+        assertEquals(2, byIds.size());
+        verify(genreRepository, times(1)).findAll();
+        verify(genreRepository, never()).findAllByIds(any());
+    }
+
+    @Test
+    void invalidate_ForcesReloadOnNextRead() {
+        // Given
+        when(genreRepository.findAll())
+                .thenReturn(List.of(createGenre(1L, "Роман")))
+                .thenReturn(List.of(createGenre(1L, "Роман"), createGenre(2L, "Драма")));
+        genreCache.findAll();
+
+        // When
+        genreCache.invalidate();
+        List<Genre> genres = genreCache.findAll();
+
+        // Then
+        assertEquals(2, genres.size());
+        verify(genreRepository, times(2)).findAll();
+    }
+
+    @Test
+    void invalidate_WhileReloading_OtherReadersGetPreviousSnapshot() throws Exception {
+        // Given: перезагрузка после сброса висит на чтении из базы
+        CountDownLatch reloading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(genreRepository.findAll())
+                .thenReturn(List.of(createGenre(1L, "Роман")))
+                .thenAnswer(invocation -> {
+                    reloading.countDown();
+                    release.await();
+                    return List.of(createGenre(1L, "Роман"), createGenre(2L, "Драма"));
+                });
+        genreCache.findAll();
+        genreCache.invalidate();
+        CompletableFuture<List<Genre>> reloader = CompletableFuture.supplyAsync(genreCache::findAll);
+        reloading.await();
+
+        // When
+        List<Genre> meanwhile = genreCache.findAll();
+        release.countDown();
+
+        // Then
+        assertEquals(1, meanwhile.size());
+        assertEquals(2, reloader.get(5, TimeUnit.SECONDS).size());
+        assertEquals(2, genreCache.findAll().size());
+        verify(genreRepository, times(2)).findAll();
+    }
+
+    @Test
+    void findAllByIds_Miss_ReadsThroughToRepository() {
+        // Given
+        when(genreRepository.findAll()).thenReturn(List.of(createGenre(1L, "Роман")));
+        when(genreRepository.findAllByIds(Set.of(2L, 3L))).thenReturn(List.of(createGenre(2L, "Драма")));
+
+        // When
+        List<Genre> genres = genreCache.findAllByIds(Set.of(1L, 2L, 3L));
+
+        // Then
+        assertEquals(2, genres.size());
+        verify(genreRepository).findAllByIds(Set.of(2L, 3L));
+    }
+
+    @Test
+    void expiredSnapshot_IsRefreshed() {
+        // Given
+        GenreCache expiring = new GenreCache(genreRepository, 0);
+        when(genreRepository.findAll()).thenReturn(List.of(createGenre(1L, "Роман")));
+
+        // When
+        expiring.findAll();
+        expiring.findAll();
+
+        // Then
+        verify(genreRepository, times(2)).findAll();
+    }
+
+    @Test
+    void returnedGenres_AreCopies() {
+        // Given
+        when(genreRepository.findAll()).thenReturn(List.of(createGenre(1L, "Роман")));
+
+        // When
+        genreCache.findAll().get(0).setName("Изменено");
+
+        // Then
+        assertEquals("Роман", genreCache.findAll().get(0).getName());
+    }
+
+    private Genre createGenre(Long id, String name) {
+        Genre genre = new Genre();
+        genre.setId(id);
+        genre.setName(name);
+        return genre;
+    }
+}
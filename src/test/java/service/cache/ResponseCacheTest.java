@@ -0,0 +1,160 @@
+package service.cache;
+
+import dto.CollectionVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ResponseCache(1024 * 1024, true);
+    }
+
+    @Test
+    void put_StoresBodyOffHeap() {
+        // Given
+        String key = ResponseCache.key(ResponseCache.GENRES, null);
+
+        // When
+        cache.put(key, cache.generation(), bytes("[{\"id\":1}]"));
+
+        // Then
+        ByteBuffer body = cache.get(key).body();
+        assertTrue(body.isDirect());
+        assertTrue(body.isReadOnly());
+        assertEquals("[{\"id\":1}]", text(body));
+        assertNull(cache.get(key).gzippedBody(), "Мелкий ответ не сжимается");
+    }
+
+    @Test
+    void put_LargeBody_StoresGzippedVariant() throws IOException {
+        // Given
+        String json = "[" + "{\"id\":1,\"name\":\"Роман\"},".repeat(200) + "{}]";
+
+        // When
+        ResponseCache.Entry entry = cache.put("books:limit=10", cache.generation(), bytes(json));
+
+        // Then
+        ByteBuffer gzipped = entry.gzippedBody();
+        assertNotNull(gzipped);
+        byte[] compressed = new byte[gzipped.remaining()];
+        gzipped.get(compressed);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(json, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void get_ReturnsIndependentPositions() {
+        // Given
+        cache.put("genres:", cache.generation(), bytes("[]"));
+
+        // When
+        ByteBuffer first = cache.get("genres:").body();
+        first.get(new byte[first.remaining()]);
+
+        // Then
+        assertEquals(2, cache.get("genres:").body().remaining());
+    }
+
+    @Test
+    void put_AfterInvalidation_IsNotCached() {
+        // Given: ответ собран до записи в базу
+        long generation = cache.generation();
+        cache.invalidate(ResponseCache.BOOKS);
+
+        // When
+        ResponseCache.Entry entry = cache.put("books:", generation, bytes("[]"));
+
+        // Then
+        assertNotNull(entry);
+        assertNull(cache.get("books:"));
+    }
+
+    @Test
+    void invalidate_RemovesOnlyRegion() {
+        // Given
+        cache.put("books:limit=10", cache.generation(), bytes("[]"));
+        cache.put("genres:", cache.generation(), bytes("[]"));
+
+        // When
+        cache.invalidate(ResponseCache.BOOKS);
+
+        // Then
+        assertNull(cache.get("books:limit=10"));
+        assertNotNull(cache.get("genres:"));
+    }
+
+    @Test
+    void put_OverBudget_EvictsEntriesAndSkipsOversizedBodies() {
+        // Given
+        ResponseCache small = new ResponseCache(8 * 1024, false);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            small.put("books:page=" + i, small.generation(), new byte[1000]);
+        }
+        ResponseCache.Entry oversized = small.put("books:all", small.generation(), new byte[2 * 1024]);
+
+        // Then
+        assertNull(oversized);
+        assertTrue(small.getUsedBytes() <= 8 * 1024);
+        assertTrue(small.stats().evictionCount() > 0);
+    }
+
+    @Test
+    void disabled_DoesNotCache() {
+        ResponseCache disabled = new ResponseCache(0, true);
+
+        assertFalse(disabled.isEnabled());
+        assertNull(disabled.put("genres:", disabled.generation(), bytes("[]")));
+    }
+
+    @Test
+    void put_WithVersion_KeepsValidatorsWithBody() {
+        // Given
+        CollectionVersion version = new CollectionVersion(7, Instant.parse("2024-01-01T00:00:00Z"));
+
+        // When
+        cache.put("authors:", cache.generation(), version, bytes("[]"));
+
+        // Then
+        assertSame(version, cache.get("authors:").version());
+    }
+
+    @Test
+    void get_AfterTtl_ReturnsNull() throws InterruptedException {
+        // Given
+        ResponseCache shortLived = new ResponseCache(1024 * 1024, false, Duration.ofMillis(50));
+        shortLived.put("genres:", shortLived.generation(), bytes("[]"));
+
+        // When
+        Thread.sleep(100);
+
+        // Then
+        assertNull(shortLived.get("genres:"), "Срок жизни страхует от записей в обход хуков");
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,214 @@
+package service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestIndexTest {
+
+    @Test
+    void suggest_MatchesPrefixOfAnyWord() {
+        // Given
+        SuggestIndex index = new SuggestIndex(
+                source(Map.of(1L, "Война и мир", 2L, "Мастер и Маргарита")),
+                source(Map.of(3L, "Лев Толстой")),
+                Long.MAX_VALUE);
+
+        // When
+        List<SuggestIndex.Suggestion> byFirstWord = index.suggest("Вой", 10);
+        List<SuggestIndex.Suggestion> byLastWord = index.suggest("мир", 10);
+        List<SuggestIndex.Suggestion> byAuthor = index.suggest("толс", 10);
+
+        // Then
+        assertEquals(List.of(1L), ids(byFirstWord));
+        assertEquals(List.of(1L), ids(byLastWord));
+        assertEquals(1, byAuthor.size());
+        assertEquals(SuggestIndex.Type.AUTHOR, byAuthor.get(0).getType());
+        assertEquals("Лев Толстой", byAuthor.get(0).getText());
+    }
+
+    @Test
+    void suggest_PrefixLongerThanKey_ChecksWholePrefix() {
+        // Given: названия совпадают в первых 32 символах и расходятся дальше
+        String common = "Приключения капитана Врунгеля и ";
+        SuggestIndex index = new SuggestIndex(
+                source(Map.of(1L, common + "его команды", 2L, common + "его яхты")),
+                source(Map.of()),
+                Long.MAX_VALUE);
+
+        // When
+        List<SuggestIndex.Suggestion> both = index.suggest(common + "его", 10);
+        List<SuggestIndex.Suggestion> one = index.suggest(common + "его ях", 10);
+        List<SuggestIndex.Suggestion> none = index.suggest(common + "его лодки", 10);
+
+        // Then
+        assertEquals(2, both.size());
+        assertEquals(List.of(2L), ids(one));
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    void suggest_NormalizesCaseAndYo() {
+        // Given
+        SuggestIndex index = new SuggestIndex(source(Map.of(1L, "Ёлка")), source(Map.of()), Long.MAX_VALUE);
+
+        // When
+        List<SuggestIndex.Suggestion> suggestions = index.suggest("ЕЛ", 10);
+
+        // Then
+        assertEquals(List.of(1L), ids(suggestions));
+    }
+
+    @Test
+    void suggest_RespectsLimitAndReturnsEachDocumentOnce() {
+        // Given
+        SuggestIndex index = new SuggestIndex(
+                source(Map.of(1L, "Мир мира", 2L, "Мир", 3L, "Мирный")),
+                source(Map.of()),
+                Long.MAX_VALUE);
+
+        // When
+        List<SuggestIndex.Suggestion> all = index.suggest("мир", 10);
+        List<SuggestIndex.Suggestion> limited = index.suggest("мир", 2);
+
+        // Then
+        assertEquals(3, all.size());
+        assertEquals(3, ids(all).stream().distinct().count());
+        assertEquals(2, limited.size());
+    }
+
+    @Test
+    void putAndRemove_AreVisibleWithoutReload() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+        SuggestIndex index = new SuggestIndex((action) -> {
+            loads.incrementAndGet();
+            action.accept(1L, "Старое название");
+        }, source(Map.of()), Long.MAX_VALUE);
+        index.load();
+
+        // When
+        index.putBook(1L, "Новое название");
+        index.putBook(2L, "Старик и море");
+        index.removeAuthor(1L);
+
+        // Then
+        assertEquals(List.of(1L), ids(index.suggest("нов", 10)));
+        assertEquals(List.of(2L), ids(index.suggest("стар", 10)));
+        assertEquals(1, loads.get());
+
+        // When
+        index.removeBook(2L);
+
+        // Then
+        assertTrue(index.suggest("стар", 10).isEmpty());
+        assertEquals(1, index.getDocumentCount());
+    }
+
+    @Test
+    void manyWrites_CompactIntoSortedSegments() {
+        // Given
+        SuggestIndex index = new SuggestIndex(source(Map.of()), source(Map.of()), Long.MAX_VALUE);
+        index.load();
+
+        // When
+        for (long id = 1; id <= 5_000; id++) {
+            index.putBook(id, "Книга " + id);
+        }
+        for (long id = 1; id <= 5_000; id += 2) {
+            index.removeBook(id);
+        }
+
+        // Then
+        assertEquals(2_500, index.getDocumentCount());
+        assertEquals(List.of(4_998L), ids(index.suggest("4998", 10)));
+        assertTrue(index.suggest("4999", 10).isEmpty());
+    }
+
+    @Test
+    void invalidate_ReloadsFromSourceOnNextQuery() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+        SuggestIndex index = new SuggestIndex((action) -> {
+            if (loads.incrementAndGet() > 1) {
+                action.accept(2L, "Импортированная книга");
+            }
+        }, source(Map.of()), Long.MAX_VALUE);
+        assertTrue(index.suggest("импорт", 10).isEmpty());
+
+        // When
+        index.invalidate();
+        List<SuggestIndex.Suggestion> suggestions = index.suggest("импорт", 10);
+
+        // Then
+        assertEquals(List.of(2L), ids(suggestions));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidate_ReloadFails_RetriesOnNextQuery() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+        SuggestIndex index = new SuggestIndex((action) -> {
+            if (loads.incrementAndGet() == 2) {
+                throw new IllegalStateException("Connection refused");
+            }
+            action.accept(1L, "Мир");
+        }, source(Map.of()), Long.MAX_VALUE);
+        index.load();
+        index.invalidate();
+
+        // When
+        assertThrows(IllegalStateException.class, () -> index.suggest("мир", 10));
+        List<SuggestIndex.Suggestion> afterRetry = index.suggest("мир", 10);
+
+        // Then
+        assertEquals(3, loads.get());
+        assertEquals(List.of(1L), ids(afterRetry));
+    }
+
+    @Test
+    void load_StopsAtMemoryBudget() {
+        // Given
+        SuggestIndex index = new SuggestIndex((action) -> {
+            for (long id = 1; id <= 1_000; id++) {
+                action.accept(id, "Достаточно длинное название книги номер " + id);
+            }
+        }, source(Map.of()), 10_000);
+
+        // When
+        index.load();
+
+        // Then
+        assertTrue(index.isTruncated());
+        assertTrue(index.getDocumentCount() < 1_000);
+        assertTrue(index.getEstimatedBytes() <= 10_000);
+    }
+
+    @Test
+    void suggest_WithBlankPrefix_ReturnsEmptyWithoutLoading() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+        SuggestIndex index = new SuggestIndex((action) -> loads.incrementAndGet(), source(Map.of()), Long.MAX_VALUE);
+
+        // When
+        List<SuggestIndex.Suggestion> suggestions = index.suggest(" - ", 10);
+
+        // Then
+        assertTrue(suggestions.isEmpty());
+        assertEquals(0, loads.get());
+    }
+
+    private static SuggestIndex.Source source(Map<Long, String> rows) {
+        return (BiConsumer<Long, String> action) -> rows.forEach(action);
+    }
+
+    private static List<Long> ids(List<SuggestIndex.Suggestion> suggestions) {
+        return suggestions.stream().map(SuggestIndex.Suggestion::getId).toList();
+    }
+}
@@ -53,6 +53,7 @@ class ServiceFactoryTest {
         assertNotNull(factory.getAuthorService());
         assertNotNull(factory.getBookService());
         assertNotNull(factory.getGenreService());
+        assertNotNull(factory.getExportService());
     }
 
     @Test
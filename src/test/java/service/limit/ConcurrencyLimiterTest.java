@@ -0,0 +1,124 @@
+package service.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void tryAcquire_AtLimit_RejectsUntilPermitReleased() {
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10, 1, clock::get);
+        ConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        // When
+        ConcurrencyLimiter.Permit rejected = limiter.tryAcquire();
+        first.onIgnore();
+        ConcurrencyLimiter.Permit afterRelease = limiter.tryAcquire();
+
+        // Then
+        assertNull(rejected);
+        assertNotNull(afterRelease);
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void onSuccess_ReleasedTwice_DecrementsInFlightOnce() {
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10, 1, clock::get);
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+
+        // When
+        permit.onSuccess();
+        permit.onDropped();
+
+        // Then
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void samples_StableLatencyUnderFullLoad_RaiseLimitUpToMax() {
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 40, 1, clock::get);
+
+        // When
+        for (int round = 0; round < 50; round++) {
+            runBatch(limiter, limiter.getLimit(), 10, false);
+        }
+
+        // Then
+        assertEquals(40, limiter.getLimit());
+    }
+
+    @Test
+    void samples_LatencyGrowsUnderLoad_LowerLimit() {
+        // Given: сначала задержка 10 мс, затем запросы встают в очередь и идут по 100 мс
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(40, 1, 40, 1, clock::get);
+        for (int round = 0; round < 20; round++) {
+            runBatch(limiter, limiter.getLimit(), 10, false);
+        }
+
+        // When
+        for (int round = 0; round < 10; round++) {
+            runBatch(limiter, limiter.getLimit(), 100, false);
+        }
+
+        // Then
+        assertTrue(limiter.getLimit() < 20, "limit was " + limiter.getLimit());
+    }
+
+    @Test
+    void samples_DroppedRequests_LowerLimit() {
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 1, 40, 1, clock::get);
+
+        // When
+        runBatch(limiter, 20, 10, true);
+
+        // Then
+        assertTrue(limiter.getLimit() < 20, "limit was " + limiter.getLimit());
+    }
+
+    @Test
+    void samples_LowUtilization_KeepLimit() {
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 1, 40, 1, clock::get);
+
+        // When: по одному запросу за раз - предел не проверяется нагрузкой
+        for (int i = 0; i < 100; i++) {
+            runBatch(limiter, 1, 10, false);
+        }
+
+        // Then
+        assertEquals(20, limiter.getLimit());
+    }
+
+    // Занимает count мест одновременно и освобождает их через latencyMillis
+    private void runBatch(ConcurrencyLimiter limiter, int count, long latencyMillis, boolean dropped) {
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            if (permit != null) {
+                permits.add(permit);
+            }
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        for (ConcurrencyLimiter.Permit permit : permits) {
+            if (dropped) {
+                permit.onDropped();
+            } else {
+                permit.onSuccess();
+            }
+        }
+    }
+}
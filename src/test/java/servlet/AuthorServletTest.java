@@ -14,6 +14,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import repository.FieldSet;
 import service.AuthorService;
 
 import java.io.*;
@@ -38,15 +39,14 @@ class AuthorServletTest {
     private AuthorService authorService;
 
     private AuthorServlet servlet;
-    private StringWriter responseWriter;
+    private ByteArrayOutputStream responseBody;
     private ObjectMapper objectMapper;
 
     @BeforeEach
     void setUp() throws IOException {
         servlet = new AuthorServlet(authorService);
-        responseWriter = new StringWriter();
-        PrintWriter writer = new PrintWriter(responseWriter);
-        when(response.getWriter()).thenReturn(writer);
+        responseBody = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(ServletStreams.outputTo(responseBody));
         objectMapper = new ObjectMapper();
     }
 
@@ -55,15 +55,15 @@ class AuthorServletTest {
         // Given
         List<AuthorDto> authors = Arrays.asList(createTestAuthorDto(), createTestAuthorDto());
         when(request.getPathInfo()).thenReturn(null);
-        when(authorService.findAll()).thenReturn(authors);
+        when(authorService.findAll(FieldSet.ALL)).thenReturn(authors);
 
         // When
         servlet.doGet(request, response);
 
         // Then
-        verify(authorService).findAll();
+        verify(authorService).findAll(FieldSet.ALL);
         verify(response).setStatus(HttpServletResponse.SC_OK);
-        List<AuthorDto> result = objectMapper.readValue(responseWriter.toString(),
+        List<AuthorDto> result = objectMapper.readValue(ServletStreams.bodyOf(responseBody),
                 new TypeReference<List<AuthorDto>>() {});
         assertEquals(2, result.size());
     }
@@ -82,7 +82,7 @@ class AuthorServletTest {
         // Then
         verify(authorService).findById(authorId);
         verify(response).setStatus(HttpServletResponse.SC_OK);
-        AuthorDto result = objectMapper.readValue(responseWriter.toString(), AuthorDto.class);
+        AuthorDto result = objectMapper.readValue(ServletStreams.bodyOf(responseBody), AuthorDto.class);
         assertEquals(author.getId(), result.getId());
     }
 
@@ -92,8 +92,7 @@ class AuthorServletTest {
         AuthorDto inputDto = createTestAuthorDto();
         String requestBody = objectMapper.writeValueAsString(inputDto);
 
-        BufferedReader reader = new BufferedReader(new StringReader(requestBody));
-        when(request.getReader()).thenReturn(reader);
+        when(request.getInputStream()).thenReturn(ServletStreams.inputOf(requestBody));
         when(authorService.save(any(AuthorDto.class))).thenReturn(inputDto);
 
         // When
@@ -102,7 +101,7 @@ class AuthorServletTest {
         // Then
         verify(authorService).save(any(AuthorDto.class));
         verify(response).setStatus(HttpServletResponse.SC_CREATED);
-        AuthorDto result = objectMapper.readValue(responseWriter.toString(), AuthorDto.class);
+        AuthorDto result = objectMapper.readValue(ServletStreams.bodyOf(responseBody), AuthorDto.class);
         assertEquals(inputDto.getId(), result.getId());
     }
 
@@ -114,8 +113,7 @@ class AuthorServletTest {
         String requestBody = objectMapper.writeValueAsString(inputDto);
 
         when(request.getPathInfo()).thenReturn("/" + authorId);
-        BufferedReader reader = new BufferedReader(new StringReader(requestBody));
-        when(request.getReader()).thenReturn(reader);
+        when(request.getInputStream()).thenReturn(ServletStreams.inputOf(requestBody));
         when(authorService.save(any(AuthorDto.class))).thenReturn(inputDto);
 
         // When
@@ -124,7 +122,7 @@ class AuthorServletTest {
         // Then
         verify(authorService).save(any(AuthorDto.class));
         verify(response).setStatus(HttpServletResponse.SC_OK);
-        AuthorDto result = objectMapper.readValue(responseWriter.toString(), AuthorDto.class);
+        AuthorDto result = objectMapper.readValue(ServletStreams.bodyOf(responseBody), AuthorDto.class);
         assertEquals(inputDto.getId(), result.getId());
     }
 
@@ -153,7 +151,7 @@ class AuthorServletTest {
 
         // Then
         verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
-        ErrorResponse error = objectMapper.readValue(responseWriter.toString(), ErrorResponse.class);
+        ErrorResponse error = objectMapper.readValue(ServletStreams.bodyOf(responseBody), ErrorResponse.class);
         assertNotNull(error.getMessage());
     }
 
@@ -0,0 +1,291 @@
+package servlet;
+
+import dto.BookDto;
+import dto.BulkImportResultDto;
+import exception.DatabaseException;
+import exception.LibraryException;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import metrics.MetricsRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import service.BookService;
+import service.limit.ConcurrencyLimiter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BaseServletAsyncTest {
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @Mock
+    private AsyncContext asyncContext;
+
+    @Mock
+    private BookService bookService;
+
+    private BookServlet servlet;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        servlet = new BookServlet(bookService);
+        when(response.getOutputStream()).thenReturn(ServletStreams.outputTo(new ByteArrayOutputStream()));
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn("/1");
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.startAsync(eq(request), any(HttpServletResponse.class))).thenReturn(asyncContext);
+    }
+
+    @Test
+    void service_AsyncSupported_RunsOnVirtualThreadAndCompletes() throws ServletException, IOException {
+        // Given
+        AtomicBoolean virtual = new AtomicBoolean();
+        when(bookService.findById(1L)).thenAnswer(invocation -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            return new BookDto();
+        });
+
+        // When
+        servlet.service(request, response);
+
+        // Then
+        verify(asyncContext, timeout(2000)).complete();
+        assertTrue(virtual.get());
+        verify(asyncContext).setTimeout(TimeUnit.SECONDS.toMillis(30));
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+    }
+
+    @Test
+    void service_Timeout_RespondsServiceUnavailableAndCompletesOnce() throws Exception {
+        // Given: сервис не отвечает, пока не истечет таймаут
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookService.findById(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new BookDto();
+        });
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+
+        // When
+        servlet.service(request, response);
+        verify(asyncContext).addListener(listener.capture());
+        listener.getValue().onTimeout(null);
+        release.countDown();
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(asyncContext, after(300).times(1)).complete();
+    }
+
+    @Test
+    void service_WorkerFinishesAfterTimeout_DoesNotTouchCompletedResponse() throws Exception {
+        // Given: обработчик не реагирует на прерывание, как драйвер JDBC посреди запроса
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookService.findById(1L)).thenAnswer(invocation -> {
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                    // Прерывание не останавливает вызов
+                }
+            }
+            return new BookDto();
+        });
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        servlet.service(request, response);
+        verify(asyncContext).addListener(listener.capture());
+
+        // When
+        listener.getValue().onTimeout(null);
+
+        // Then: ответ завершен, но обработчик еще держит ресурсы и учитывается при остановке
+        verify(asyncContext).complete();
+        assertFalse(BaseServlet.awaitInFlight(50));
+
+        release.countDown();
+        assertTrue(BaseServlet.awaitInFlight(2000));
+        verify(response, never()).setStatus(HttpServletResponse.SC_OK);
+        verify(response, times(1)).getOutputStream();
+        verify(asyncContext, times(1)).complete();
+    }
+
+    @Test
+    void service_AsyncNotSupported_HandlesRequestOnCallerThread() throws ServletException, IOException {
+        // Given
+        when(request.isAsyncSupported()).thenReturn(false);
+        when(bookService.findById(1L)).thenReturn(new BookDto());
+
+        // When
+        servlet.service(request, response);
+
+        // Then
+        verify(request, never()).startAsync(any(), any());
+        verify(bookService).findById(1L);
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+    }
+
+    @Test
+    void service_OverConcurrencyLimit_RejectsWithRetryAfter() throws ServletException, IOException {
+        // Given: единственное место уже занято
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 2, System::nanoTime);
+        limiter.tryAcquire();
+        servlet = new BookServlet(bookService, limiter);
+
+        // When
+        servlet.service(request, response);
+
+        // Then
+        verify(response).setHeader("Retry-After", "2");
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(request, never()).startAsync(any(), any());
+        verifyNoInteractions(bookService);
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    void service_WithinConcurrencyLimit_ReleasesPermitAfterAsyncCompletion() throws ServletException, IOException {
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 1, System::nanoTime);
+        servlet = new BookServlet(bookService, limiter);
+        when(bookService.findById(1L)).thenReturn(new BookDto());
+
+        // When
+        servlet.service(request, response);
+
+        // Then
+        verify(asyncContext, timeout(2000)).complete();
+        assertEquals(0, limiter.getInFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    void service_BulkImport_RunsSynchronouslyAndIgnoresLatency() throws Exception {
+        // Given: загрузка длится дольше таймаута асинхронного запроса и завершается ошибкой
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 20, 1, System::nanoTime);
+        servlet = new BookServlet(bookService, limiter);
+        Thread caller = Thread.currentThread();
+        AtomicBoolean sameThread = new AtomicBoolean();
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getPathInfo()).thenReturn("/bulk");
+        when(request.getContentType()).thenReturn("application/x-ndjson");
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader("")));
+        when(response.getStatus()).thenReturn(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        when(bookService.importBooks(any(), any())).thenAnswer(invocation -> {
+            sameThread.set(Thread.currentThread() == caller);
+            return new BulkImportResultDto();
+        });
+
+        // When
+        servlet.service(request, response);
+
+        // Then
+        verify(request, never()).startAsync(any(), any());
+        assertTrue(sameThread.get());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(10, limiter.getLimit(), "Загрузка не снижает адаптивный предел");
+    }
+
+    @Test
+    void service_RecordsRequestMetrics() throws Exception {
+        // Given
+        when(request.isAsyncSupported()).thenReturn(false);
+        when(bookService.findById(1L)).thenReturn(new BookDto());
+        when(response.getStatus()).thenReturn(HttpServletResponse.SC_OK);
+
+        // When
+        servlet.service(request, response);
+
+        // Then
+        StringWriter metrics = new StringWriter();
+        MetricsRegistry.getInstance().writePrometheus(metrics);
+        assertTrue(metrics.toString().contains(
+                "http_server_requests_total{servlet=\"BookServlet\",method=\"GET\",status=\"200\"}"));
+    }
+
+    @Test
+    void service_Draining_RejectsWithoutCallingService() throws ServletException, IOException {
+        // Given
+        BaseServlet.setDraining(true);
+        try {
+            // When
+            servlet.service(request, response);
+        } finally {
+            BaseServlet.setDraining(false);
+        }
+
+        // Then
+        verify(response).setHeader("Retry-After", "1");
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(request, never()).startAsync(any(), any());
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void awaitInFlight_AsyncRequestRunning_WaitsForCompletion() throws Exception {
+        // Given: обработка запроса заблокирована до сигнала
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookService.findById(1L)).thenAnswer(invocation -> {
+            release.await();
+            return new BookDto();
+        });
+        servlet.service(request, response);
+
+        // When / Then
+        assertFalse(BaseServlet.awaitInFlight(50));
+        release.countDown();
+        assertTrue(BaseServlet.awaitInFlight(2000));
+        verify(asyncContext, timeout(2000)).complete();
+    }
+
+    @Test
+    void service_StreamFailsAfterCommit_RunsSynchronouslyAndAbortsConnection() throws Exception {
+        // Given: часть массива уже отправлена, затем база обрывает курсор
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(ServletStreams.outputTo(body));
+        when(request.getPathInfo()).thenReturn(null);
+        when(request.getParameter("stream")).thenReturn("true");
+        when(response.isCommitted()).thenReturn(true);
+        doAnswer(invocation -> {
+            Consumer<BookDto> action = invocation.getArgument(1);
+            action.accept(new BookDto());
+            throw new DatabaseException("Cursor closed", new SQLException("Connection reset"));
+        }).when(bookService).streamAll(any(), any());
+
+        // When
+        IOException thrown = assertThrows(IOException.class, () -> servlet.service(request, response));
+
+        // Then
+        assertInstanceOf(LibraryException.class, thrown.getCause());
+        verify(request, never()).startAsync(any(), any());
+        verify(response, never()).setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        assertFalse(ServletStreams.bodyOf(body).contains("Internal server error"));
+        assertTrue(BaseServlet.awaitInFlight(0));
+    }
+}
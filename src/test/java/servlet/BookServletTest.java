@@ -1,25 +1,39 @@
 package servlet;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dto.AuthorShortDto;
 import dto.BookDto;
+import dto.BookShortDto;
+import dto.BulkImportErrorDto;
+import dto.BulkImportResultDto;
+import dto.CollectionVersion;
 import dto.GenreShortDto;
+import dto.PageDto;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import repository.BookFilter;
+import repository.FieldSet;
+import service.DataFormat;
 import service.BookService;
 
 import java.io.*;
+import java.time.Instant;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,15 +49,14 @@ class BookServletTest {
     private BookService bookService;
 
     private BookServlet servlet;
-    private StringWriter responseWriter;
+    private ByteArrayOutputStream responseBody;
     private ObjectMapper objectMapper;
 
     @BeforeEach
     void setUp() throws IOException {
         servlet = new BookServlet(bookService);
-        responseWriter = new StringWriter();
-        PrintWriter writer = new PrintWriter(responseWriter);
-        when(response.getWriter()).thenReturn(writer);
+        responseBody = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(ServletStreams.outputTo(responseBody));
         objectMapper = new ObjectMapper();
     }
 
@@ -52,19 +65,186 @@ class BookServletTest {
         // Given
         List<BookDto> books = Arrays.asList(createTestBookDto(), createTestBookDto());
         when(request.getPathInfo()).thenReturn(null);
-        when(bookService.findAll()).thenReturn(books);
+        when(bookService.findAll(FieldSet.ALL)).thenReturn(books);
 
         // When
         servlet.doGet(request, response);
 
         // Then
-        verify(bookService).findAll();
+        verify(bookService).findAll(FieldSet.ALL);
         verify(response).setStatus(HttpServletResponse.SC_OK);
-        List<BookDto> result = objectMapper.readValue(responseWriter.toString(),
+        List<BookDto> result = objectMapper.readValue(ServletStreams.bodyOf(responseBody),
                 new TypeReference<List<BookDto>>() {});
         assertEquals(2, result.size());
     }
 
+    @Test
+    void doGet_WithLimit_ReturnsPage() throws IOException {
+        // Given
+        PageDto<BookDto> page = new PageDto<>(List.of(createTestBookDto()), "next");
+        when(request.getPathInfo()).thenReturn(null);
+        when(request.getParameter("limit")).thenReturn("1");
+        when(request.getParameter("after")).thenReturn("cursor");
+        when(bookService.findPage(FieldSet.ALL, "cursor", 1)).thenReturn(page);
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(bookService).findPage(FieldSet.ALL, "cursor", 1);
+        verify(bookService, never()).findAll(FieldSet.ALL);
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        PageDto<BookDto> result = objectMapper.readValue(ServletStreams.bodyOf(responseBody),
+                new TypeReference<PageDto<BookDto>>() {});
+        assertEquals(1, result.getItems().size());
+        assertEquals("next", result.getNextCursor());
+    }
+
+    @Test
+    void doGet_WithFilters_ReturnsFilteredPage() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn(null);
+        when(request.getParameter("genreId")).thenReturn("1");
+        when(request.getParameter("yearFrom")).thenReturn("1800");
+        when(request.getParameter("sort")).thenReturn("-year");
+        when(bookService.findPage(any(BookFilter.class), eq(FieldSet.ALL), isNull(), eq(50)))
+                .thenReturn(new PageDto<>(List.of(createTestBookDto()), null));
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        ArgumentCaptor<BookFilter> filter = ArgumentCaptor.forClass(BookFilter.class);
+        verify(bookService).findPage(filter.capture(), eq(FieldSet.ALL), isNull(), eq(50));
+        assertEquals(1L, filter.getValue().getGenreId());
+        assertNull(filter.getValue().getAuthorId());
+        assertEquals(1800, filter.getValue().getYearFrom());
+        assertEquals(BookFilter.Sort.YEAR_DESC, filter.getValue().getSort());
+        verify(bookService, never()).findAll(FieldSet.ALL);
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+    }
+
+    @Test
+    void doGet_WithInvalidFilter_ReturnsBadRequest() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn(null);
+        when(request.getParameter("authorId")).thenReturn("abc");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        verify(bookService, never()).findPage(any(BookFilter.class), any(FieldSet.class), any(), anyInt());
+    }
+
+    @Test
+    void doGet_WithUnknownSort_ReturnsBadRequest() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn(null);
+        when(request.getParameter("sort")).thenReturn("rating");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+    }
+
+    @Test
+    void doGet_WithFields_WritesOnlyRequestedProperties() throws IOException {
+        // Given
+        FieldSet fields = FieldSet.parse("title,author", FieldSet.BOOK_FIELDS);
+        when(request.getPathInfo()).thenReturn(null);
+        when(request.getParameter("fields")).thenReturn("title,author");
+        when(bookService.findAll(fields)).thenReturn(List.of(createTestBookDto()));
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(bookService).findAll(fields);
+        JsonNode book = objectMapper.readTree(ServletStreams.bodyOf(responseBody)).get(0);
+        Set<String> names = new HashSet<>();
+        book.fieldNames().forEachRemaining(names::add);
+        assertEquals(Set.of("id", "title", "author"), names);
+        // Вложенный автор не фильтруется
+        assertTrue(book.get("author").has("lastName"));
+    }
+
+    @Test
+    void doGet_WithUnknownField_ReturnsBadRequest() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn("/1");
+        when(request.getParameter("fields")).thenReturn("title,price");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        verify(bookService, never()).findById(anyLong());
+    }
+
+    @Test
+    void doGet_Search_ReturnsRankedPage() throws IOException {
+        // Given
+        BookShortDto hit = new BookShortDto();
+        hit.setId(2L);
+        hit.setTitle("Война и мир");
+        when(request.getPathInfo()).thenReturn("/search");
+        when(request.getParameter("q")).thenReturn("война");
+        when(bookService.search("война", null, 50)).thenReturn(new PageDto<>(List.of(hit), "next"));
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        PageDto<BookShortDto> result = objectMapper.readValue(ServletStreams.bodyOf(responseBody),
+                new TypeReference<PageDto<BookShortDto>>() {});
+        assertEquals("Война и мир", result.getItems().get(0).getTitle());
+        assertEquals("next", result.getNextCursor());
+    }
+
+    @Test
+    void doGet_WithStream_WritesBooksFromService() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn(null);
+        when(request.getParameter("stream")).thenReturn("true");
+        doAnswer(invocation -> {
+            Consumer<BookDto> action = invocation.getArgument(1);
+            action.accept(createTestBookDto());
+            action.accept(createTestBookDto());
+            return null;
+        }).when(bookService).streamAll(eq(FieldSet.ALL), any());
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(bookService).streamAll(eq(FieldSet.ALL), any());
+        verify(bookService, never()).findAll(FieldSet.ALL);
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        List<BookDto> result = objectMapper.readValue(ServletStreams.bodyOf(responseBody),
+                new TypeReference<List<BookDto>>() {});
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    void doGet_WithInvalidLimit_ReturnsBadRequest() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn(null);
+        when(request.getParameter("limit")).thenReturn("0");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        verifyNoInteractions(bookService);
+    }
+
     @Test
     void doGet_WithValidId_ReturnsBook() throws IOException {
         // Given
@@ -79,18 +259,72 @@ class BookServletTest {
         // Then
         verify(bookService).findById(bookId);
         verify(response).setStatus(HttpServletResponse.SC_OK);
-        BookDto result = objectMapper.readValue(responseWriter.toString(), BookDto.class);
+        BookDto result = objectMapper.readValue(ServletStreams.bodyOf(responseBody), BookDto.class);
         assertEquals(book.getId(), result.getId());
     }
 
+    @Test
+    void doGet_WithMatchingIfNoneMatch_ReturnsNotModified() throws IOException {
+        // Given
+        BookDto book = createTestBookDto();
+        book.setUpdatedAt(Instant.parse("2024-01-01T10:00:00Z"));
+        when(request.getPathInfo()).thenReturn("/1");
+        when(bookService.findById(1L)).thenReturn(book);
+        String etag = "W/\"book-1-" + book.getUpdatedAt().toEpochMilli() + "-1\"";
+        when(request.getHeader("If-None-Match")).thenReturn(etag);
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setHeader("ETag", etag);
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response, never()).setStatus(HttpServletResponse.SC_OK);
+        assertEquals("", ServletStreams.bodyOf(responseBody));
+    }
+
+    @Test
+    void doGet_ListNotModifiedSince_SkipsLoadingBooks() throws IOException {
+        // Given
+        Instant lastModified = Instant.parse("2024-01-01T10:00:00Z");
+        when(request.getPathInfo()).thenReturn(null);
+        when(bookService.getCollectionVersion()).thenReturn(new CollectionVersion(3, lastModified));
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(lastModified.toEpochMilli());
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setDateHeader("Last-Modified", lastModified.toEpochMilli());
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(bookService, never()).findAll(FieldSet.ALL);
+    }
+
+    @Test
+    void doGet_ListChanged_ReturnsBooksWithNewEtag() throws IOException {
+        // Given
+        Instant lastModified = Instant.parse("2024-01-01T10:00:00Z");
+        when(request.getPathInfo()).thenReturn(null);
+        when(bookService.getCollectionVersion()).thenReturn(new CollectionVersion(3, lastModified));
+        when(request.getHeader("If-None-Match")).thenReturn("W/\"books-2-" + lastModified.toEpochMilli() + "\"");
+        when(bookService.findAll(FieldSet.ALL)).thenReturn(List.of(createTestBookDto()));
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setHeader("ETag", "W/\"books-3-" + lastModified.toEpochMilli() + "\"");
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        verify(bookService).findAll(FieldSet.ALL);
+    }
+
     @Test
     void doPost_WithValidBook_ReturnsCreatedBook() throws IOException {
         // Given
         BookDto inputDto = createTestBookDto();
         String requestBody = objectMapper.writeValueAsString(inputDto);
 
-        BufferedReader reader = new BufferedReader(new StringReader(requestBody));
-        when(request.getReader()).thenReturn(reader);
+        when(request.getInputStream()).thenReturn(ServletStreams.inputOf(requestBody));
         when(bookService.save(any(BookDto.class))).thenReturn(inputDto);
 
         // When
@@ -99,7 +333,7 @@ class BookServletTest {
         // Then
         verify(bookService).save(any(BookDto.class));
         verify(response).setStatus(HttpServletResponse.SC_CREATED);
-        BookDto result = objectMapper.readValue(responseWriter.toString(), BookDto.class);
+        BookDto result = objectMapper.readValue(ServletStreams.bodyOf(responseBody), BookDto.class);
         assertEquals(inputDto.getId(), result.getId());
     }
 
@@ -109,8 +343,75 @@ class BookServletTest {
         BookDto invalidDto = new BookDto(); // Без обязательных полей
         String requestBody = objectMapper.writeValueAsString(invalidDto);
 
-        BufferedReader reader = new BufferedReader(new StringReader(requestBody));
+        when(request.getInputStream()).thenReturn(ServletStreams.inputOf(requestBody));
+
+        // When
+        servlet.doPost(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void doPost_WithContentLengthOverLimit_ReturnsPayloadTooLargeWithoutReadingBody() throws IOException {
+        // Given
+        when(request.getContentLengthLong()).thenReturn(2L * 1024 * 1024);
+
+        // When
+        servlet.doPost(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        verify(request, never()).getInputStream();
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void doPost_WithChunkedBodyOverLimit_ReturnsPayloadTooLarge() throws IOException {
+        // Given
+        BookDto inputDto = createTestBookDto();
+        inputDto.setTitle("x".repeat(2 * 1024 * 1024));
+        String requestBody = objectMapper.writeValueAsString(inputDto);
+
+        when(request.getContentLengthLong()).thenReturn(-1L);
+        when(request.getInputStream()).thenReturn(ServletStreams.inputOf(requestBody));
+
+        // When
+        servlet.doPost(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void doPost_BulkCsv_ReturnsImportReport() throws IOException {
+        // Given
+        BufferedReader reader = new BufferedReader(new StringReader("title,author_id,genre_ids\n"));
+        when(request.getPathInfo()).thenReturn("/bulk");
+        when(request.getContentType()).thenReturn("text/csv; charset=UTF-8");
         when(request.getReader()).thenReturn(reader);
+        when(bookService.importBooks(reader, DataFormat.CSV))
+                .thenReturn(new BulkImportResultDto(3, 2, 1,
+                        List.of(new BulkImportErrorDto(2, "author", "Author not found with identifier: 9"))));
+
+        // When
+        servlet.doPost(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        BulkImportResultDto result = objectMapper.readValue(ServletStreams.bodyOf(responseBody), BulkImportResultDto.class);
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getErrors().get(0).getRow());
+        verify(bookService, never()).save(any());
+    }
+
+    @Test
+    void doPost_BulkWithUnsupportedContentType_ReturnsBadRequest() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn("/bulk");
+        when(request.getContentType()).thenReturn("application/xml");
 
         // When
         servlet.doPost(request, response);
@@ -128,8 +429,7 @@ class BookServletTest {
         String requestBody = objectMapper.writeValueAsString(inputDto);
 
         when(request.getPathInfo()).thenReturn("/" + bookId);
-        BufferedReader reader = new BufferedReader(new StringReader(requestBody));
-        when(request.getReader()).thenReturn(reader);
+        when(request.getInputStream()).thenReturn(ServletStreams.inputOf(requestBody));
         when(bookService.save(any(BookDto.class))).thenReturn(inputDto);
 
         // When
@@ -138,7 +438,7 @@ class BookServletTest {
         // Then
         verify(bookService).save(any(BookDto.class));
         verify(response).setStatus(HttpServletResponse.SC_OK);
-        BookDto result = objectMapper.readValue(responseWriter.toString(), BookDto.class);
+        BookDto result = objectMapper.readValue(ServletStreams.bodyOf(responseBody), BookDto.class);
         assertEquals(inputDto.getId(), result.getId());
     }
 
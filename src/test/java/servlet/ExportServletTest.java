@@ -0,0 +1,170 @@
+package servlet;
+
+import exception.EntityNotFoundException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import service.DataFormat;
+import service.ExportService;
+import service.limit.ConcurrencyLimiter;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ExportServletTest {
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @Mock
+    private ServletOutputStream outputStream;
+
+    @Mock
+    private ExportService exportService;
+
+    private ExportServlet servlet;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        servlet = new ExportServlet(exportService);
+        when(response.getOutputStream()).thenReturn(outputStream);
+    }
+
+    @Test
+    void doGet_WithoutParameters_ExportsNdjsonFromStart() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn("/books");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        verify(response).setHeader("Accept-Ranges", "id");
+        verify(response).setContentType("application/x-ndjson");
+        verify(exportService).export(eq("books"), eq(DataFormat.NDJSON), isNull(), eq(outputStream));
+    }
+
+    @Test
+    void doGet_WithRangeHeader_ResumesFromRequestedId() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn("/authors");
+        when(request.getParameter("format")).thenReturn("csv");
+        when(request.getHeader("Range")).thenReturn("id=101-");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "id 101-*/*");
+        verify(response).setContentType("text/csv");
+        verify(exportService).export("authors", DataFormat.CSV, 100L, outputStream);
+    }
+
+    @Test
+    void doGet_WithAfterParameterAndCsvAccept_ResumesAfterId() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn("/genres");
+        when(request.getHeader("Accept")).thenReturn("text/csv");
+        when(request.getParameter("after")).thenReturn("42");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(exportService).export("genres", DataFormat.CSV, 42L, outputStream);
+    }
+
+    @Test
+    void doGet_WithInvalidAfter_ReturnsBadRequest() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn("/books");
+        when(request.getParameter("after")).thenReturn("abc");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void doGet_UnknownCollection_ResetsExportHeadersAndReturnsNotFound() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn("/publishers");
+        when(exportService.export(eq("publishers"), any(), any(), any()))
+                .thenThrow(new EntityNotFoundException("Export", "publishers"));
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).reset();
+        verify(response).setStatus(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @Test
+    void doGet_FailureAfterCommit_AbortsResponse() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn("/books");
+        when(response.isCommitted()).thenReturn(true);
+        when(exportService.export(any(), any(), any(), any())).thenThrow(new IOException("Broken pipe"));
+
+        // When/Then
+        assertThrows(IOException.class, () -> servlet.doGet(request, response));
+        verify(response, never()).reset();
+    }
+
+    @Test
+    void service_LimiterFull_RejectsExportWithoutCopy() throws Exception {
+        // Given: все места ограничителя заняты
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 1, System::nanoTime);
+        limiter.tryAcquire();
+        servlet = new ExportServlet(exportService, limiter);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn("/books");
+
+        // When
+        servlet.service(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void service_ExportCompleted_ReleasesPermitWithoutChangingLimit() throws Exception {
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 20, 1, System::nanoTime);
+        servlet = new ExportServlet(exportService, limiter);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn("/books");
+
+        // When
+        servlet.service(request, response);
+
+        // Then: поток ответа обернут счетчиком байт BaseServlet
+        verify(exportService).export(eq("books"), eq(DataFormat.NDJSON), isNull(), any());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(10, limiter.getLimit());
+    }
+}
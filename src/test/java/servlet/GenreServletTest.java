@@ -2,6 +2,7 @@ package servlet;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.CollectionVersion;
 import dto.ErrorResponse;
 import dto.GenreDto;
 import jakarta.servlet.http.HttpServletRequest;
@@ -14,9 +15,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import service.GenreService;
+import service.cache.ResponseCache;
 
 import java.io.*;
+import java.time.Instant;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -36,15 +40,14 @@ class GenreServletTest {
     private GenreService genreService;
 
     private GenreServlet servlet;
-    private StringWriter responseWriter;
+    private ByteArrayOutputStream responseBody;
     private ObjectMapper objectMapper;
 
     @BeforeEach
     void setUp() throws IOException {
         servlet = new GenreServlet(genreService);
-        responseWriter = new StringWriter();
-        PrintWriter writer = new PrintWriter(responseWriter);
-        when(response.getWriter()).thenReturn(writer);
+        responseBody = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(ServletStreams.outputTo(responseBody));
         objectMapper = new ObjectMapper();
     }
 
@@ -62,19 +65,82 @@ class GenreServletTest {
         // Then
         verify(genreService).findById(genreId);
         verify(response).setStatus(HttpServletResponse.SC_OK);
-        GenreDto result = objectMapper.readValue(responseWriter.toString(), GenreDto.class);
+        GenreDto result = objectMapper.readValue(ServletStreams.bodyOf(responseBody), GenreDto.class);
         assertEquals(genre.getId(), result.getId());
         assertEquals(genre.getName(), result.getName());
     }
 
+    @Test
+    void doGet_ListTwice_SecondResponseServedFromCache() throws IOException {
+        // Given
+        servlet = new GenreServlet(genreService, null, new ResponseCache(1024 * 1024, false));
+        when(genreService.findAll()).thenReturn(List.of(createTestGenreDto()));
+        servlet.doGet(request, response);
+        String first = ServletStreams.bodyOf(responseBody);
+        responseBody.reset();
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(genreService, times(1)).findAll();
+        verify(genreService, times(1)).getCollectionVersion();
+        assertEquals(first, ServletStreams.bodyOf(responseBody));
+        List<GenreDto> result = objectMapper.readValue(first, new TypeReference<>() {});
+        assertEquals("Test Genre", result.get(0).getName());
+    }
+
+    @Test
+    void doGet_ListCachedAndEtagMatches_ReturnsNotModifiedWithoutVersionQuery() throws IOException {
+        // Given
+        servlet = new GenreServlet(genreService, null, new ResponseCache(1024 * 1024, false));
+        Instant lastModified = Instant.parse("2024-01-01T00:00:00Z");
+        when(genreService.getCollectionVersion()).thenReturn(new CollectionVersion(3, lastModified));
+        when(genreService.findAll()).thenReturn(List.of(createTestGenreDto()));
+        servlet.doGet(request, response);
+        String etag = "W/\"genres-3-" + lastModified.toEpochMilli() + "\"";
+        when(request.getHeader("If-None-Match")).thenReturn(etag);
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(genreService, times(1)).getCollectionVersion();
+        verify(response, times(2)).setHeader("ETag", etag);
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    void doGet_ListWithAcceptGzip_ServesPrecompressedBody() throws IOException {
+        // Given
+        servlet = new GenreServlet(genreService, null, new ResponseCache(1024 * 1024, true));
+        List<GenreDto> genres = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            GenreDto genre = createTestGenreDto();
+            genre.setId(id);
+            genres.add(genre);
+        }
+        when(genreService.findAll()).thenReturn(genres);
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setHeader("Content-Encoding", "gzip");
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(responseBody.toByteArray()))) {
+            List<GenreDto> result = objectMapper.readValue(in, new TypeReference<>() {});
+            assertEquals(50, result.size());
+        }
+    }
+
     @Test
     void doPost_WithValidGenre_ReturnsCreatedGenre() throws IOException {
         // Given
         GenreDto inputDto = createTestGenreDto();
         String requestBody = objectMapper.writeValueAsString(inputDto);
 
-        BufferedReader reader = new BufferedReader(new StringReader(requestBody));
-        when(request.getReader()).thenReturn(reader);
+        when(request.getInputStream()).thenReturn(ServletStreams.inputOf(requestBody));
         when(genreService.save(any(GenreDto.class))).thenReturn(inputDto);
 
         // When
@@ -83,7 +149,7 @@ class GenreServletTest {
         // Then
         verify(genreService).save(any(GenreDto.class));
         verify(response).setStatus(HttpServletResponse.SC_CREATED);
-        GenreDto result = objectMapper.readValue(responseWriter.toString(), GenreDto.class);
+        GenreDto result = objectMapper.readValue(ServletStreams.bodyOf(responseBody), GenreDto.class);
         assertEquals(inputDto.getId(), result.getId());
         assertEquals(inputDto.getName(), result.getName());
     }
@@ -94,8 +160,7 @@ class GenreServletTest {
         GenreDto invalidDto = new GenreDto(); // Без имени
         String requestBody = objectMapper.writeValueAsString(invalidDto);
 
-        BufferedReader reader = new BufferedReader(new StringReader(requestBody));
-        when(request.getReader()).thenReturn(reader);
+        when(request.getInputStream()).thenReturn(ServletStreams.inputOf(requestBody));
 
         // When
         servlet.doPost(request, response);
@@ -113,8 +178,7 @@ class GenreServletTest {
         String requestBody = objectMapper.writeValueAsString(inputDto);
 
         when(request.getPathInfo()).thenReturn("/" + genreId);
-        BufferedReader reader = new BufferedReader(new StringReader(requestBody));
-        when(request.getReader()).thenReturn(reader);
+        when(request.getInputStream()).thenReturn(ServletStreams.inputOf(requestBody));
         when(genreService.save(any(GenreDto.class))).thenReturn(inputDto);
 
         // When
@@ -123,7 +187,7 @@ class GenreServletTest {
         // Then
         verify(genreService).save(any(GenreDto.class));
         verify(response).setStatus(HttpServletResponse.SC_OK);
-        GenreDto result = objectMapper.readValue(responseWriter.toString(), GenreDto.class);
+        GenreDto result = objectMapper.readValue(ServletStreams.bodyOf(responseBody), GenreDto.class);
         assertEquals(inputDto.getId(), result.getId());
         assertEquals(inputDto.getName(), result.getName());
     }
@@ -131,10 +195,8 @@ class GenreServletTest {
     @Test
     void doGet_WithInvalidId_ReturnsBadRequest() throws IOException {
         // Given
-        StringWriter responseWriter = new StringWriter();
-        PrintWriter writer = new PrintWriter(responseWriter);
-
-        when(response.getWriter()).thenReturn(writer);
+        ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(ServletStreams.outputTo(responseBody));
         when(request.getPathInfo()).thenReturn("/invalid");
 
         // When
@@ -142,7 +204,7 @@ class GenreServletTest {
 
         // Then
         verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
-        ErrorResponse error = objectMapper.readValue(responseWriter.toString(), ErrorResponse.class);
+        ErrorResponse error = objectMapper.readValue(ServletStreams.bodyOf(responseBody), ErrorResponse.class);
         assertNotNull(error.getMessage());
     }
 
@@ -174,10 +236,8 @@ class GenreServletTest {
     void doGet_WhenNoPathInfo_ReturnsAllGenres() throws IOException {
         // Given
         List<GenreDto> genres = Arrays.asList(createTestGenreDto(), createTestGenreDto());
-        StringWriter responseWriter = new StringWriter();
-        PrintWriter writer = new PrintWriter(responseWriter);
-
-        when(response.getWriter()).thenReturn(writer);
+        ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(ServletStreams.outputTo(responseBody));
         when(request.getPathInfo()).thenReturn(null);
         when(genreService.findAll()).thenReturn(genres);
 
@@ -187,7 +247,7 @@ class GenreServletTest {
         // Then
         verify(genreService).findAll();
         verify(response).setStatus(HttpServletResponse.SC_OK);
-        List<GenreDto> result = objectMapper.readValue(responseWriter.toString(),
+        List<GenreDto> result = objectMapper.readValue(ServletStreams.bodyOf(responseBody),
                 new TypeReference<List<GenreDto>>() {});
         assertEquals(2, result.size());
     }
@@ -0,0 +1,109 @@
+package servlet;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class HealthServletTest {
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    private final AtomicBoolean ready = new AtomicBoolean();
+    private HealthServlet servlet;
+    private ByteArrayOutputStream responseBody;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        servlet = new HealthServlet(ready::get);
+        responseBody = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(ServletStreams.outputTo(responseBody));
+    }
+
+    @Test
+    void doGet_Live_ReturnsUp() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn("/live");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        assertTrue(ServletStreams.bodyOf(responseBody).contains("\"UP\""));
+    }
+
+    @Test
+    void doGet_ReadyBeforeStartupCompleted_ReturnsServiceUnavailable() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn("/ready");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        assertTrue(ServletStreams.bodyOf(responseBody).contains("\"DOWN\""));
+    }
+
+    @Test
+    void doGet_ReadyAfterStartup_ReturnsUp() throws IOException {
+        // Given
+        ready.set(true);
+        when(request.getPathInfo()).thenReturn("/ready");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        assertTrue(ServletStreams.bodyOf(responseBody).contains("\"UP\""));
+    }
+
+    @Test
+    void doGet_UnknownCheck_ReturnsNotFound() throws IOException {
+        // Given
+        when(request.getPathInfo()).thenReturn("/other");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @Test
+    void service_Draining_StillAnswersHealthChecks() throws ServletException, IOException {
+        // Given
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn("/live");
+        BaseServlet.setDraining(true);
+        try {
+            // When
+            servlet.service(request, response);
+        } finally {
+            BaseServlet.setDraining(false);
+        }
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+    }
+}
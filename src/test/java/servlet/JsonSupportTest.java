@@ -0,0 +1,74 @@
+package servlet;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dto.AuthorShortDto;
+import dto.BookDto;
+import org.junit.jupiter.api.Test;
+import repository.FieldSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonSupportTest {
+
+    @Test
+    void readerAndWriter_AreCachedPerTypeAndFieldSet() {
+        FieldSet fields = FieldSet.parse("title", FieldSet.BOOK_FIELDS);
+
+        assertSame(JsonSupport.reader(BookDto.class), JsonSupport.reader(BookDto.class));
+        assertSame(JsonSupport.writer(), JsonSupport.writer(FieldSet.ALL));
+        assertSame(JsonSupport.writer(fields), JsonSupport.writer(FieldSet.parse("title", FieldSet.BOOK_FIELDS)));
+    }
+
+    @Test
+    void writer_WithFields_FiltersTopLevelObjectOnly() throws IOException {
+        // Given
+        AuthorShortDto author = new AuthorShortDto();
+        author.setId(2L);
+        author.setLastName("Tolstoy");
+        BookDto book = new BookDto();
+        book.setId(1L);
+        book.setTitle("Title");
+        book.setIsbn("978-0");
+        book.setAuthor(author);
+
+        // When
+        byte[] json = JsonSupport.writer(FieldSet.parse("title,author", FieldSet.BOOK_FIELDS)).writeValueAsBytes(book);
+
+        // Then
+        JsonNode node = JsonSupport.mapper().readTree(json);
+        assertEquals("Title", node.get("title").asText());
+        assertFalse(node.has("isbn"));
+        assertEquals("Tolstoy", node.get("author").get("lastName").asText());
+    }
+
+    @Test
+    void reader_ParsesUtf8Bytes() throws IOException {
+        // Given
+        byte[] json = "{\"title\":\"Война и мир\"}".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        BookDto book = JsonSupport.reader(BookDto.class).readValue(json);
+
+        // Then
+        assertEquals("Война и мир", book.getTitle());
+    }
+
+    @Test
+    void boundedInputStream_WithinLimit_ReadsWholeBody() throws IOException {
+        InputStream in = new BoundedInputStream(new ByteArrayInputStream(new byte[10]), 10);
+
+        assertEquals(10, in.readAllBytes().length);
+    }
+
+    @Test
+    void boundedInputStream_OverLimit_ThrowsLimitExceeded() {
+        InputStream in = new BoundedInputStream(new ByteArrayInputStream(new byte[11]), 10);
+
+        assertThrows(BoundedInputStream.LimitExceededException.class, in::readAllBytes);
+    }
+}
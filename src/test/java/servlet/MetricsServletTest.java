@@ -0,0 +1,57 @@
+package servlet;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import metrics.MetricsRegistry;
+import metrics.PrometheusWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class MetricsServletTest {
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    private MetricsRegistry metricsRegistry;
+    private MetricsServlet servlet;
+    private StringWriter responseWriter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        metricsRegistry = new MetricsRegistry();
+        servlet = new MetricsServlet(metricsRegistry);
+        responseWriter = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(responseWriter));
+    }
+
+    @Test
+    void doGet_ReturnsPrometheusText() throws IOException {
+        // Given
+        metricsRegistry.servlet("BookServlet").recordRequest("GET", 200, 1_000_000, 512);
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        verify(response).setContentType(PrometheusWriter.CONTENT_TYPE);
+        assertTrue(responseWriter.toString().contains(
+                "http_server_requests_total{servlet=\"BookServlet\",method=\"GET\",status=\"200\"} 1\n"));
+    }
+}
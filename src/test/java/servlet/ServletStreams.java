@@ -0,0 +1,73 @@
+package servlet;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Потоки запроса и ответа для тестов сервлетов поверх массивов байт
+final class ServletStreams {
+    private ServletStreams() {
+    }
+
+    static ServletOutputStream outputTo(ByteArrayOutputStream target) {
+        return new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                target.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                target.write(b, off, len);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+    }
+
+    static ServletInputStream inputOf(String body) {
+        ByteArrayInputStream source = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return source.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return source.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return source.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        };
+    }
+
+    static String bodyOf(ByteArrayOutputStream target) throws IOException {
+        return target.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,104 @@
+package servlet;
+
+import dto.BookDto;
+import dto.PageDto;
+import exception.DatabaseException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import repository.BookFilter;
+import repository.FieldSet;
+import service.AuthorService;
+import service.BookService;
+import service.GenreService;
+import service.SuggestService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class StartupWarmUpTest {
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private AuthorService authorService;
+
+    @Mock
+    private GenreService genreService;
+
+    @Mock
+    private SuggestService suggestService;
+
+    private BookDto book;
+
+    @BeforeEach
+    void setUp() {
+        book = new BookDto();
+        book.setId(7L);
+        PageDto<BookDto> page = new PageDto<>(List.of(book), null);
+        when(bookService.findPage(any(FieldSet.class), isNull(), anyInt())).thenReturn(page);
+        when(bookService.findPage(any(BookFilter.class), any(FieldSet.class), isNull(), anyInt())).thenReturn(page);
+        when(bookService.findById(7L)).thenReturn(book);
+        when(genreService.findAll()).thenReturn(List.of());
+        when(suggestService.suggest(anyString(), anyInt())).thenReturn(List.of());
+    }
+
+    @Test
+    void run_ExecutesEveryReadOperationOnEachThread() throws InterruptedException {
+        // Given
+        StartupWarmUp warmUp = new StartupWarmUp(bookService, authorService, genreService, suggestService,
+                2, 3, 10_000);
+
+        // When
+        long completed = warmUp.run();
+
+        // Then: 8 операций, 3 итерации, 2 потока
+        assertEquals(48, completed);
+        verify(genreService, times(6)).findAll();
+        verify(bookService, times(6)).findById(7L);
+        verify(bookService, times(6)).search("library", null, 10);
+        verify(suggestService, times(6)).suggest("a", 10);
+    }
+
+    @Test
+    void run_OperationFails_StopsWithoutThrowing() throws InterruptedException {
+        // Given
+        when(genreService.findAll()).thenThrow(new DatabaseException("Connection refused", null));
+        StartupWarmUp warmUp = new StartupWarmUp(bookService, authorService, genreService, suggestService,
+                1, 5, 10_000);
+
+        // When
+        long completed = warmUp.run();
+
+        // Then
+        assertEquals(0, completed);
+        verify(genreService, times(1)).findAll();
+        verifyNoInteractions(suggestService);
+    }
+
+    @Test
+    void run_WorkFinishesEarly_ReturnsWithoutWaitingForBudget() throws InterruptedException {
+        // Given
+        StartupWarmUp warmUp = new StartupWarmUp(bookService, authorService, genreService, suggestService,
+                2, 1, 10_000);
+        long start = System.nanoTime();
+
+        // When
+        warmUp.run();
+
+        // Then
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis < 2_000, "Прогрев занял " + elapsedMillis + " мс");
+    }
+}
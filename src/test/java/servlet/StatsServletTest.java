@@ -0,0 +1,80 @@
+package servlet;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.BookDto;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import service.cache.EntityCaches;
+import service.limit.ConcurrencyLimiter;
+
+import java.io.IOException;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class StatsServletTest {
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    private EntityCaches entityCaches;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private StatsServlet servlet;
+    private ByteArrayOutputStream responseBody;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        entityCaches = new EntityCaches(100, Duration.ofMinutes(1));
+        concurrencyLimiter = new ConcurrencyLimiter(1, 1, 10, 1, System::nanoTime);
+        servlet = new StatsServlet(entityCaches, concurrencyLimiter, null);
+        responseBody = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(ServletStreams.outputTo(responseBody));
+    }
+
+    @Test
+    void doGet_ReturnsCacheStatistics() throws IOException {
+        // Given
+        entityCaches.books().get(1L, id -> new BookDto());
+        entityCaches.books().get(1L, id -> new BookDto());
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        JsonNode books = new ObjectMapper().readTree(ServletStreams.bodyOf(responseBody)).path("caches").path("books");
+        assertEquals(1, books.path("hits").asLong());
+        assertEquals(1, books.path("misses").asLong());
+        assertEquals(0.5, books.path("hitRatio").asDouble());
+    }
+
+    @Test
+    void doGet_ReturnsConcurrencyLimiterState() throws IOException {
+        // Given: единственное место занято, второй запрос отклонен
+        concurrencyLimiter.tryAcquire();
+        concurrencyLimiter.tryAcquire();
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        JsonNode concurrency = new ObjectMapper().readTree(ServletStreams.bodyOf(responseBody)).path("concurrency");
+        assertEquals(1, concurrency.path("limit").asInt());
+        assertEquals(1, concurrency.path("inFlight").asInt());
+        assertEquals(1, concurrency.path("rejected").asLong());
+    }
+}
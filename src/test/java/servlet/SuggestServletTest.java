@@ -0,0 +1,112 @@
+package servlet;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.ErrorResponse;
+import dto.SuggestionDto;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import service.SuggestService;
+import service.cache.SuggestIndex;
+
+import java.io.IOException;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SuggestServletTest {
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    private SuggestServlet servlet;
+    private ByteArrayOutputStream responseBody;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        SuggestIndex suggestIndex = new SuggestIndex(
+                action -> Map.of(1L, "Война и мир", 2L, "Воскресение").forEach(action),
+                action -> action.accept(3L, "Вольтер"),
+                Long.MAX_VALUE);
+        servlet = new SuggestServlet(new SuggestService(suggestIndex));
+        responseBody = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(ServletStreams.outputTo(responseBody));
+        objectMapper = new ObjectMapper();
+    }
+
+    @Test
+    void doGet_WithPrefix_ReturnsBooksAndAuthors() throws IOException {
+        // Given
+        when(request.getParameter("prefix")).thenReturn("Во");
+        when(request.getParameter("limit")).thenReturn("10");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        List<SuggestionDto> result = objectMapper.readValue(ServletStreams.bodyOf(responseBody),
+                new TypeReference<List<SuggestionDto>>() {});
+        assertEquals(3, result.size());
+        assertEquals(2, result.stream().filter(s -> "book".equals(s.getType())).count());
+        assertEquals(1, result.stream().filter(s -> "author".equals(s.getType())).count());
+    }
+
+    @Test
+    void doGet_WithLimit_TruncatesResult() throws IOException {
+        // Given
+        when(request.getParameter("prefix")).thenReturn("во");
+        when(request.getParameter("limit")).thenReturn("1");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        List<SuggestionDto> result = objectMapper.readValue(ServletStreams.bodyOf(responseBody),
+                new TypeReference<List<SuggestionDto>>() {});
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    void doGet_WithoutPrefix_ReturnsBadRequest() throws IOException {
+        // Given
+        when(request.getParameter("prefix")).thenReturn(null);
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        ErrorResponse error = objectMapper.readValue(ServletStreams.bodyOf(responseBody), ErrorResponse.class);
+        assertTrue(error.getErrors().containsKey("prefix"));
+    }
+
+    @Test
+    void doGet_WithInvalidLimit_ReturnsBadRequest() throws IOException {
+        // Given
+        when(request.getParameter("prefix")).thenReturn("во");
+        when(request.getParameter("limit")).thenReturn("500");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+    }
+}
@@ -3,6 +3,7 @@ DROP TABLE IF EXISTS books_genres CASCADE;
 DROP TABLE IF EXISTS books CASCADE;
 DROP TABLE IF EXISTS authors CASCADE;
 DROP TABLE IF EXISTS genres CASCADE;
+DROP TABLE IF EXISTS collection_versions CASCADE;
 
 -- Создание таблицы авторов
 CREATE TABLE authors (
@@ -56,10 +57,28 @@ CREATE TABLE books_genres (
 
 -- Создание индексов
 CREATE INDEX idx_authors_last_name ON authors(last_name);
-CREATE INDEX idx_books_title ON books(title);
+CREATE INDEX idx_books_title_id ON books(title, id);
 CREATE INDEX idx_books_isbn ON books(isbn);
-CREATE INDEX idx_books_author_id ON books(author_id);
+CREATE INDEX idx_books_author_id_id ON books(author_id, id);
 CREATE INDEX idx_genres_name ON genres(name);
+CREATE INDEX idx_authors_updated_at ON authors(updated_at);
+CREATE INDEX idx_books_updated_at ON books(updated_at);
+CREATE INDEX idx_genres_updated_at ON genres(updated_at);
+
+-- Полнотекстовый поиск (v3_book_search.sql)
+ALTER TABLE books ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', coalesce(title, '')), 'A')
+) STORED;
+ALTER TABLE authors ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', coalesce(first_name, '') || ' ' || coalesce(last_name, '')), 'B') ||
+    setweight(to_tsvector('russian', coalesce(biography, '')), 'C')
+) STORED;
+CREATE INDEX idx_books_search_vector ON books USING GIN (search_vector);
+CREATE INDEX idx_authors_search_vector ON authors USING GIN (search_vector);
+
+-- Индексы фильтров (v4_book_filters.sql)
+CREATE INDEX idx_books_genres_genre_id ON books_genres(genre_id, book_id);
+CREATE INDEX idx_books_year_id ON books ((COALESCE(publication_year, 0)), id);
 
 -- Создание триггера для обновления updated_at
 CREATE OR REPLACE FUNCTION update_updated_at_column()
@@ -84,4 +103,129 @@ CREATE TRIGGER update_books_updated_at
 CREATE TRIGGER update_genres_updated_at
     BEFORE UPDATE ON genres
     FOR EACH ROW
-    EXECUTE FUNCTION update_updated_at_column();
\ No newline at end of file
+    EXECUTE FUNCTION update_updated_at_column();
+
+-- Версии коллекций (v5_collection_versions.sql)
+CREATE TABLE collection_versions (
+    table_name VARCHAR(30) NOT NULL,
+    shard SMALLINT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (table_name, shard)
+);
+
+INSERT INTO collection_versions (table_name, shard)
+SELECT table_name, shard
+FROM unnest(ARRAY['authors', 'genres', 'books', 'books_genres']) AS table_name,
+     generate_series(0, 63) AS shard;
+
+-- Триггер уровня команды срабатывает после нее и видит измененные строки в таблице перехода
+-- changed_rows: команда, не изменившая ни одной строки, версию не трогает. У TRUNCATE таблицы
+-- перехода нет, он увеличивает версию всегда
+CREATE OR REPLACE FUNCTION bump_collection_version()
+RETURNS TRIGGER AS $$
+BEGIN
+    -- Вложенное условие: у TRUNCATE таблицы changed_rows нет, и запрос к ней не разобрался бы
+    IF TG_OP <> 'TRUNCATE' THEN
+        IF NOT EXISTS (SELECT 1 FROM changed_rows) THEN
+            RETURN NULL;
+        END IF;
+    END IF;
+    UPDATE collection_versions
+    SET version = version + 1, updated_at = clock_timestamp()
+    WHERE table_name = TG_TABLE_NAME AND shard = pg_backend_pid() % 64;
+    RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+CREATE TRIGGER bump_authors_version_insert
+    AFTER INSERT ON authors
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_authors_version_update
+    AFTER UPDATE ON authors
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_authors_version_delete
+    AFTER DELETE ON authors
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_authors_version_truncate
+    AFTER TRUNCATE ON authors
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_genres_version_insert
+    AFTER INSERT ON genres
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_genres_version_update
+    AFTER UPDATE ON genres
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_genres_version_delete
+    AFTER DELETE ON genres
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_genres_version_truncate
+    AFTER TRUNCATE ON genres
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_version_insert
+    AFTER INSERT ON books
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_version_update
+    AFTER UPDATE ON books
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_version_delete
+    AFTER DELETE ON books
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_version_truncate
+    AFTER TRUNCATE ON books
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_genres_version_insert
+    AFTER INSERT ON books_genres
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_genres_version_update
+    AFTER UPDATE ON books_genres
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_genres_version_delete
+    AFTER DELETE ON books_genres
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();
+
+CREATE TRIGGER bump_books_genres_version_truncate
+    AFTER TRUNCATE ON books_genres
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_collection_version();